@@ -0,0 +1,13 @@
+package com.example.adaggregator.config;
+
+/**
+ * Constants shared between the schema the initializer creates and the queries reading it.
+ */
+public final class ClickHouseSchema {
+
+    // Last attribution lag bucket, open-ended from 2^(n-1) seconds (~97 days for n = 24)
+    public static final int LAG_HISTOGRAM_MAX_BUCKET = 24;
+
+    private ClickHouseSchema() {
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.adaggregator.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads existing raw rows into a newly created aggregate one source partition at a time.
+ * Finished partitions are recorded in {@code schema_backfills}, so a restarted pod resumes
+ * where the previous one stopped.
+ *
+ * <p>The aggregates hold sums, so every row must be loaded exactly once. The caller stops the
+ * writers into the source before the live view is created and runs the backfill before they
+ * restart: rows present then are loaded by the backfill, and later rows only reach the
+ * aggregate through the view. Each partition's insert carries an
+ * {@code insert_deduplication_token} derived from the job and partition, so re-running a
+ * partition interrupted mid-insert drops the blocks the first attempt already wrote. The
+ * target needs a {@code non_replicated_deduplication_window} for that.
+ */
+@Component
+@Slf4j
+public class MaterializedViewBackfiller {
+
+    // Partition id of the row marking a whole job as scheduled or done
+    private static final String JOB_MARKER = "";
+    private static final String PENDING = "pending";
+    private static final String DONE = "done";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    public MaterializedViewBackfiller(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void createProgressTable() {
+        jdbcTemplate.execute("""
+            CREATE TABLE IF NOT EXISTS schema_backfills (
+                job String,
+                partition_id String,
+                status LowCardinality(String),
+                updated_at DateTime64(3) DEFAULT now64(3)
+            ) ENGINE = ReplacingMergeTree(updated_at)
+            ORDER BY (job, partition_id);
+        """);
+    }
+
+    // Called before the target and its live view are created, so a crash in between
+    // leaves the job pending instead of losing it. Partitions recorded by an earlier
+    // run of the same job belong to an older cutover and are forgotten.
+    public void schedule(String job) {
+        jdbcTemplate.update("DELETE FROM schema_backfills WHERE job = ? AND partition_id != ''", job);
+        markStatus(job, JOB_MARKER, PENDING);
+    }
+
+    public boolean isPending(String job) {
+        return PENDING.equals(status(job, JOB_MARKER));
+    }
+
+    /**
+     * Runs {@code insertSql} once per partition of {@code sourceTable} recorded for the job and
+     * not yet done; the first call records the source's active partitions. The statement must
+     * filter on {@code _partition_id = ?} and must not end in a {@code SETTINGS} clause.
+     */
+    public void resume(String job, String sourceTable, String insertSql) {
+        if (!isPending(job)) {
+            return;
+        }
+
+        List<String> partitions = jdbcTemplate.queryForList("""
+            SELECT partition_id
+            FROM schema_backfills FINAL
+            WHERE job = ? AND partition_id != ''
+            ORDER BY partition_id
+        """, String.class, job);
+        if (partitions.isEmpty()) {
+            partitions = jdbcTemplate.queryForList("""
+                SELECT DISTINCT partition_id
+                FROM system.parts
+                WHERE database = currentDatabase() AND table = ? AND active
+                ORDER BY partition_id
+            """, String.class, sourceTable);
+            for (String partition : partitions) {
+                markStatus(job, partition, PENDING);
+            }
+        }
+        Set<String> completed = new HashSet<>(jdbcTemplate.queryForList("""
+            SELECT partition_id
+            FROM schema_backfills FINAL
+            WHERE job = ? AND partition_id != '' AND status = ?
+        """, String.class, job, DONE));
+
+        AtomicLong completedGauge = new AtomicLong(partitions.stream().filter(completed::contains).count());
+        Gauge.builder("clickhouse.backfill.partitions.total", partitions::size)
+            .tag("job", job)
+            .register(meterRegistry);
+        Gauge.builder("clickhouse.backfill.partitions.completed", completedGauge, AtomicLong::get)
+            .tag("job", job)
+            .register(meterRegistry);
+        Counter rows = Counter.builder("clickhouse.backfill.rows")
+            .tag("job", job)
+            .register(meterRegistry);
+
+        log.info("Backfill {}: {} of {} partitions already done", job, completedGauge.get(), partitions.size());
+        try {
+            for (String partition : partitions) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                if (completed.contains(partition)) {
+                    continue;
+                }
+                rows.increment(jdbcTemplate.update(withDeduplicationToken(insertSql, job, partition), partition));
+                markStatus(job, partition, DONE);
+                completedGauge.incrementAndGet();
+            }
+            markStatus(job, JOB_MARKER, DONE);
+            log.info("Backfill {} finished", job);
+        } catch (Exception e) {
+            // Left pending; the next start picks up from the last finished partition
+            log.error("Backfill {} stopped after {} partitions", job, completedGauge.get(), e);
+        }
+    }
+
+    // Job names and partition ids are plain identifiers, safe to inline
+    static String withDeduplicationToken(String insertSql, String job, String partition) {
+        return insertSql + " SETTINGS insert_deduplication_token = '" + job + "/" + partition + "'";
+    }
+
+    private String status(String job, String partition) {
+        List<String> statuses = jdbcTemplate.queryForList(
+            "SELECT status FROM schema_backfills FINAL WHERE job = ? AND partition_id = ?",
+            String.class, job, partition
+        );
+        return statuses.isEmpty() ? null : statuses.get(0);
+    }
+
+    private void markStatus(String job, String partition, String status) {
+        jdbcTemplate.update(
+            "INSERT INTO schema_backfills (job, partition_id, status) VALUES (?, ?, ?)",
+            job, partition, status
+        );
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.adaggregator.config;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SchemaHealthIndicator implements HealthIndicator {
+
+    private final SchemaInitializer schemaInitializer;
+
+    public SchemaHealthIndicator(SchemaInitializer schemaInitializer) {
+        this.schemaInitializer = schemaInitializer;
+    }
+
+    @Override
+    public Health health() {
+        if (schemaInitializer.isReady()) {
+            return Health.up().build();
+        }
+        Health.Builder builder = Health.outOfService();
+        if (schemaInitializer.getLastError() != null) {
+            builder.withDetail("error", schemaInitializer.getLastError());
+        }
+        return builder.build();
+    }
+}
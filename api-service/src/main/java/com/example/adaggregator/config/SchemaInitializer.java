@@ -1,91 +1,425 @@
 package com.example.adaggregator.config;
 
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 @Component
+@Slf4j
 public class SchemaInitializer implements CommandLineRunner {
 
     // Kafka Configuration
     private static final String KAFKA_BROKER = "kafka:29092";
 
+    // Clicks consumer tuning; kafka_num_consumers must not exceed the raw-events partition count
+    @Value("${clickhouse.kafka.clicks.num-consumers:1}")
+    private int kafkaNumConsumers;
+
+    @Value("${clickhouse.kafka.clicks.thread-per-consumer:true}")
+    private boolean kafkaThreadPerConsumer;
+
+    @Value("${clickhouse.kafka.clicks.max-block-size:65536}")
+    private int kafkaMaxBlockSize;
+
+    @Value("${clickhouse.kafka.clicks.skip-broken-messages:100}")
+    private int kafkaSkipBrokenMessages;
+
+    // Off when reporting takes click counts from Flink's click-aggregates topic instead, which
+    // the job only writes with aggregation.clicks.enabled; the clicks table then stops receiving
+    // new rows
+    @Value("${clickhouse.kafka.clicks.enabled:true}")
+    private boolean rawClickIngestion;
+
+    // On together with the Flink job's fraud.enabled, which writes the topic
+    @Value("${clickhouse.kafka.quarantined.enabled:false}")
+    private boolean quarantinedClickIngestion;
+
+    // Off when Flink writes attributed_events directly (its clickhouse.sink.enabled)
+    @Value("${clickhouse.kafka.attributed.enabled:true}")
+    private boolean attributedKafkaIngestion;
+
+    // Raw table retention; 0 keeps rows forever. Aggregates are not affected.
+    @Value("${clickhouse.storage.retention-days:730}")
+    private int retentionDays;
+
+    @Value("${clickhouse.storage.migrate-legacy-layout:false}")
+    private boolean migrateLegacyLayout;
+
+    private static final String DAILY_CLICKS_BACKFILL = "daily_stats_agg.clicks";
+    private static final String DAILY_CONVERSIONS_BACKFILL = "daily_stats_agg.conversions";
+    private static final String LAG_HISTOGRAM_BACKFILL = "attribution_lag_histogram";
+    private static final List<String> BACKFILLS =
+        List.of(DAILY_CLICKS_BACKFILL, DAILY_CONVERSIONS_BACKFILL, LAG_HISTOGRAM_BACKFILL);
+
+    // Sort keys as system.tables reports them; a table sorted differently is migrated.
+    // Multi-touch attribution emits one row per credited click, so click_id must be part of
+    // the attributed_events key or ReplacingMergeTree collapses a conversion's clicks into one.
+    private static final String CLICKS_SORTING_KEY = "campaign_id, source, click_time, event_id";
+    private static final String ATTRIBUTED_EVENTS_SORTING_KEY =
+        "campaign_id, ad_id, conversion_time, conversion_id, click_id";
+
+    private static final String DAILY_CLICKS_COLUMNS = "(day, campaign_id, source, clicks) ";
+    private static final String DAILY_CONVERSIONS_COLUMNS = "(day, campaign_id, source, conversions, revenue) ";
+
+    // Insert blocks each table remembers for deduplication
+    private static final int DEDUPLICATION_WINDOW = 1000;
+
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+
     private final JdbcTemplate jdbcTemplate;
+    private final MaterializedViewBackfiller backfiller;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "schema-initializer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean ready;
+    private volatile String lastError;
 
-    public SchemaInitializer(JdbcTemplate jdbcTemplate) {
+    public SchemaInitializer(JdbcTemplate jdbcTemplate, MaterializedViewBackfiller backfiller) {
         this.jdbcTemplate = jdbcTemplate;
+        this.backfiller = backfiller;
     }
 
+    // DDL runs off the startup thread so the pod starts in seconds regardless of
+    // ClickHouse state; SchemaHealthIndicator keeps readiness DOWN until it finishes,
+    // including the one-time backfill of a newly created aggregate.
     @Override
-    public void run(String... args) throws Exception {
+    public void run(String... args) {
+        executor.submit(this::initializeWithRetry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    private void initializeWithRetry() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                initializeSchema();
+                ready = true;
+                lastError = null;
+                log.info("ClickHouse schema initialized");
+                return;
+            } catch (Exception e) {
+                lastError = e.getMessage();
+                log.warn("Schema initialization failed, retrying in {}", RETRY_DELAY, e);
+                try {
+                    Thread.sleep(RETRY_DELAY.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private void initializeSchema() {
+        backfiller.createProgressTable();
+
         // ============================================
-        // RAW DATA TABLES (MergeTree)
-        // These store the actual events for querying
+        // RAW DATA TABLES (ReplacingMergeTree)
+        // These store the actual events for querying;
+        // replayed duplicates collapse on merge
         // ============================================
         
-        createClicksTable();
-        createAttributedEventsTable();
+        if (migrateLegacyLayout) {
+            migrateLegacyStorageLayout();
+        } else {
+            if (hasLegacyLayout("clicks", CLICKS_SORTING_KEY)) {
+                log.warn("clicks has an older layout, so replayed clicks may not collapse on merge; "
+                    + "set clickhouse.storage.migrate-legacy-layout to rewrite it");
+            }
+            if (hasLegacyLayout("attributed_events", ATTRIBUTED_EVENTS_SORTING_KEY)) {
+                log.warn("attributed_events has an older layout, so merges may collapse the clicks of a "
+                    + "multi-touch conversion; set clickhouse.storage.migrate-legacy-layout to rewrite it");
+            }
+        }
+
+        createClicksTable("clicks");
+        createAttributedEventsTable("attributed_events");
+        addAttributionColumns("attributed_events");
+        enableInsertDeduplication("clicks");
+        enableInsertDeduplication("attributed_events");
+
+        // ============================================
+        // LOOKUP PATHS
+        // Skip indexes and projections for user/event lookups
+        // ============================================
+
+        createLookupIndexes();
         
+        // ============================================
+        // AGGREGATION LAYER
+        // Pre-computed daily stats for fast querying
+        // ============================================
+
+        // A new aggregate is filled from the raw tables while nothing writes to them, so
+        // every row is summed exactly once: either by the backfill or by the live views
+        boolean backfilling = backfillsPending();
+        if (backfilling) {
+            pauseRawIngestion();
+        }
+
+        createDailyCombinedStatsMaterializedView();
+        if (rawClickIngestion) {
+            stopClickAggregatesIngestion();
+        } else {
+            createClickAggregatesKafkaConsumer();
+            createClickAggregatesMaterializedView();
+        }
+        createAttributionLagHistogramMaterializedView();
+
+        if (backfilling) {
+            runBackfills();
+        }
+
         // ============================================
         // INGESTION PIPELINE (Kafka → ClickHouse)
         // Raw events topic → clicks table
         // ============================================
         
-        createRawEventsKafkaConsumer();
-        createClicksConsumerMaterializedView();
-        
+        if (rawClickIngestion) {
+            createRawEventsKafkaConsumer();
+            createClicksConsumerMaterializedView();
+        } else {
+            stopRawClicksIngestion();
+        }
+
         // ============================================
         // INGESTION PIPELINE (Kafka → ClickHouse)
-        // Attributed events topic → attributed_events table
+        // Quarantined clicks topic → daily_stats_agg
         // ============================================
-        
-        createAttributedEventsKafkaConsumer();
-        createAttributedEventsMaterializedView();
+
+        if (quarantinedClickIngestion) {
+            createQuarantinedClicksKafkaConsumer();
+            createQuarantinedClicksMaterializedView();
+        } else {
+            stopQuarantinedClicksIngestion();
+        }
         
         // ============================================
-        // AGGREGATION LAYER
-        // Pre-computed daily stats for fast querying
+        // INGESTION PIPELINE (Kafka → ClickHouse)
+        // Attributed events topic → attributed_events table
         // ============================================
         
-        createDailyCombinedStatsMaterializedView();
+        if (attributedKafkaIngestion) {
+            createAttributedEventsKafkaConsumer();
+            createAttributedEventsMaterializedView();
+        } else {
+            useDirectAttributedEventsIngestion();
+        }
     }
 
     // ============================================
     // RAW DATA TABLES
     // ============================================
 
-    private void createClicksTable() {
+    private void createClicksTable(String table) {
         jdbcTemplate.execute("""
-            CREATE TABLE IF NOT EXISTS clicks (
-                event_id String,
-                user_id String,
-                campaign_id String,
-                ad_id String,
-                source String,
-                click_time DateTime
-            ) ENGINE = MergeTree()
-            PARTITION BY toYYYYMMDD(click_time)
-            ORDER BY (campaign_id, source, click_time);
-        """);
+            CREATE TABLE IF NOT EXISTS %s (
+                event_id String CODEC(ZSTD(1)),
+                user_id String CODEC(ZSTD(1)),
+                campaign_id LowCardinality(String),
+                ad_id String CODEC(ZSTD(1)),
+                source LowCardinality(String),
+                click_time DateTime CODEC(DoubleDelta, ZSTD(1))
+            ) ENGINE = ReplacingMergeTree()
+            PARTITION BY toYYYYMM(click_time)
+            ORDER BY (%s)
+            %s
+            %s;
+        """.formatted(table, CLICKS_SORTING_KEY, retentionClause("click_time"), tableSettings()));
     }
 
-    private void createAttributedEventsTable() {
+    private void createAttributedEventsTable(String table) {
         jdbcTemplate.execute("""
-            CREATE TABLE IF NOT EXISTS attributed_events (
-                conversion_id String,
-                click_id String,
-                user_id String,
-                ad_id String,
-                campaign_id String,
-                source String,
+            CREATE TABLE IF NOT EXISTS %s (
+                conversion_id String CODEC(ZSTD(1)),
+                click_id String CODEC(ZSTD(1)),
+                user_id String CODEC(ZSTD(1)),
+                ad_id String CODEC(ZSTD(1)),
+                campaign_id LowCardinality(String),
+                source LowCardinality(String),
                 conversion_type LowCardinality(String),
-                value Decimal(18, 2),
-                click_time DateTime,
-                conversion_time DateTime
-            ) ENGINE = MergeTree()
-            PARTITION BY toYYYYMMDD(conversion_time)
-            ORDER BY (campaign_id, ad_id, conversion_time);
-        """);
+                value Decimal(18, 2) CODEC(ZSTD(1)),
+                click_time DateTime CODEC(Delta, ZSTD(1)),
+                conversion_time DateTime CODEC(DoubleDelta, ZSTD(1)),
+                attribution_model LowCardinality(String) DEFAULT 'last_click',
+                credit Float64 DEFAULT 1
+            ) ENGINE = ReplacingMergeTree()
+            PARTITION BY toYYYYMM(conversion_time)
+            ORDER BY (%s)
+            %s
+            %s;
+        """.formatted(table, ATTRIBUTED_EVENTS_SORTING_KEY, retentionClause("conversion_time"), tableSettings()));
+    }
+
+    // Rows written before multi-touch attribution were last-click with full credit
+    private void addAttributionColumns(String table) {
+        jdbcTemplate.execute("""
+            ALTER TABLE %s
+            ADD COLUMN IF NOT EXISTS attribution_model LowCardinality(String) DEFAULT 'last_click',
+            ADD COLUMN IF NOT EXISTS credit Float64 DEFAULT 1
+        """.formatted(table));
+    }
+
+    private String retentionClause(String timeColumn) {
+        if (retentionDays <= 0) {
+            return "";
+        }
+        return "TTL %s + INTERVAL %d DAY".formatted(timeColumn, retentionDays);
+    }
+
+    // Monthly partitions let TTL drop whole parts instead of rewriting them.
+    // Replacing merges must rebuild the user_journey projections rather than reject them.
+    private String tableSettings() {
+        String settings = "SETTINGS deduplicate_merge_projection_mode = 'rebuild', "
+            + "non_replicated_deduplication_window = " + DEDUPLICATION_WINDOW;
+        if (retentionDays > 0) {
+            settings += ", ttl_only_drop_parts = 1";
+        }
+        return settings;
+    }
+
+    // Non-replicated tables only drop a repeated insert block while its hash is among the
+    // last few they kept; tables created before the window was part of their settings get it here
+    private void enableInsertDeduplication(String table) {
+        jdbcTemplate.execute("ALTER TABLE %s MODIFY SETTING non_replicated_deduplication_window = %d"
+            .formatted(table, DEDUPLICATION_WINDOW));
+    }
+
+    // ============================================
+    // LOOKUP PATHS
+    // ============================================
+
+    // Both raw tables are sorted by campaign, so lookups by user or event id would
+    // otherwise scan everything. Bloom filters prune granules for point lookups by id,
+    // and the user_journey projections keep a copy sorted by user for per-user reads.
+    // Added with ALTER so existing tables pick them up; MATERIALIZE only runs once.
+    private void createLookupIndexes() {
+        addSkipIndex("clicks", "idx_user_id", "user_id");
+        addSkipIndex("clicks", "idx_event_id", "event_id");
+        addProjection("clicks", "user_journey", "SELECT * ORDER BY (user_id, click_time)");
+
+        addSkipIndex("attributed_events", "idx_user_id", "user_id");
+        addSkipIndex("attributed_events", "idx_conversion_id", "conversion_id");
+        addSkipIndex("attributed_events", "idx_click_id", "click_id");
+        addProjection("attributed_events", "user_journey", "SELECT * ORDER BY (user_id, conversion_time)");
+    }
+
+    private void addSkipIndex(String table, String index, String column) {
+        if (tableDefinitionContains(table, "INDEX " + index + " ")) {
+            return;
+        }
+        jdbcTemplate.execute("ALTER TABLE %s ADD INDEX IF NOT EXISTS %s %s TYPE bloom_filter(0.01) GRANULARITY 1"
+            .formatted(table, index, column));
+        jdbcTemplate.execute("ALTER TABLE %s MATERIALIZE INDEX %s".formatted(table, index));
+    }
+
+    private void addProjection(String table, String projection, String query) {
+        if (tableDefinitionContains(table, "PROJECTION " + projection + " ")) {
+            return;
+        }
+        jdbcTemplate.execute("ALTER TABLE %s ADD PROJECTION IF NOT EXISTS %s (%s)"
+            .formatted(table, projection, query));
+        jdbcTemplate.execute("ALTER TABLE %s MATERIALIZE PROJECTION %s".formatted(table, projection));
+    }
+
+    private boolean tableDefinitionContains(String table, String fragment) {
+        Integer matches = jdbcTemplate.queryForObject(
+            "SELECT count() FROM system.tables WHERE database = currentDatabase() AND name = ? AND position(create_table_query, ?) > 0",
+            Integer.class,
+            table,
+            fragment
+        );
+        return matches != null && matches > 0;
+    }
+
+    // ============================================
+    // STORAGE LAYOUT MIGRATION
+    // ============================================
+
+    // Rewrites clicks and attributed_events created with an older layout (daily
+    // partitions, plain Strings, a non-deduplicating engine or an older sort key). The partition
+    // and sort keys cannot be altered in place, so each table is copied into a new-layout table
+    // one source partition at a time and swapped with EXCHANGE TABLES once every partition is in.
+    // Every view reading or writing these tables is dropped first so the copy neither
+    // races with Kafka ingestion nor re-fires the aggregates; run() recreates them and
+    // the Kafka consumers resume from their committed offsets.
+    private void migrateLegacyStorageLayout() {
+        boolean clicksLegacy = hasLegacyLayout("clicks", CLICKS_SORTING_KEY);
+        boolean attributedLegacy = hasLegacyLayout("attributed_events", ATTRIBUTED_EVENTS_SORTING_KEY);
+        if (!clicksLegacy && !attributedLegacy) {
+            return;
+        }
+
+        jdbcTemplate.execute("DROP VIEW IF EXISTS clicks_typed_consumer_mv");
+        jdbcTemplate.execute("DROP VIEW IF EXISTS attributed_events_mv");
+        jdbcTemplate.execute("DROP VIEW IF EXISTS daily_clicks_agg_mv");
+        jdbcTemplate.execute("DROP VIEW IF EXISTS daily_conversions_agg_mv");
+        jdbcTemplate.execute("DROP VIEW IF EXISTS attribution_lag_histogram_agg_mv");
+
+        if (clicksLegacy) {
+            migrateTable("clicks", () -> createClicksTable("clicks_migration"));
+        }
+        if (attributedLegacy) {
+            // The copy is by position, so the source needs the columns added since it was created
+            addAttributionColumns("attributed_events");
+            migrateTable("attributed_events", () -> createAttributedEventsTable("attributed_events_migration"));
+        }
+    }
+
+    // The copy goes through the backfiller, so a restart resumes after the last partition it
+    // finished instead of copying the whole table again. A copy table without a pending job
+    // is left over from a run that never recorded one and is discarded.
+    private void migrateTable(String table, Runnable createMigrationTable) {
+        String job = table + "_layout_migration";
+        if (!backfiller.isPending(job) || !tableExists(table + "_migration")) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS %s_migration".formatted(table));
+            backfiller.schedule(job);
+            createMigrationTable.run();
+        }
+        backfiller.resume(job, table,
+            "INSERT INTO %s_migration SELECT * FROM %s WHERE _partition_id = ?".formatted(table, table));
+        if (backfiller.isPending(job)) {
+            throw new IllegalStateException("Layout migration of " + table + " did not complete");
+        }
+        jdbcTemplate.execute("EXCHANGE TABLES %s AND %s_migration".formatted(table, table));
+        jdbcTemplate.execute("DROP TABLE %s_migration".formatted(table));
+    }
+
+    private boolean hasLegacyLayout(String table, String sortingKey) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+            "SELECT engine, partition_key, sorting_key FROM system.tables WHERE database = currentDatabase() AND name = ?",
+            table
+        );
+        if (rows.isEmpty()) {
+            return false;
+        }
+        String engine = (String) rows.get(0).get("engine");
+        String partitionKey = (String) rows.get(0).get("partition_key");
+        return !"ReplacingMergeTree".equals(engine)
+            || partitionKey.startsWith("toYYYYMMDD")
+            || !sortingKey.equals(rows.get(0).get("sorting_key"));
     }
 
     // ============================================
@@ -93,39 +427,96 @@ public class SchemaInitializer implements CommandLineRunner {
     // ============================================
 
     private void createRawEventsKafkaConsumer() {
+        // The legacy consumer read each message as one LineAsString blob and parsed it
+        // with visitParamExtract* in the MV. Dropping the MV first stops consumption
+        // cleanly; the typed table reuses the same consumer group so it resumes from
+        // the committed offsets.
+        jdbcTemplate.execute("DROP VIEW IF EXISTS clicks_consumer_mv");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS raw_events_kafka");
+
+        // Kafka engine settings cannot be altered and CREATE IF NOT EXISTS keeps the old
+        // ones, so a changed tuning recreates the table. The view goes first to stop
+        // consumption; both come back on the same consumer group and committed offsets.
+        List<String> tuning = List.of(
+            "kafka_num_consumers = " + kafkaNumConsumers + ",",
+            "kafka_thread_per_consumer = " + (kafkaThreadPerConsumer ? 1 : 0) + ",",
+            "kafka_max_block_size = " + kafkaMaxBlockSize + ",",
+            "kafka_skip_broken_messages = " + kafkaSkipBrokenMessages + ","
+        );
+        if (tableExists("raw_clicks_kafka")
+                && !tuning.stream().allMatch(setting -> tableDefinitionContains("raw_clicks_kafka", setting))) {
+            log.info("raw_clicks_kafka settings changed, recreating the consumer");
+            stopRawClicksIngestion();
+        }
+
+        // Conversions share the topic; their extra fields and the click metadata
+        // object are skipped by the parser instead of being materialized.
         jdbcTemplate.execute("""
-            CREATE TABLE IF NOT EXISTS raw_events_kafka (
-                raw_data String
+            CREATE TABLE IF NOT EXISTS raw_clicks_kafka (
+                event_type LowCardinality(String),
+                event_id String,
+                user_id String,
+                campaign_id String,
+                ad_id String,
+                source String,
+                timestamp UInt64
             ) ENGINE = Kafka
             SETTINGS
                 kafka_broker_list = '%s',
                 kafka_topic_list = 'raw-events',
                 kafka_group_name = 'clickhouse_clicks_consumer',
-                kafka_format = 'LineAsString',
-                kafka_num_consumers = 1;
-        """.formatted(KAFKA_BROKER));
+                kafka_format = 'JSONEachRow',
+                kafka_num_consumers = %d,
+                kafka_thread_per_consumer = %d,
+                kafka_max_block_size = %d,
+                kafka_skip_broken_messages = %d,
+                input_format_skip_unknown_fields = 1,
+                input_format_parallel_parsing = 1;
+        """.formatted(
+            KAFKA_BROKER,
+            kafkaNumConsumers,
+            kafkaThreadPerConsumer ? 1 : 0,
+            kafkaMaxBlockSize,
+            kafkaSkipBrokenMessages
+        ));
     }
 
     private void createClicksConsumerMaterializedView() {
         jdbcTemplate.execute("""
-            CREATE MATERIALIZED VIEW IF NOT EXISTS clicks_consumer_mv TO clicks AS
+            CREATE MATERIALIZED VIEW IF NOT EXISTS clicks_typed_consumer_mv TO clicks AS
             SELECT
-                visitParamExtractString(raw_data, 'event_id') as event_id,
-                visitParamExtractString(raw_data, 'user_id') as user_id,
-                visitParamExtractString(raw_data, 'campaign_id') as campaign_id,
-                visitParamExtractString(raw_data, 'ad_id') as ad_id,
-                visitParamExtractString(raw_data, 'source') as source,
-                toDateTime(visitParamExtractUInt(raw_data, 'timestamp') / 1000) as click_time
-            FROM raw_events_kafka
-            WHERE visitParamExtractString(raw_data, 'event_type') = 'click';
+                event_id,
+                user_id,
+                campaign_id,
+                ad_id,
+                source,
+                toDateTime(intDiv(timestamp, 1000)) as click_time
+            FROM raw_clicks_kafka
+            WHERE event_type = 'click';
         """);
     }
 
+    // The consumer group's offsets stay committed in Kafka, so re-enabling resumes where it stopped
+    private void stopRawClicksIngestion() {
+        jdbcTemplate.execute("DROP VIEW IF EXISTS clicks_typed_consumer_mv");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS raw_clicks_kafka");
+    }
+
     // ============================================
     // KAFKA CONSUMERS - ATTRIBUTED EVENTS PIPELINE
     // ============================================
 
+    // Flink writes this topic in Kafka transactions. The consumer's isolation level is a
+    // server-wide librdkafka option (clickhouse/config.d/kafka.xml: read_committed), not a table setting
     private void createAttributedEventsKafkaConsumer() {
+        // Kafka tables cannot be altered, so one from before multi-touch attribution is recreated
+        // together with its view; both resume from the consumer group's committed offsets
+        if (tableExists("attributed_events_kafka") && !tableDefinitionContains("attributed_events_kafka", "`credit`")) {
+            log.info("attributed_events_kafka predates attribution credit, recreating the consumer");
+            jdbcTemplate.execute("DROP VIEW IF EXISTS attributed_events_mv");
+            jdbcTemplate.execute("DROP TABLE IF EXISTS attributed_events_kafka");
+        }
+
         jdbcTemplate.execute("""
             CREATE TABLE IF NOT EXISTS attributed_events_kafka (
                 conversion_id String,
@@ -137,7 +528,9 @@ public class SchemaInitializer implements CommandLineRunner {
                 conversion_type String,
                 value Decimal(18, 2),
                 click_time UInt64,
-                conversion_time UInt64
+                conversion_time UInt64,
+                attribution_model String,
+                credit Float64
             ) ENGINE = Kafka
             SETTINGS
                 kafka_broker_list = '%s',
@@ -148,6 +541,12 @@ public class SchemaInitializer implements CommandLineRunner {
         """.formatted(KAFKA_BROKER));
     }
 
+    // Flink's ClickHouse sink writes the table instead; each batch carries a content-derived
+    // insert_deduplication_token, honoured through the table's deduplication window
+    private void useDirectAttributedEventsIngestion() {
+        jdbcTemplate.execute("DROP VIEW IF EXISTS attributed_events_mv");
+    }
+
     private void createAttributedEventsMaterializedView() {
         jdbcTemplate.execute("""
             CREATE MATERIALIZED VIEW IF NOT EXISTS attributed_events_mv TO attributed_events AS
@@ -161,7 +560,9 @@ public class SchemaInitializer implements CommandLineRunner {
                 conversion_type,
                 value,
                 toDateTime(click_time / 1000) as click_time,
-                toDateTime(conversion_time / 1000) as conversion_time
+                toDateTime(conversion_time / 1000) as conversion_time,
+                attribution_model,
+                credit
             FROM attributed_events_kafka;
         """);
     }
@@ -170,44 +571,261 @@ public class SchemaInitializer implements CommandLineRunner {
     // AGGREGATION LAYER
     // ============================================
 
+    // The aggregates keep one fixed-size count and sum per day, campaign and source, so
+    // duplicates have to be dropped before they reach them. Every table takes part in insert
+    // deduplication, and ClickHouse runs with deduplicate_blocks_in_dependent_materialized_views
+    // (clickhouse/users.d/deduplication.xml; Flink's sink sets it per insert), so a repeated
+    // insert block is dropped from the raw table and from every view it feeds: a Flink sink
+    // retry carrying the same insert_deduplication_token, a backfill partition re-run after a
+    // restart, or a Kafka engine block read again after its offsets failed to commit.
+    // A duplicate arriving in a different block, such as a topic replayed from older offsets
+    // or a re-read that splits messages differently, still collapses in the ReplacingMergeTree
+    // raw tables but is counted again by the sums.
     private void createDailyCombinedStatsMaterializedView() {
+        boolean targetExists = tableExists("daily_stats_agg");
+        if (!targetExists) {
+            backfiller.schedule(DAILY_CLICKS_BACKFILL);
+            backfiller.schedule(DAILY_CONVERSIONS_BACKFILL);
+        }
+
+        // Conversions are credit-weighted: each credited click of a multi-touch conversion
+        // carries its share, and the shares of one conversion sum to 1
         jdbcTemplate.execute("""
-            CREATE MATERIALIZED VIEW IF NOT EXISTS daily_combined_stats_mv
-            ENGINE = SummingMergeTree()
-            PARTITION BY toYYYYMMDD(day)
+            CREATE TABLE IF NOT EXISTS daily_stats_agg (
+                day DateTime,
+                campaign_id LowCardinality(String),
+                source LowCardinality(String),
+                clicks UInt64,
+                conversions Float64,
+                revenue Decimal(18, 2),
+                quarantined_clicks UInt64
+            ) ENGINE = SummingMergeTree()
+            PARTITION BY toYYYYMM(day)
             ORDER BY (campaign_id, source, day)
-            POPULATE
-            AS SELECT
-                day,
+            SETTINGS non_replicated_deduplication_window = %d;
+        """.formatted(DEDUPLICATION_WINDOW));
+        jdbcTemplate.execute("ALTER TABLE daily_stats_agg ADD COLUMN IF NOT EXISTS quarantined_clicks UInt64");
+
+        // One MV per source table: an MV over a UNION ALL only fires for inserts
+        // into its first table, so conversions would never reach the aggregate.
+        jdbcTemplate.execute("""
+            CREATE MATERIALIZED VIEW IF NOT EXISTS daily_clicks_agg_mv TO daily_stats_agg AS
+            %s;
+        """.formatted(dailyClicksAggSelect("")));
+
+        jdbcTemplate.execute("""
+            CREATE MATERIALIZED VIEW IF NOT EXISTS daily_conversions_agg_mv TO daily_stats_agg AS
+            %s;
+        """.formatted(dailyConversionsAggSelect("")));
+
+        if (!targetExists) {
+            // Replaces the aggregates that summed raw rows without insert deduplication.
+            // The backfill rebuilds their history from the raw tables.
+            jdbcTemplate.execute("DROP VIEW IF EXISTS daily_combined_stats_mv");
+            jdbcTemplate.execute("DROP VIEW IF EXISTS daily_clicks_stats_mv");
+            jdbcTemplate.execute("DROP VIEW IF EXISTS daily_conversions_stats_mv");
+            jdbcTemplate.execute("DROP TABLE IF EXISTS daily_combined_stats");
+        }
+    }
+
+    private String dailyClicksAggSelect(String filter) {
+        return """
+            SELECT
+                toStartOfDay(click_time) as day,
                 campaign_id,
                 source,
-                sum(clicks) as clicks,
-                sum(conversions) as conversions,
-                sum(revenue) as revenue
-            FROM (
-                SELECT
-                    toStartOfDay(click_time) as day,
-                    campaign_id,
-                    source,
-                    count() as clicks,
-                    0 as conversions,
-                    0 as revenue
-                FROM clicks
-                GROUP BY day, campaign_id, source
-                
-                UNION ALL
-                
-                SELECT
-                    toStartOfDay(conversion_time) as day,
-                    campaign_id,
-                    source,
-                    0 as clicks,
-                    count() as conversions,
-                    sum(value) as revenue
-                FROM attributed_events
-                GROUP BY day, campaign_id, source
-            )
+                count() as clicks
+            FROM clicks
+            %s
+            GROUP BY day, campaign_id, source""".formatted(filter);
+    }
+
+    // ============================================
+    // KAFKA CONSUMERS - CLICK AGGREGATES PIPELINE
+    // ============================================
+
+    // Flink's per-window click counts replace raw clicks as the source of daily click counts.
+    // A late firing carries only the clicks added since the window last fired, so the counts sum.
+    private void createClickAggregatesKafkaConsumer() {
+        jdbcTemplate.execute("""
+            CREATE TABLE IF NOT EXISTS click_aggregates_kafka (
+                campaign_id String,
+                source String,
+                ad_id String,
+                window_start UInt64,
+                clicks UInt64
+            ) ENGINE = Kafka
+            SETTINGS
+                kafka_broker_list = '%s',
+                kafka_topic_list = 'click-aggregates',
+                kafka_group_name = 'clickhouse_click_aggregates_consumer',
+                kafka_format = 'JSONEachRow',
+                kafka_num_consumers = 1;
+        """.formatted(KAFKA_BROKER));
+    }
+
+    private void createClickAggregatesMaterializedView() {
+        jdbcTemplate.execute("""
+            CREATE MATERIALIZED VIEW IF NOT EXISTS daily_click_aggregates_agg_mv TO daily_stats_agg AS
+            SELECT
+                toStartOfDay(toDateTime(intDiv(window_start, 1000))) as day,
+                campaign_id,
+                source,
+                sum(clicks) as clicks
+            FROM click_aggregates_kafka
             GROUP BY day, campaign_id, source;
         """);
     }
+
+    // Both paths feed daily_stats_agg, so only one may run at a time
+    private void stopClickAggregatesIngestion() {
+        jdbcTemplate.execute("DROP VIEW IF EXISTS daily_click_aggregates_agg_mv");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS click_aggregates_kafka");
+    }
+
+    // ============================================
+    // KAFKA CONSUMERS - QUARANTINED CLICKS PIPELINE
+    // ============================================
+
+    // Clicks the Flink fraud filter held back, in the raw-events format. They are counted apart
+    // from clicks: the raw clicks path still ingests them into clicks, while Flink's click
+    // aggregates leave them out. Nothing is kept per click, so there is no history to backfill.
+    private void createQuarantinedClicksKafkaConsumer() {
+        jdbcTemplate.execute("""
+            CREATE TABLE IF NOT EXISTS quarantined_clicks_kafka (
+                campaign_id String,
+                source String,
+                timestamp UInt64
+            ) ENGINE = Kafka
+            SETTINGS
+                kafka_broker_list = '%s',
+                kafka_topic_list = 'quarantined-clicks',
+                kafka_group_name = 'clickhouse_quarantined_clicks_consumer',
+                kafka_format = 'JSONEachRow',
+                kafka_num_consumers = 1,
+                input_format_skip_unknown_fields = 1;
+        """.formatted(KAFKA_BROKER));
+    }
+
+    private void createQuarantinedClicksMaterializedView() {
+        jdbcTemplate.execute("""
+            CREATE MATERIALIZED VIEW IF NOT EXISTS daily_quarantined_clicks_agg_mv TO daily_stats_agg AS
+            SELECT
+                toStartOfDay(toDateTime(intDiv(timestamp, 1000))) as day,
+                campaign_id,
+                source,
+                count() as quarantined_clicks
+            FROM quarantined_clicks_kafka
+            GROUP BY day, campaign_id, source;
+        """);
+    }
+
+    // The consumer group's offsets stay committed in Kafka, so re-enabling resumes where it stopped
+    private void stopQuarantinedClicksIngestion() {
+        jdbcTemplate.execute("DROP VIEW IF EXISTS daily_quarantined_clicks_agg_mv");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS quarantined_clicks_kafka");
+    }
+
+    private String dailyConversionsAggSelect(String filter) {
+        return """
+            SELECT
+                toStartOfDay(conversion_time) as day,
+                campaign_id,
+                source,
+                sum(credit) as conversions,
+                sum(value) as revenue
+            FROM attributed_events
+            %s
+            GROUP BY day, campaign_id, source""".formatted(filter);
+    }
+
+    // ============================================
+    // BACKFILL CUTOVER
+    // ============================================
+
+    private boolean backfillsPending() {
+        return !tableExists("daily_stats_agg")
+            || !tableExists("attribution_lag_histogram")
+            || BACKFILLS.stream().anyMatch(backfiller::isPending);
+    }
+
+    // The Kafka consumers stop with their views and resume from the committed offsets once
+    // the ingestion pipelines are recreated. Flink's direct attributed_events sink cannot be
+    // paused from here; run the first rollout with it stopped, or rows it writes meanwhile
+    // may be counted by both the backfill and the live view.
+    private void pauseRawIngestion() {
+        log.info("Pausing raw ingestion while the aggregates are backfilled");
+        jdbcTemplate.execute("DROP VIEW IF EXISTS clicks_typed_consumer_mv");
+        jdbcTemplate.execute("DROP VIEW IF EXISTS attributed_events_mv");
+    }
+
+    // Runs on the initializer thread so ingestion only resumes once every partition is in.
+    // A failed partition leaves its job pending, and the retry picks up from there.
+    private void runBackfills() {
+        backfiller.resume(DAILY_CLICKS_BACKFILL, "clicks",
+            "INSERT INTO daily_stats_agg " + DAILY_CLICKS_COLUMNS + dailyClicksAggSelect("WHERE _partition_id = ?"));
+        backfiller.resume(DAILY_CONVERSIONS_BACKFILL, "attributed_events",
+            "INSERT INTO daily_stats_agg " + DAILY_CONVERSIONS_COLUMNS + dailyConversionsAggSelect("WHERE _partition_id = ?"));
+        backfiller.resume(LAG_HISTOGRAM_BACKFILL, "attributed_events",
+            "INSERT INTO attribution_lag_histogram " + lagHistogramSelect("WHERE _partition_id = ?"));
+        for (String job : BACKFILLS) {
+            if (backfiller.isPending(job)) {
+                throw new IllegalStateException("Backfill " + job + " did not complete; raw ingestion stays paused");
+            }
+        }
+    }
+
+    private boolean tableExists(String table) {
+        Integer exists = jdbcTemplate.queryForObject("EXISTS TABLE " + table, Integer.class);
+        return exists != null && exists == 1;
+    }
+
+    // Click-to-conversion lag per campaign and day, in log2-scale buckets:
+    // bucket 0 holds lags under one second, bucket k holds [2^(k-1), 2^k) seconds
+    // and the last bucket is open-ended. Each credited click adds its credit to the bucket of
+    // its own lag, so a multi-touch conversion is spread over its clicks and the buckets add
+    // up to the number of conversions. Duplicates are dropped before it as for daily_stats_agg.
+    private void createAttributionLagHistogramMaterializedView() {
+        boolean targetExists = tableExists("attribution_lag_histogram");
+        if (!targetExists) {
+            backfiller.schedule(LAG_HISTOGRAM_BACKFILL);
+        }
+
+        jdbcTemplate.execute("""
+            CREATE TABLE IF NOT EXISTS attribution_lag_histogram (
+                day DateTime,
+                campaign_id LowCardinality(String),
+                lag_bucket UInt8,
+                conversions Float64
+            ) ENGINE = SummingMergeTree()
+            PARTITION BY toYYYYMM(day)
+            ORDER BY (campaign_id, day, lag_bucket)
+            SETTINGS non_replicated_deduplication_window = %d;
+        """.formatted(DEDUPLICATION_WINDOW));
+
+        jdbcTemplate.execute("""
+            CREATE MATERIALIZED VIEW IF NOT EXISTS attribution_lag_histogram_agg_mv TO attribution_lag_histogram AS
+            %s;
+        """.formatted(lagHistogramSelect("")));
+
+        if (!targetExists) {
+            jdbcTemplate.execute("DROP VIEW IF EXISTS attribution_lag_histogram_mv");
+        }
+    }
+
+    private String lagHistogramSelect(String filter) {
+        return """
+            SELECT
+                toStartOfDay(conversion_time) as day,
+                campaign_id,
+                toUInt8(least(
+                    if(conversion_time <= click_time, 0,
+                        floor(log2(dateDiff('second', click_time, conversion_time))) + 1),
+                    %d
+                )) as lag_bucket,
+                sum(credit) as conversions
+            FROM attributed_events
+            %s
+            GROUP BY day, campaign_id, lag_bucket""".formatted(ClickHouseSchema.LAG_HISTOGRAM_MAX_BUCKET, filter);
+    }
 }
@@ -1,5 +1,6 @@
 package com.example.adaggregator.controller;
 
+import com.example.adaggregator.model.LagHistogramResponse;
 import com.example.adaggregator.model.StatsResponse;
 import com.example.adaggregator.service.StatsService;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -30,4 +31,13 @@ public class StatsController {
     ) {
         return statsService.getStats(startDate, endDate, campaignId, interval);
     }
+
+    @GetMapping("/attribution-lag")
+    public Mono<LagHistogramResponse> getAttributionLagHistogram(
+        @RequestParam("start_date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+        @RequestParam("end_date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+        @RequestParam(value = "campaign_id", required = false) String campaignId
+    ) {
+        return statsService.getAttributionLagHistogram(startDate, endDate, campaignId);
+    }
 }
@@ -0,0 +1,31 @@
+package com.example.adaggregator.controller;
+
+import com.example.adaggregator.model.UserJourneyResponse;
+import com.example.adaggregator.service.UserJourneyService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/v1/users")
+public class UserJourneyController {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final UserJourneyService userJourneyService;
+
+    public UserJourneyController(UserJourneyService userJourneyService) {
+        this.userJourneyService = userJourneyService;
+    }
+
+    @GetMapping("/{user_id}/journey")
+    public Mono<UserJourneyResponse> getJourney(
+        @PathVariable("user_id") String userId,
+        @RequestParam(value = "limit", defaultValue = "100") int limit
+    ) {
+        return userJourneyService.getJourney(userId, Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+}
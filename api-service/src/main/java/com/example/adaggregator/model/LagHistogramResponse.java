@@ -0,0 +1,25 @@
+package com.example.adaggregator.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class LagHistogramResponse {
+    private String campaignId;
+    private double totalConversions;
+    private List<LagBucket> buckets;
+
+    @Data
+    @Builder
+    public static class LagBucket {
+        private int bucket;
+        private long lowerBoundSeconds;
+        // null for the open-ended last bucket
+        private Long upperBoundSeconds;
+        // Credit-weighted: a multi-touch conversion is split across the lags of its clicks
+        private double conversions;
+    }
+}
@@ -20,8 +20,11 @@ public class StatsResponse {
         private String campaignId;
         private String source;
         private long clicks;
-        private long conversions;
+        // Credit-weighted: a multi-touch conversion counts once, split across its clicks
+        private double conversions;
         private BigDecimal revenue;
         private double cvr;
+        // Clicks held back by the Flink fraud filter, reported apart from clicks
+        private long quarantinedClicks;
     }
 }
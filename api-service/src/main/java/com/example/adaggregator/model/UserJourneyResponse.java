@@ -0,0 +1,43 @@
+package com.example.adaggregator.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+public class UserJourneyResponse {
+    private String userId;
+    private List<ClickEntry> clicks;
+    private List<ConversionEntry> conversions;
+
+    @Data
+    @Builder
+    public static class ClickEntry {
+        private String eventId;
+        private String campaignId;
+        private String adId;
+        private String source;
+        private Instant clickTime;
+    }
+
+    @Data
+    @Builder
+    public static class ConversionEntry {
+        private String conversionId;
+        private String clickId;
+        private String campaignId;
+        private String adId;
+        private String source;
+        private String conversionType;
+        // This click's share of the conversion value
+        private BigDecimal value;
+        private Instant clickTime;
+        private Instant conversionTime;
+        private String attributionModel;
+        private double credit;
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.adaggregator.repository;
 
+import com.example.adaggregator.config.ClickHouseSchema;
+import com.example.adaggregator.model.LagHistogramResponse;
 import com.example.adaggregator.model.StatsResponse;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
@@ -37,8 +39,9 @@ public class StatsRepository {
                     source,
                     sum(clicks) as clicks,
                     sum(conversions) as conversions,
-                    sum(revenue) as revenue
-                FROM daily_combined_stats_mv
+                    sum(revenue) as revenue,
+                    sum(quarantined_clicks) as quarantined_clicks
+                FROM daily_stats_agg
                 WHERE day >= ? AND day <= ?
             """.formatted(timeBucket));
 
@@ -58,11 +61,50 @@ public class StatsRepository {
         }).subscribeOn(Schedulers.boundedElastic());
     }
 
+    public Mono<List<LagHistogramResponse.LagBucket>> getAttributionLagHistogram(LocalDate startDate, LocalDate endDate, String campaignId) {
+        return Mono.fromCallable(() -> {
+            StringBuilder sql = new StringBuilder("""
+                SELECT
+                    lag_bucket,
+                    sum(conversions) as conversions
+                FROM attribution_lag_histogram
+                WHERE day >= ? AND day <= ?
+            """);
+
+            List<Object> params = new ArrayList<>();
+            params.add(startDate);
+            params.add(endDate);
+
+            if (campaignId != null) {
+                sql.append(" AND campaign_id = ?");
+                params.add(campaignId);
+            }
+
+            sql.append(" GROUP BY lag_bucket");
+            sql.append(" ORDER BY lag_bucket");
+
+            return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> mapLagBucket(rs), params.toArray());
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private LagHistogramResponse.LagBucket mapLagBucket(ResultSet rs) throws SQLException {
+        int bucket = rs.getInt("lag_bucket");
+        long lowerBound = bucket == 0 ? 0 : 1L << (bucket - 1);
+        Long upperBound = bucket >= ClickHouseSchema.LAG_HISTOGRAM_MAX_BUCKET ? null : 1L << bucket;
+
+        return LagHistogramResponse.LagBucket.builder()
+            .bucket(bucket)
+            .lowerBoundSeconds(lowerBound)
+            .upperBoundSeconds(upperBound)
+            .conversions(rs.getDouble("conversions"))
+            .build();
+    }
+
     private StatsResponse.StatsEntry mapRow(ResultSet rs) throws SQLException {
         long clicks = rs.getLong("clicks");
-        long conversions = rs.getLong("conversions");
+        double conversions = rs.getDouble("conversions");
         BigDecimal revenue = rs.getBigDecimal("revenue");
-        double cvr = clicks > 0 ? (double) conversions / clicks : 0.0;
+        double cvr = clicks > 0 ? conversions / clicks : 0.0;
 
         return StatsResponse.StatsEntry.builder()
             .date(rs.getDate("time_bucket").toLocalDate())
@@ -72,6 +114,7 @@ public class StatsRepository {
             .conversions(conversions)
             .revenue(revenue)
             .cvr(cvr)
+            .quarantinedClicks(rs.getLong("quarantined_clicks"))
             .build();
     }
 }
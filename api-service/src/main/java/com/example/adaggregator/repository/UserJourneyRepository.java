@@ -0,0 +1,89 @@
+package com.example.adaggregator.repository;
+
+import com.example.adaggregator.model.UserJourneyResponse;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+@Repository
+public class UserJourneyRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserJourneyRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Filtering on user_id alone lets ClickHouse answer from the user_journey projection.
+    // LIMIT BY hides replayed rows that ReplacingMergeTree has not merged away yet.
+    public Mono<List<UserJourneyResponse.ClickEntry>> getClicks(String userId, int limit) {
+        return Mono.fromCallable(() -> jdbcTemplate.query("""
+                SELECT
+                    event_id,
+                    campaign_id,
+                    ad_id,
+                    source,
+                    click_time
+                FROM clicks
+                WHERE user_id = ?
+                ORDER BY click_time DESC
+                LIMIT 1 BY event_id
+                LIMIT ?
+            """, (rs, rowNum) -> mapClick(rs), userId, limit)
+        ).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    public Mono<List<UserJourneyResponse.ConversionEntry>> getConversions(String userId, int limit) {
+        return Mono.fromCallable(() -> jdbcTemplate.query("""
+                SELECT
+                    conversion_id,
+                    click_id,
+                    campaign_id,
+                    ad_id,
+                    source,
+                    conversion_type,
+                    value,
+                    click_time,
+                    conversion_time,
+                    attribution_model,
+                    credit
+                FROM attributed_events
+                WHERE user_id = ?
+                ORDER BY conversion_time DESC
+                LIMIT 1 BY conversion_id, click_id
+                LIMIT ?
+            """, (rs, rowNum) -> mapConversion(rs), userId, limit)
+        ).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private UserJourneyResponse.ClickEntry mapClick(ResultSet rs) throws SQLException {
+        return UserJourneyResponse.ClickEntry.builder()
+            .eventId(rs.getString("event_id"))
+            .campaignId(rs.getString("campaign_id"))
+            .adId(rs.getString("ad_id"))
+            .source(rs.getString("source"))
+            .clickTime(rs.getTimestamp("click_time").toInstant())
+            .build();
+    }
+
+    private UserJourneyResponse.ConversionEntry mapConversion(ResultSet rs) throws SQLException {
+        return UserJourneyResponse.ConversionEntry.builder()
+            .conversionId(rs.getString("conversion_id"))
+            .clickId(rs.getString("click_id"))
+            .campaignId(rs.getString("campaign_id"))
+            .adId(rs.getString("ad_id"))
+            .source(rs.getString("source"))
+            .conversionType(rs.getString("conversion_type"))
+            .value(rs.getBigDecimal("value"))
+            .clickTime(rs.getTimestamp("click_time").toInstant())
+            .conversionTime(rs.getTimestamp("conversion_time").toInstant())
+            .attributionModel(rs.getString("attribution_model"))
+            .credit(rs.getDouble("credit"))
+            .build();
+    }
+}
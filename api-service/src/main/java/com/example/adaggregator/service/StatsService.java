@@ -1,5 +1,6 @@
 package com.example.adaggregator.service;
 
+import com.example.adaggregator.model.LagHistogramResponse;
 import com.example.adaggregator.model.StatsResponse;
 import com.example.adaggregator.repository.StatsRepository;
 import org.springframework.stereotype.Service;
@@ -25,4 +26,13 @@ public class StatsService {
                 .data(statsEntries)
                 .build());
     }
+
+    public Mono<LagHistogramResponse> getAttributionLagHistogram(LocalDate startDate, LocalDate endDate, String campaignId) {
+        return statsRepository.getAttributionLagHistogram(startDate, endDate, campaignId)
+            .map(buckets -> LagHistogramResponse.builder()
+                .campaignId(campaignId)
+                .totalConversions(buckets.stream().mapToDouble(LagHistogramResponse.LagBucket::getConversions).sum())
+                .buckets(buckets)
+                .build());
+    }
 }
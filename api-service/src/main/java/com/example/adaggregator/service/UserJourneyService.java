@@ -0,0 +1,28 @@
+package com.example.adaggregator.service;
+
+import com.example.adaggregator.model.UserJourneyResponse;
+import com.example.adaggregator.repository.UserJourneyRepository;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+@Service
+public class UserJourneyService {
+
+    private final UserJourneyRepository userJourneyRepository;
+
+    public UserJourneyService(UserJourneyRepository userJourneyRepository) {
+        this.userJourneyRepository = userJourneyRepository;
+    }
+
+    public Mono<UserJourneyResponse> getJourney(String userId, int limit) {
+        return Mono.zip(
+                userJourneyRepository.getClicks(userId, limit),
+                userJourneyRepository.getConversions(userId, limit)
+            )
+            .map(tuple -> UserJourneyResponse.builder()
+                .userId(userId)
+                .clicks(tuple.getT1())
+                .conversions(tuple.getT2())
+                .build());
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.adaggregator.config;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.clickhouse.ClickHouseContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares how fast the two clicks pipelines turn raw-events messages into click rows: the
+ * original one, which read each message as one LineAsString blob and pulled every field out
+ * with visitParamExtract*, and the typed JSONEachRow one that raw_clicks_kafka uses now.
+ *
+ * <p>Both read the same file of JSON lines shaped like the topic, so only the format and the
+ * parsing differ; the rows go to a Null table so storage does not weigh in. The Kafka engine's
+ * consumer count and block size are not covered: they need a broker and mainly change how
+ * many such parsers run at once. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+class ClickIngestBenchmark {
+
+    @Container
+    private static final ClickHouseContainer CLICKHOUSE = new ClickHouseContainer("clickhouse/clickhouse-server:24.8");
+
+    // One in five events is a conversion, which both pipelines read and discard
+    private static final long EVENTS = 5_000_000;
+    private static final long CLICKS = EVENTS - EVENTS / 5;
+    private static final int RUNS = 3;
+
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void writeEvents() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+            CLICKHOUSE.getJdbcUrl(), CLICKHOUSE.getUsername(), CLICKHOUSE.getPassword()));
+        jdbcTemplate.execute("""
+            CREATE TABLE clicks_sink (
+                event_id String,
+                user_id String,
+                campaign_id String,
+                ad_id String,
+                source String,
+                click_time DateTime
+            ) ENGINE = Null
+        """);
+        // Clicks carry a metadata object, as the producer sends them
+        jdbcTemplate.execute("""
+            INSERT INTO FUNCTION file('raw-events.jsonl', 'LineAsString', 'line String')
+            SELECT if(number %% 5 = 4,
+                format('{{"event_type":"conversion","event_id":"conv-{}","user_id":"user-{}","campaign_id":"campaign-{}","timestamp":{},"type":"purchase","value":19.99,"source":"app"}}',
+                    toString(number), toString(number %% 100000), toString(number %% 50), toString(1700000000000 + number * 10)),
+                format('{{"event_type":"click","event_id":"click-{}","user_id":"user-{}","campaign_id":"campaign-{}","ad_id":"ad-{}","source":"{}","timestamp":{},"metadata":{{"device":"mobile","browser":"chrome"}}}}',
+                    toString(number), toString(number %% 100000), toString(number %% 50), toString(number %% 400),
+                    ['google', 'facebook', 'tiktok'][number %% 3 + 1], toString(1700000000000 + number * 10)))
+            FROM numbers(%d)
+            SETTINGS engine_file_truncate_on_insert = 1
+        """.formatted(EVENTS));
+    }
+
+    @Test
+    void compareLineAsStringWithTypedJsonEachRow() {
+        String lineAsString = """
+            INSERT INTO clicks_sink
+            SELECT
+                visitParamExtractString(line, 'event_id') as event_id,
+                visitParamExtractString(line, 'user_id') as user_id,
+                visitParamExtractString(line, 'campaign_id') as campaign_id,
+                visitParamExtractString(line, 'ad_id') as ad_id,
+                visitParamExtractString(line, 'source') as source,
+                toDateTime(visitParamExtractUInt(line, 'timestamp') / 1000) as click_time
+            FROM file('raw-events.jsonl', 'LineAsString', 'line String')
+            WHERE visitParamExtractString(line, 'event_type') = 'click'
+        """;
+        // Columns and format settings of raw_clicks_kafka
+        String typedJsonEachRow = """
+            INSERT INTO clicks_sink
+            SELECT
+                event_id,
+                user_id,
+                campaign_id,
+                ad_id,
+                source,
+                toDateTime(intDiv(timestamp, 1000)) as click_time
+            FROM file('raw-events.jsonl', 'JSONEachRow',
+                'event_type LowCardinality(String), event_id String, user_id String, campaign_id String,
+                 ad_id String, source String, timestamp UInt64')
+            WHERE event_type = 'click'
+            SETTINGS input_format_skip_unknown_fields = 1, input_format_parallel_parsing = 1
+        """;
+
+        assertThat(countClicks("LineAsString", "visitParamExtractString(line, 'event_type') = 'click'"))
+            .isEqualTo(CLICKS);
+        assertThat(countClicks("JSONEachRow", "event_type = 'click'")).isEqualTo(CLICKS);
+
+        double before = clicksPerSecond(lineAsString);
+        double after = clicksPerSecond(typedJsonEachRow);
+        System.out.printf("LineAsString + visitParamExtract: %,.0f clicks/s%n", before);
+        System.out.printf("Typed JSONEachRow:                %,.0f clicks/s (%.2fx)%n", after, after / before);
+    }
+
+    private static long countClicks(String format, String clickFilter) {
+        String structure = "LineAsString".equals(format) ? "line String" : "event_type String";
+        Long clicks = jdbcTemplate.queryForObject(
+            "SELECT count() FROM file('raw-events.jsonl', '%s', '%s') WHERE %s SETTINGS input_format_skip_unknown_fields = 1"
+                .formatted(format, structure, clickFilter),
+            Long.class);
+        return clicks == null ? 0 : clicks;
+    }
+
+    // Best of a few runs after a warm-up, so the file is in the page cache for both
+    private static double clicksPerSecond(String insertSql) {
+        jdbcTemplate.execute(insertSql);
+        long bestNanos = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            jdbcTemplate.execute(insertSql);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+        return CLICKS / (bestNanos / 1e9);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.adaggregator.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MaterializedViewBackfillerTest {
+
+    private static final String INSERT_SQL = "INSERT INTO target SELECT * FROM source WHERE _partition_id = ?";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private MaterializedViewBackfiller backfiller;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        backfiller = new MaterializedViewBackfiller(jdbcTemplate, meterRegistry);
+    }
+
+    @Test
+    void resume_shouldSkipCompletedPartitions() {
+        when(jdbcTemplate.queryForList(contains("SELECT status"), eq(String.class), eq("job-1"), eq("")))
+            .thenReturn(List.of("pending"));
+        when(jdbcTemplate.queryForList(contains("FROM schema_backfills"), eq(String.class), eq("job-1")))
+            .thenReturn(List.of("202401", "202402", "202403"));
+        when(jdbcTemplate.queryForList(contains("SELECT partition_id"), eq(String.class), eq("job-1"), eq("done")))
+            .thenReturn(List.of("202401"));
+        when(jdbcTemplate.update(startsWith(INSERT_SQL), anyString())).thenReturn(10, 5);
+
+        backfiller.resume("job-1", "source", INSERT_SQL);
+
+        verify(jdbcTemplate, never()).update(insertFor("202401"), "202401");
+        verify(jdbcTemplate).update(anyString(), eq("job-1"), eq("202402"), eq("done"));
+        verify(jdbcTemplate).update(anyString(), eq("job-1"), eq("202403"), eq("done"));
+        verify(jdbcTemplate).update(anyString(), eq("job-1"), eq(""), eq("done"));
+
+        assertThat(meterRegistry.get("clickhouse.backfill.partitions.completed").tag("job", "job-1").gauge().value())
+            .isEqualTo(3.0);
+        assertThat(meterRegistry.get("clickhouse.backfill.rows").tag("job", "job-1").counter().count())
+            .isEqualTo(15.0);
+    }
+
+    @Test
+    void resume_shouldRecordSourcePartitionsOnFirstRun() {
+        when(jdbcTemplate.queryForList(contains("SELECT status"), eq(String.class), eq("job-1"), eq("")))
+            .thenReturn(List.of("pending"));
+        when(jdbcTemplate.queryForList(contains("FROM schema_backfills"), eq(String.class), eq("job-1")))
+            .thenReturn(List.of());
+        when(jdbcTemplate.queryForList(contains("FROM system.parts"), eq(String.class), eq("source")))
+            .thenReturn(List.of("202401", "202402"));
+        when(jdbcTemplate.queryForList(contains("SELECT partition_id"), eq(String.class), eq("job-1"), eq("done")))
+            .thenReturn(List.of());
+
+        backfiller.resume("job-1", "source", INSERT_SQL);
+
+        verify(jdbcTemplate).update(anyString(), eq("job-1"), eq("202401"), eq("pending"));
+        verify(jdbcTemplate).update(anyString(), eq("job-1"), eq("202402"), eq("pending"));
+        verify(jdbcTemplate).update(insertFor("202401"), "202401");
+        verify(jdbcTemplate).update(insertFor("202402"), "202402");
+        verify(jdbcTemplate).update(anyString(), eq("job-1"), eq(""), eq("done"));
+    }
+
+    @Test
+    void resume_shouldNotBackfillPartitionsCreatedAfterCutover() {
+        when(jdbcTemplate.queryForList(contains("SELECT status"), eq(String.class), eq("job-1"), eq("")))
+            .thenReturn(List.of("pending"));
+        when(jdbcTemplate.queryForList(contains("FROM schema_backfills"), eq(String.class), eq("job-1")))
+            .thenReturn(List.of("202401"));
+        when(jdbcTemplate.queryForList(contains("SELECT partition_id"), eq(String.class), eq("job-1"), eq("done")))
+            .thenReturn(List.of());
+
+        backfiller.resume("job-1", "source", INSERT_SQL);
+
+        verify(jdbcTemplate, never()).queryForList(contains("FROM system.parts"), eq(String.class), anyString());
+        verify(jdbcTemplate).update(insertFor("202401"), "202401");
+        verify(jdbcTemplate, never()).update(insertFor("202402"), "202402");
+    }
+
+    @Test
+    void resume_shouldTagEachPartitionInsertWithItsOwnToken() {
+        when(jdbcTemplate.queryForList(contains("SELECT status"), eq(String.class), eq("job-1"), eq("")))
+            .thenReturn(List.of("pending"));
+        when(jdbcTemplate.queryForList(contains("FROM schema_backfills"), eq(String.class), eq("job-1")))
+            .thenReturn(List.of("202401"));
+        when(jdbcTemplate.queryForList(contains("SELECT partition_id"), eq(String.class), eq("job-1"), eq("done")))
+            .thenReturn(List.of());
+
+        backfiller.resume("job-1", "source", INSERT_SQL);
+
+        // A re-run of the same partition sends the same token, so its already written blocks are dropped
+        verify(jdbcTemplate).update(
+            INSERT_SQL + " SETTINGS insert_deduplication_token = 'job-1/202401'", "202401");
+    }
+
+    @Test
+    void resume_shouldDoNothingWhenJobNotPending() {
+        when(jdbcTemplate.queryForList(contains("SELECT status"), eq(String.class), eq("job-1"), eq("")))
+            .thenReturn(List.of("done"));
+
+        backfiller.resume("job-1", "source", INSERT_SQL);
+
+        verify(jdbcTemplate, never()).update(startsWith(INSERT_SQL), anyString());
+    }
+
+    private static String insertFor(String partition) {
+        return MaterializedViewBackfiller.withDeduplicationToken(INSERT_SQL, "job-1", partition);
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.adaggregator.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.clickhouse.ClickHouseContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Compares the original clicks layout (MergeTree, daily partitions, plain Strings, default
+ * codecs) with the one SchemaInitializer creates now, on the same 90 days of clicks: disk
+ * size, part and partition counts, and a month's scan for one campaign.
+ *
+ * <p>Sizes are summed over the table's columns, so the lookup indexes and the user_journey
+ * projection of the current table are left out; they buy user lookups, not compression.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+class StorageLayoutBenchmark {
+
+    @Container
+    private static final ClickHouseContainer CLICKHOUSE = new ClickHouseContainer("clickhouse/clickhouse-server:24.8");
+
+    private static final long CLICKS = 20_000_000;
+    private static final int DAYS = 90;
+    private static final int RUNS = 5;
+
+    private static JdbcTemplate jdbcTemplate;
+    private static SchemaInitializer schemaInitializer;
+
+    @BeforeAll
+    static void loadClicks() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+            CLICKHOUSE.getJdbcUrl(), CLICKHOUSE.getUsername(), CLICKHOUSE.getPassword()));
+        // Unset properties leave both raw Kafka consumers off and keep rows forever
+        schemaInitializer = new SchemaInitializer(jdbcTemplate,
+            new MaterializedViewBackfiller(jdbcTemplate, new SimpleMeterRegistry()));
+        schemaInitializer.run();
+        await().atMost(Duration.ofMinutes(1)).until(schemaInitializer::isReady);
+
+        jdbcTemplate.execute("""
+            CREATE TABLE clicks_legacy (
+                event_id String,
+                user_id String,
+                campaign_id String,
+                ad_id String,
+                source String,
+                click_time DateTime
+            ) ENGINE = MergeTree()
+            PARTITION BY toYYYYMMDD(click_time)
+            ORDER BY (campaign_id, source, click_time)
+        """);
+        jdbcTemplate.execute("""
+            INSERT INTO clicks_legacy
+            SELECT
+                concat('click-', toString(number)),
+                concat('user-', toString(cityHash64(number) %% 1000000)),
+                concat('campaign-', toString(number %% 50)),
+                concat('ad-', toString(number %% 400)),
+                ['google', 'facebook', 'tiktok', 'bing'][number %% 4 + 1],
+                toDateTime('2026-01-01 00:00:00') + intDiv(number * %d, %d)
+            FROM numbers(%d)
+            SETTINGS max_partitions_per_insert_block = 1000
+        """.formatted(DAYS * 86400L, CLICKS, CLICKS));
+        jdbcTemplate.execute("INSERT INTO clicks SELECT * FROM clicks_legacy");
+        jdbcTemplate.execute("OPTIMIZE TABLE clicks_legacy FINAL");
+        jdbcTemplate.execute("OPTIMIZE TABLE clicks FINAL");
+    }
+
+    @AfterAll
+    static void stopInitializer() {
+        schemaInitializer.shutdown();
+    }
+
+    @Test
+    void compareLegacyAndCurrentClicksLayout() {
+        Map<String, Object> before = storage("clicks_legacy");
+        Map<String, Object> after = storage("clicks");
+        assertThat(after.get("rows")).isEqualTo(before.get("rows"));
+        assertThat(((Number) before.get("partitions")).intValue()).isEqualTo(DAYS);
+        assertThat(((Number) after.get("partitions")).intValue()).isEqualTo(3);
+
+        printStorage("Legacy layout ", before);
+        printStorage("Current layout", after);
+        jdbcTemplate.queryForList("""
+            SELECT name,
+                sumIf(data_compressed_bytes, table = 'clicks_legacy') AS before,
+                sumIf(data_compressed_bytes, table = 'clicks') AS after
+            FROM system.columns
+            WHERE database = currentDatabase() AND table IN ('clicks_legacy', 'clicks')
+            GROUP BY name
+            ORDER BY name
+        """).forEach(column -> System.out.printf("  %-12s %,15d -> %,15d bytes%n",
+            column.get("name"), column.get("before"), column.get("after")));
+
+        printScan("Legacy layout ", scan("clicks_legacy"));
+        printScan("Current layout", scan("clicks"));
+    }
+
+    private static Map<String, Object> storage(String table) {
+        return jdbcTemplate.queryForMap("""
+            SELECT
+                (SELECT sum(rows) FROM system.parts
+                    WHERE database = currentDatabase() AND table = ? AND active) AS rows,
+                (SELECT count() FROM system.parts
+                    WHERE database = currentDatabase() AND table = ? AND active) AS parts,
+                (SELECT uniqExact(partition_id) FROM system.parts
+                    WHERE database = currentDatabase() AND table = ? AND active) AS partitions,
+                (SELECT sum(data_compressed_bytes) FROM system.columns
+                    WHERE database = currentDatabase() AND table = ?) AS compressed,
+                (SELECT sum(data_uncompressed_bytes) FROM system.columns
+                    WHERE database = currentDatabase() AND table = ?) AS uncompressed
+        """, table, table, table, table, table);
+    }
+
+    // Daily clicks per source for one campaign over a month, as a report would read them
+    // without the aggregates. Best of a few runs; rows and bytes read come from the query log.
+    private static Map<String, Object> scan(String table) {
+        String comment = "storage-layout-benchmark-" + table;
+        String query = """
+            SELECT toDate(click_time) AS day, source, count() AS clicks
+            FROM %s
+            WHERE campaign_id = 'campaign-7'
+              AND click_time >= '2026-02-01 00:00:00' AND click_time < '2026-03-01 00:00:00'
+            GROUP BY day, source
+            SETTINGS log_comment = '%s', use_query_cache = 0
+        """.formatted(table, comment);
+        for (int run = 0; run <= RUNS; run++) {
+            jdbcTemplate.queryForList(query);
+        }
+        jdbcTemplate.execute("SYSTEM FLUSH LOGS");
+        return jdbcTemplate.queryForMap("""
+            SELECT min(query_duration_ms) AS duration_ms, any(read_rows) AS read_rows, any(read_bytes) AS read_bytes
+            FROM system.query_log
+            WHERE type = 'QueryFinish' AND log_comment = ?
+        """, comment);
+    }
+
+    private static void printStorage(String label, Map<String, Object> storage) {
+        System.out.printf("%s: %,d rows in %d parts / %d partitions, %,d bytes compressed (%,d uncompressed)%n",
+            label, storage.get("rows"), storage.get("parts"), storage.get("partitions"),
+            storage.get("compressed"), storage.get("uncompressed"));
+    }
+
+    private static void printScan(String label, Map<String, Object> scan) {
+        System.out.printf("%s scan: %d ms, %,d rows, %,d bytes read%n",
+            label, scan.get("duration_ms"), scan.get("read_rows"), scan.get("read_bytes"));
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.adaggregator.controller;
 
+import com.example.adaggregator.model.LagHistogramResponse;
 import com.example.adaggregator.model.StatsResponse;
 import com.example.adaggregator.service.StatsService;
 import org.junit.jupiter.api.Test;
@@ -15,6 +16,7 @@ import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(StatsController.class)
@@ -65,4 +67,37 @@ class StatsControllerTest {
             .jsonPath("$.data[0].campaignId").isEqualTo(campaignId)
             .jsonPath("$.data[0].clicks").isEqualTo(100);
     }
+
+    @Test
+    void getAttributionLagHistogram_shouldReturnBuckets() {
+        LocalDate startDate = LocalDate.of(2023, 1, 1);
+        LocalDate endDate = LocalDate.of(2023, 1, 31);
+
+        LagHistogramResponse mockResponse = LagHistogramResponse.builder()
+            .totalConversions(5)
+            .buckets(List.of(
+                LagHistogramResponse.LagBucket.builder()
+                    .bucket(12)
+                    .lowerBoundSeconds(2048)
+                    .upperBoundSeconds(4096L)
+                    .conversions(5)
+                    .build()
+            ))
+            .build();
+
+        when(statsService.getAttributionLagHistogram(eq(startDate), eq(endDate), isNull()))
+            .thenReturn(Mono.just(mockResponse));
+
+        webTestClient.get()
+            .uri(uriBuilder -> uriBuilder.path("/api/v1/stats/attribution-lag")
+                .queryParam("start_date", startDate.toString())
+                .queryParam("end_date", endDate.toString())
+                .build())
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.totalConversions").isEqualTo(5.0)
+            .jsonPath("$.buckets[0].lowerBoundSeconds").isEqualTo(2048)
+            .jsonPath("$.buckets[0].conversions").isEqualTo(5.0);
+    }
 }
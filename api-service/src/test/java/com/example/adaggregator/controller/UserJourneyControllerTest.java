@@ -0,0 +1,68 @@
+package com.example.adaggregator.controller;
+
+import com.example.adaggregator.model.UserJourneyResponse;
+import com.example.adaggregator.service.UserJourneyService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(UserJourneyController.class)
+class UserJourneyControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private UserJourneyService userJourneyService;
+
+    @Test
+    void getJourney_shouldReturnClicksAndConversions() {
+        UserJourneyResponse mockResponse = UserJourneyResponse.builder()
+            .userId("user-1")
+            .clicks(List.of(
+                UserJourneyResponse.ClickEntry.builder()
+                    .eventId("click-1")
+                    .campaignId("camp-1")
+                    .adId("ad-1")
+                    .source("google")
+                    .clickTime(Instant.ofEpochSecond(1000))
+                    .build()
+            ))
+            .conversions(List.of())
+            .build();
+
+        when(userJourneyService.getJourney(eq("user-1"), eq(100)))
+            .thenReturn(Mono.just(mockResponse));
+
+        webTestClient.get()
+            .uri("/api/v1/users/user-1/journey")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.userId").isEqualTo("user-1")
+            .jsonPath("$.clicks[0].eventId").isEqualTo("click-1")
+            .jsonPath("$.conversions").isEmpty();
+    }
+
+    @Test
+    void getJourney_shouldCapLimit() {
+        when(userJourneyService.getJourney(eq("user-1"), eq(1000)))
+            .thenReturn(Mono.just(UserJourneyResponse.builder().userId("user-1").build()));
+
+        webTestClient.get()
+            .uri("/api/v1/users/user-1/journey?limit=50000")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.userId").isEqualTo("user-1");
+    }
+}
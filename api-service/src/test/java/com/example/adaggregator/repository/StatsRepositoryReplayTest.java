@@ -0,0 +1,110 @@
+package com.example.adaggregator.repository;
+
+import com.example.adaggregator.config.MaterializedViewBackfiller;
+import com.example.adaggregator.config.SchemaInitializer;
+import com.example.adaggregator.model.LagHistogramResponse;
+import com.example.adaggregator.model.StatsResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.clickhouse.ClickHouseContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+// Runs the production schema on a real ClickHouse; skipped where Docker is unavailable
+@Testcontainers(disabledWithoutDocker = true)
+class StatsRepositoryReplayTest {
+
+    @Container
+    private static final ClickHouseContainer CLICKHOUSE = new ClickHouseContainer("clickhouse/clickhouse-server:24.8");
+
+    private static final LocalDate DAY = LocalDate.of(2024, 1, 15);
+
+    private static JdbcTemplate jdbcTemplate;
+    private static SchemaInitializer schemaInitializer;
+    private static StatsRepository statsRepository;
+
+    @BeforeAll
+    static void createSchema() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+            CLICKHOUSE.getJdbcUrl(), CLICKHOUSE.getUsername(), CLICKHOUSE.getPassword()));
+        // Unset properties leave both raw Kafka consumers off and keep rows forever
+        schemaInitializer = new SchemaInitializer(jdbcTemplate,
+            new MaterializedViewBackfiller(jdbcTemplate, new SimpleMeterRegistry()));
+        schemaInitializer.run();
+        await().atMost(Duration.ofMinutes(1)).until(schemaInitializer::isReady);
+        statsRepository = new StatsRepository(jdbcTemplate);
+    }
+
+    @AfterAll
+    static void stopInitializer() {
+        schemaInitializer.shutdown();
+    }
+
+    @Test
+    void getStats_shouldReturnSameTotalsWhenInsertBlocksAreRepeated() {
+        // Given: Two clicks and a conversion credited to both of them
+        insertEvents();
+        List<StatsResponse.StatsEntry> first = statsRepository.getStats(DAY, DAY, "camp-replay", "daily").block();
+
+        // When: The same blocks are inserted again, as a sink retry or a re-run backfill would
+        insertEvents();
+        List<StatsResponse.StatsEntry> replayed = statsRepository.getStats(DAY, DAY, "camp-replay", "daily").block();
+
+        // Then: The totals are unchanged
+        assertThat(first).hasSize(1);
+        assertThat(first.get(0).getClicks()).isEqualTo(2L);
+        assertThat(first.get(0).getConversions()).isEqualTo(1.0);
+        assertThat(first.get(0).getRevenue()).isEqualByComparingTo("10.00");
+        assertThat(replayed).isEqualTo(first);
+    }
+
+    @Test
+    void getAttributionLagHistogram_shouldSpreadConversionByCreditWhenInsertBlocksAreRepeated() {
+        // Given: The conversion's two clicks fall into different lag buckets
+        insertEvents();
+
+        // When: The same blocks are inserted again
+        insertEvents();
+        List<LagHistogramResponse.LagBucket> buckets =
+            statsRepository.getAttributionLagHistogram(DAY, DAY, "camp-replay").block();
+
+        // Then: Each bucket holds half the conversion, counted once
+        assertThat(buckets).extracting(LagHistogramResponse.LagBucket::getConversions)
+            .containsExactly(0.5, 0.5);
+    }
+
+    // Tokens as Flink's sink and the backfill send them. The container lacks the server profile
+    // from clickhouse/users.d, so the inserts enable deduplication in dependent views themselves.
+    private static void insertEvents() {
+        jdbcTemplate.execute("""
+            INSERT INTO clicks (event_id, user_id, campaign_id, ad_id, source, click_time)
+            SETTINGS insert_deduplication_token = 'replay-clicks',
+                deduplicate_blocks_in_dependent_materialized_views = 1
+            VALUES
+                ('click-1', 'user-1', 'camp-replay', 'ad-1', 'google', '2024-01-15 09:00:00'),
+                ('click-2', 'user-1', 'camp-replay', 'ad-2', 'google', '2024-01-15 10:00:00')
+        """);
+        jdbcTemplate.execute("""
+            INSERT INTO attributed_events (conversion_id, click_id, user_id, ad_id, campaign_id, source,
+                conversion_type, value, click_time, conversion_time, attribution_model, credit)
+            SETTINGS insert_deduplication_token = 'replay-conversions',
+                deduplicate_blocks_in_dependent_materialized_views = 1
+            VALUES
+                ('conv-1', 'click-1', 'user-1', 'ad-1', 'camp-replay', 'google', 'purchase', 5.00,
+                    '2024-01-15 09:00:00', '2024-01-15 11:00:00', 'linear', 0.5),
+                ('conv-1', 'click-2', 'user-1', 'ad-2', 'camp-replay', 'google', 'purchase', 5.00,
+                    '2024-01-15 10:00:00', '2024-01-15 11:00:00', 'linear', 0.5)
+        """);
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.adaggregator.repository;
 
+import com.example.adaggregator.config.ClickHouseSchema;
+import com.example.adaggregator.model.LagHistogramResponse;
 import com.example.adaggregator.model.StatsResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -61,6 +63,30 @@ class StatsRepositoryTest {
         assertThat(sql).contains("GROUP BY time_bucket");
     }
 
+    @Test
+    void getStats_shouldSumPreDeduplicatedAggregatesWithoutFinal() {
+        LocalDate startDate = LocalDate.of(2023, 1, 1);
+        LocalDate endDate = LocalDate.of(2023, 1, 31);
+
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any()))
+            .thenReturn(Collections.emptyList());
+
+        StepVerifier.create(statsRepository.getStats(startDate, endDate, null, "daily"))
+            .expectNext(Collections.emptyList())
+            .verifyComplete();
+
+        ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).query(sqlCaptor.capture(), any(RowMapper.class), any(), any());
+
+        // Repeated insert blocks never reach daily_stats_agg, and unmerged parts sum correctly
+        String sql = sqlCaptor.getValue();
+        assertThat(sql).contains("sum(clicks) as clicks");
+        assertThat(sql).contains("sum(conversions) as conversions");
+        assertThat(sql).contains("sum(revenue) as revenue");
+        assertThat(sql).contains("sum(quarantined_clicks) as quarantined_clicks");
+        assertThat(sql).doesNotContain("FINAL");
+    }
+
     @Test
     void getStats_shouldGenerateCorrectSqlForWeeklyInterval() {
         LocalDate startDate = LocalDate.of(2023, 1, 1);
@@ -114,8 +140,9 @@ class StatsRepositoryTest {
         when(rs.getDate("time_bucket")).thenReturn(Date.valueOf(startDate));
         when(rs.getString("campaign_id")).thenReturn("camp-1");
         when(rs.getString("source")).thenReturn("google");
-        when(rs.getLong("conversions")).thenReturn(10L);
+        when(rs.getDouble("conversions")).thenReturn(10.0);
         when(rs.getBigDecimal("revenue")).thenReturn(BigDecimal.valueOf(100.00));
+        when(rs.getLong("quarantined_clicks")).thenReturn(3L);
 
         // Mock JdbcTemplate to execute the RowMapper
         when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any()))
@@ -129,9 +156,67 @@ class StatsRepositoryTest {
                 StatsResponse.StatsEntry entry = entries.get(0);
                 return entry.getDate().equals(startDate) &&
                     entry.getCampaignId().equals("camp-1") &&
-                    entry.getConversions() == 10L &&
-                    entry.getRevenue().compareTo(BigDecimal.valueOf(100.00)) == 0;
+                    entry.getConversions() == 10.0 &&
+                    entry.getRevenue().compareTo(BigDecimal.valueOf(100.00)) == 0 &&
+                    entry.getQuarantinedClicks() == 3L;
             })
             .verifyComplete();
     }
+
+    @Test
+    void getAttributionLagHistogram_shouldMergeBucketsAcrossRange() {
+        LocalDate startDate = LocalDate.of(2023, 1, 1);
+        LocalDate endDate = LocalDate.of(2023, 1, 31);
+
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any(), anyString()))
+            .thenReturn(Collections.emptyList());
+
+        StepVerifier.create(statsRepository.getAttributionLagHistogram(startDate, endDate, "camp-1"))
+            .expectNext(Collections.emptyList())
+            .verifyComplete();
+
+        ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).query(sqlCaptor.capture(), any(RowMapper.class), any(), any(), anyString());
+
+        String sql = sqlCaptor.getValue();
+        assertThat(sql).contains("FROM attribution_lag_histogram");
+        assertThat(sql).contains("sum(conversions) as conversions");
+        assertThat(sql).contains("GROUP BY lag_bucket");
+        assertThat(sql).contains("AND campaign_id = ?");
+    }
+
+    @Test
+    void getAttributionLagHistogram_shouldMapBucketBounds() throws SQLException {
+        LocalDate startDate = LocalDate.of(2023, 1, 1);
+        LocalDate endDate = LocalDate.of(2023, 1, 1);
+
+        ResultSet first = mock(ResultSet.class);
+        when(first.getInt("lag_bucket")).thenReturn(0);
+        when(first.getDouble("conversions")).thenReturn(3.0);
+
+        ResultSet middle = mock(ResultSet.class);
+        when(middle.getInt("lag_bucket")).thenReturn(12);
+        when(middle.getDouble("conversions")).thenReturn(6.5);
+
+        ResultSet last = mock(ResultSet.class);
+        when(last.getInt("lag_bucket")).thenReturn(ClickHouseSchema.LAG_HISTOGRAM_MAX_BUCKET);
+        when(last.getDouble("conversions")).thenReturn(0.5);
+
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any()))
+            .thenAnswer(invocation -> {
+                RowMapper<LagHistogramResponse.LagBucket> mapper = invocation.getArgument(1);
+                return List.of(mapper.mapRow(first, 1), mapper.mapRow(middle, 2), mapper.mapRow(last, 3));
+            });
+
+        StepVerifier.create(statsRepository.getAttributionLagHistogram(startDate, endDate, null))
+            .expectNextMatches(buckets ->
+                buckets.get(0).getLowerBoundSeconds() == 0 &&
+                buckets.get(0).getUpperBoundSeconds() == 1L &&
+                buckets.get(1).getLowerBoundSeconds() == 2048L &&
+                buckets.get(1).getUpperBoundSeconds() == 4096L &&
+                buckets.get(1).getConversions() == 6.5 &&
+                buckets.get(2).getUpperBoundSeconds() == null
+            )
+            .verifyComplete();
+    }
 }
@@ -0,0 +1,106 @@
+package com.example.adaggregator.repository;
+
+import com.example.adaggregator.model.UserJourneyResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserJourneyRepositoryTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private UserJourneyRepository userJourneyRepository;
+
+    @BeforeEach
+    void setUp() {
+        userJourneyRepository = new UserJourneyRepository(jdbcTemplate);
+    }
+
+    @Test
+    void getClicks_shouldFilterByUserOnly() {
+        when(jdbcTemplate.query(any(String.class), any(RowMapper.class), eq("user-1"), eq(50)))
+            .thenReturn(Collections.emptyList());
+
+        StepVerifier.create(userJourneyRepository.getClicks("user-1", 50))
+            .expectNext(Collections.emptyList())
+            .verifyComplete();
+
+        ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).query(sqlCaptor.capture(), any(RowMapper.class), eq("user-1"), eq(50));
+
+        String sql = sqlCaptor.getValue();
+        assertThat(sql).contains("FROM clicks");
+        assertThat(sql).contains("WHERE user_id = ?");
+        assertThat(sql).contains("LIMIT ?");
+    }
+
+    @Test
+    void getConversions_shouldFilterByUserOnly() {
+        when(jdbcTemplate.query(any(String.class), any(RowMapper.class), eq("user-1"), eq(50)))
+            .thenReturn(Collections.emptyList());
+
+        StepVerifier.create(userJourneyRepository.getConversions("user-1", 50))
+            .expectNext(Collections.emptyList())
+            .verifyComplete();
+
+        ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).query(sqlCaptor.capture(), any(RowMapper.class), eq("user-1"), eq(50));
+
+        String sql = sqlCaptor.getValue();
+        assertThat(sql).contains("FROM attributed_events");
+        assertThat(sql).contains("WHERE user_id = ?");
+    }
+
+    @Test
+    void getConversions_shouldMapAttributionCredit() throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString("conversion_id")).thenReturn("conv-1");
+        when(rs.getString("click_id")).thenReturn("click-1");
+        when(rs.getBigDecimal("value")).thenReturn(new BigDecimal("3.33"));
+        when(rs.getTimestamp("click_time")).thenReturn(Timestamp.from(Instant.ofEpochSecond(1000)));
+        when(rs.getTimestamp("conversion_time")).thenReturn(Timestamp.from(Instant.ofEpochSecond(2000)));
+        when(rs.getString("attribution_model")).thenReturn("linear");
+        when(rs.getDouble("credit")).thenReturn(1.0 / 3);
+
+        when(jdbcTemplate.query(any(String.class), any(RowMapper.class), eq("user-1"), eq(50)))
+            .thenAnswer(invocation -> {
+                RowMapper<UserJourneyResponse.ConversionEntry> mapper = invocation.getArgument(1);
+                return List.of(mapper.mapRow(rs, 1));
+            });
+
+        StepVerifier.create(userJourneyRepository.getConversions("user-1", 50))
+            .expectNextMatches(entries ->
+                entries.get(0).getAttributionModel().equals("linear") &&
+                entries.get(0).getCredit() == 1.0 / 3 &&
+                entries.get(0).getValue().compareTo(new BigDecimal("3.33")) == 0
+            )
+            .verifyComplete();
+
+        ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).query(sqlCaptor.capture(), any(RowMapper.class), eq("user-1"), eq(50));
+        assertThat(sqlCaptor.getValue()).contains("attribution_model", "credit");
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.adaggregator.service;
 
+import com.example.adaggregator.model.LagHistogramResponse;
 import com.example.adaggregator.model.StatsResponse;
 import com.example.adaggregator.repository.StatsRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -74,4 +75,27 @@ class StatsServiceTest {
             .expectNextMatches(response -> response.getInterval().equals("daily"))
             .verifyComplete();
     }
+
+    @Test
+    void getAttributionLagHistogram_shouldSumBucketConversions() {
+        LocalDate startDate = LocalDate.of(2023, 1, 1);
+        LocalDate endDate = LocalDate.of(2023, 1, 31);
+        String campaignId = "camp-1";
+
+        List<LagHistogramResponse.LagBucket> mockBuckets = List.of(
+            LagHistogramResponse.LagBucket.builder().bucket(1).lowerBoundSeconds(1).upperBoundSeconds(2L).conversions(4.5).build(),
+            LagHistogramResponse.LagBucket.builder().bucket(2).lowerBoundSeconds(2).upperBoundSeconds(4L).conversions(5.5).build()
+        );
+
+        when(statsRepository.getAttributionLagHistogram(eq(startDate), eq(endDate), eq(campaignId)))
+            .thenReturn(Mono.just(mockBuckets));
+
+        StepVerifier.create(statsService.getAttributionLagHistogram(startDate, endDate, campaignId))
+            .expectNextMatches(response ->
+                response.getCampaignId().equals(campaignId) &&
+                response.getTotalConversions() == 10.0 &&
+                response.getBuckets().size() == 2
+            )
+            .verifyComplete();
+    }
 }
@@ -0,0 +1,58 @@
+package com.example.adaggregator.service;
+
+import com.example.adaggregator.model.UserJourneyResponse;
+import com.example.adaggregator.repository.UserJourneyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserJourneyServiceTest {
+
+    @Mock
+    private UserJourneyRepository userJourneyRepository;
+
+    private UserJourneyService userJourneyService;
+
+    @BeforeEach
+    void setUp() {
+        userJourneyService = new UserJourneyService(userJourneyRepository);
+    }
+
+    @Test
+    void getJourney_shouldCombineClicksAndConversions() {
+        List<UserJourneyResponse.ClickEntry> clicks = List.of(
+            UserJourneyResponse.ClickEntry.builder()
+                .eventId("click-1")
+                .clickTime(Instant.ofEpochSecond(1000))
+                .build()
+        );
+        List<UserJourneyResponse.ConversionEntry> conversions = List.of(
+            UserJourneyResponse.ConversionEntry.builder()
+                .conversionId("conv-1")
+                .clickId("click-1")
+                .build()
+        );
+
+        when(userJourneyRepository.getClicks(eq("user-1"), eq(10))).thenReturn(Mono.just(clicks));
+        when(userJourneyRepository.getConversions(eq("user-1"), eq(10))).thenReturn(Mono.just(conversions));
+
+        StepVerifier.create(userJourneyService.getJourney("user-1", 10))
+            .expectNextMatches(response ->
+                response.getUserId().equals("user-1") &&
+                response.getClicks().size() == 1 &&
+                response.getConversions().get(0).getClickId().equals("click-1")
+            )
+            .verifyComplete();
+    }
+}
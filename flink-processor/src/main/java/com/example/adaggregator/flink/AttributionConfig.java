@@ -0,0 +1,47 @@
+package com.example.adaggregator.flink;
+
+import com.example.adaggregator.flink.attribution.AttributionModel;
+import com.example.adaggregator.flink.attribution.LastClickModel;
+import lombok.Builder;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.Duration;
+
+@Data
+@Builder
+public class AttributionConfig implements Serializable {
+
+    // How far back a conversion may look for clicks of the same campaign
+    @Builder.Default
+    private Duration attributionWindow = Duration.ofHours(24);
+
+    // How long processed conversion ids are remembered for deduplication
+    @Builder.Default
+    private Duration dedupRetention = Duration.ofDays(7);
+
+    @Builder.Default
+    private AttributionModel model = new LastClickModel();
+
+    // Clicks kept per (user, campaign); the oldest is dropped beyond this
+    @Builder.Default
+    private int maxClicksPerCampaign = 8;
+
+    // How long an unmatched conversion waits for a late click; zero disables buffering
+    @Builder.Default
+    private Duration pendingConversionGrace = Duration.ofMinutes(15);
+
+    // Unmatched conversions buffered per user; further ones go straight to the side output
+    @Builder.Default
+    private int maxPendingConversions = 32;
+
+    // Drain clicks from the pre-ClickHistory "clicks-per-campaign" state, and conversion ids from
+    // the "processed-conversions" state valued by conversion time, when a user is next seen; only
+    // needed while restoring from savepoints taken before those states were replaced
+    @Builder.Default
+    private boolean migrateLegacyClickState = false;
+
+    public static AttributionConfig defaults() {
+        return AttributionConfig.builder().build();
+    }
+}
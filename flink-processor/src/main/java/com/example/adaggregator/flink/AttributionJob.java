@@ -1,55 +1,326 @@
 package com.example.adaggregator.flink;
 
+import com.example.adaggregator.flink.aggregation.ClickAggregation;
+import com.example.adaggregator.flink.attribution.CampaignRule;
+import com.example.adaggregator.flink.backfill.BackfillConfig;
+import com.example.adaggregator.flink.clickhouse.ClickHouseSink;
+import com.example.adaggregator.flink.enrichment.CampaignMetadataClient;
+import com.example.adaggregator.flink.enrichment.EnrichmentConfig;
+import com.example.adaggregator.flink.fraud.FraudThresholds;
+import com.example.adaggregator.flink.hotkeys.HotKeyPolicy;
 import com.example.adaggregator.flink.model.AttributedEvent;
+import com.example.adaggregator.flink.model.ClickAggregate;
+import com.example.adaggregator.flink.model.ConversionEvent;
+import com.example.adaggregator.flink.model.DeadLetter;
 import com.example.adaggregator.flink.model.Event;
+import org.apache.flink.api.common.RuntimeExecutionMode;
 import org.apache.flink.api.common.eventtime.WatermarkStrategy;
+import org.apache.flink.api.common.serialization.SerializationSchema;
+import org.apache.flink.api.common.typeinfo.Types;
+import org.apache.flink.connector.file.src.FileSource;
 import org.apache.flink.connector.kafka.source.KafkaSource;
-import org.apache.flink.connector.kafka.source.enumerator.initializer.OffsetsInitializer;
+import org.apache.flink.connector.kafka.source.KafkaSourceBuilder;
 import org.apache.flink.connector.kafka.sink.KafkaSink;
 import org.apache.flink.connector.kafka.sink.KafkaRecordSerializationSchema;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.streaming.api.datastream.AsyncDataStream;
+import org.apache.flink.streaming.api.datastream.BroadcastStream;
 import org.apache.flink.streaming.api.datastream.DataStream;
+import org.apache.flink.streaming.api.datastream.DataStreamSink;
+import org.apache.flink.streaming.api.datastream.DataStreamSource;
+import org.apache.flink.streaming.api.datastream.DataStreamUtils;
+import org.apache.flink.streaming.api.datastream.KeyedStream;
+import org.apache.flink.streaming.api.datastream.SingleOutputStreamOperator;
 import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
+import org.apache.flink.types.Either;
+import com.example.adaggregator.flink.serialization.CampaignRuleDeserializationSchema;
+import com.example.adaggregator.flink.serialization.ClickAggregateSerializationSchema;
+import com.example.adaggregator.flink.serialization.DeadLetterSerializationSchema;
+import com.example.adaggregator.flink.serialization.DeadLetteringDeserializationSchema;
 import com.example.adaggregator.flink.serialization.EventDeserializationSchema;
+import com.example.adaggregator.flink.serialization.EventSerializationSchema;
+import com.example.adaggregator.flink.serialization.FraudThresholdsDeserializationSchema;
+import com.example.adaggregator.flink.serialization.JsonLinesFormat;
 import com.example.adaggregator.flink.serialization.AttributedEventSerializationSchema;
+import com.example.adaggregator.flink.serialization.ConversionEventSerializationSchema;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
 public class AttributionJob {
 
+    // Raw events are keyed by user, so disorder comes from SDK batching and producer retries
+    private static final Duration MAX_OUT_OF_ORDERNESS = Duration.ofMinutes(5);
+    // Partitions without traffic stop holding back the watermark after this long
+    private static final Duration SOURCE_IDLE_TIMEOUT = Duration.ofMinutes(1);
+
     public static void main(String[] args) throws Exception {
-        final StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
-
-        String kafkaBootstrapServers = System.getenv().getOrDefault("KAFKA_BOOTSTRAP_SERVERS", "kafka:29092");
-        String inputTopic = "raw-events";
-        String outputTopic = "attributed-events";
-
-        // 1. Source: Read from Kafka
-        KafkaSource<Event> source = KafkaSource.<Event>builder()
-            .setBootstrapServers(kafkaBootstrapServers)
-            .setTopics(inputTopic)
-            .setGroupId("flink-attribution-group")
-            .setStartingOffsets(OffsetsInitializer.earliest())
-            .setValueOnlyDeserializer(new EventDeserializationSchema())
-            .build();
+        JobConfig config = JobConfig.fromArgs(args);
+
+        // Checkpointing, state backend and network options come from the job parameters
+        final StreamExecutionEnvironment env =
+            StreamExecutionEnvironment.getExecutionEnvironment(config.getFlinkConfiguration());
+        // Every record and state type has a dedicated serializer; fail fast if one falls back to Kryo
+        env.getConfig().disableGenericTypes();
+        env.setMaxParallelism(config.getMaxParallelism());
+        if (config.getParallelism() != null) {
+            env.setParallelism(config.getParallelism());
+        }
+        if (config.getBackfill() != null) {
+            // Every source is bounded, so keyed operators can sort their input by key and event
+            // time and keep state for one user at a time; checkpointing is switched off
+            env.setRuntimeMode(RuntimeExecutionMode.BATCH);
+        }
+
+        // 1. Source: Read from Kafka, or from archived events in a backfill
+        DataStreamSource<Either<Event, DeadLetter>> records = rawEvents(env, config);
+
+        SingleOutputStreamOperator<Event> events = records
+            .process(new DeadLetterRouter())
+            .name("Dead Letter Router")
+            .uid("dead-letter-router");
+        if (config.getSourceParallelism() != null) {
+            events.setParallelism(config.getSourceParallelism());
+        }
+
+        // Heavy-hitter user ids are found before the keyBy, while they are still spread over
+        // the source subtasks; chained to the source, so it adds no network hop
+        SingleOutputStreamOperator<Event> screenedEvents = events
+            .process(new HotKeyDetector(config.getHotKeys()))
+            .name("Hot Key Detector")
+            .uid("hot-key-detector");
+        if (config.getSourceParallelism() != null) {
+            screenedEvents.setParallelism(config.getSourceParallelism());
+        }
 
-        DataStream<Event> events = env.fromSource(source, WatermarkStrategy.noWatermarks(), "Kafka Source");
+        // Clicks above the fraud limits are quarantined before they reach attribution state. The
+        // filter is keyed by user like attribution, which reuses its partitioning instead of
+        // shuffling the stream a second time
+        SingleOutputStreamOperator<Event> filteredEvents = null;
+        KeyedStream<Event, String> userEvents;
+        if (config.isFraudFilterEnabled()) {
+            BroadcastStream<FraudThresholds> fraudThresholds = ControlStreams
+                .fromTopic(env, config, config.getFraudThresholdsTopic(),
+                    new FraudThresholdsDeserializationSchema(), "fraud-thresholds-source")
+                .broadcast(ClickFraudFilter.THRESHOLDS_DESCRIPTOR);
+            filteredEvents = screenedEvents
+                .keyBy(Event::getUserId)
+                .connect(fraudThresholds)
+                .process(new ClickFraudFilter(config.getFraud()))
+                .name("Click Fraud Filter")
+                .uid("click-fraud-filter");
+            if (config.getAttributionParallelism() != null) {
+                filteredEvents.setParallelism(config.getAttributionParallelism());
+            }
+            userEvents = DataStreamUtils.reinterpretAsKeyedStream(filteredEvents, Event::getUserId, Types.STRING);
+        } else {
+            userEvents = screenedEvents.keyBy(Event::getUserId);
+        }
+        DataStream<Event> acceptedEvents = filteredEvents != null ? filteredEvents : screenedEvents;
 
-        // 2. Process: KeyBy User -> Attribute
-        DataStream<AttributedEvent> attributedEvents = events
-            .keyBy(Event::getUserId)
-            .process(new AttributionProcessFunction())
-            .name("Attribution Logic");
+        // 2. Process: KeyBy User -> Attribute, with per-campaign rules from the control topic
+        DataStream<CampaignRule> ruleUpdates = ControlStreams
+            .fromTopic(env, config, config.getAttributionRulesTopic(),
+                new CampaignRuleDeserializationSchema(config.getAttribution()), "attribution-rules-source");
+        // A backfill never restores the old click state, and BATCH mode takes no unbounded source
+        if (config.getAttribution().isMigrateLegacyClickState() && config.getBackfill() == null) {
+            ruleUpdates = ruleUpdates.union(
+                LegacyClickSweepTrigger.create(env, config.getAttribution().getAttributionWindow()));
+        }
+        BroadcastStream<CampaignRule> attributionRules = ruleUpdates
+            .broadcast(AttributionProcessFunction.RULES_DESCRIPTOR);
+        SingleOutputStreamOperator<AttributedEvent> attributedEvents = userEvents
+            .connect(attributionRules)
+            .process(new AttributionProcessFunction(config.getAttribution()))
+            .name("Attribution Logic")
+            .uid("attribution");
+        if (config.getAttributionLegacyUidHash() != null) {
+            attributedEvents.setUidHash(config.getAttributionLegacyUidHash());
+        }
+        if (config.getAttributionParallelism() != null) {
+            attributedEvents.setParallelism(config.getAttributionParallelism());
+        }
+
+        // Optional campaign metadata, looked up asynchronously behind a per-subtask cache
+        DataStream<AttributedEvent> outputEvents = attributedEvents;
+        if (config.isEnrichmentEnabled()) {
+            EnrichmentConfig enrichment = config.getEnrichment();
+            SingleOutputStreamOperator<AttributedEvent> enrichedEvents = AsyncDataStream
+                .unorderedWait(
+                    attributedEvents,
+                    new CampaignEnrichmentFunction(enrichment, CampaignMetadataClient.create(enrichment)),
+                    enrichment.getTimeout().toMillis(),
+                    TimeUnit.MILLISECONDS,
+                    enrichment.getCapacity())
+                .name("Campaign Enrichment")
+                .uid("campaign-enrichment");
+            if (config.getAttributionParallelism() != null) {
+                enrichedEvents.setParallelism(config.getAttributionParallelism());
+            }
+            outputEvents = enrichedEvents;
+        }
 
         // 3. Sink: Write to Kafka
-        KafkaSink<AttributedEvent> sink = KafkaSink.<AttributedEvent>builder()
-            .setBootstrapServers(kafkaBootstrapServers)
-            .setRecordSerializer(KafkaRecordSerializationSchema.builder()
-                .setTopic(outputTopic)
-                .setValueSerializationSchema(new AttributedEventSerializationSchema())
-                .build()
-            )
-            .build();
+        KafkaSink<AttributedEvent> sink = kafkaSink(config, config.getOutputTopic(),
+            new AttributedEventSerializationSchema(), "attributed");
+
+        DataStreamSink<AttributedEvent> attributedSink = outputEvents.sinkTo(sink)
+            .name("Kafka Sink")
+            .uid("attributed-events-sink")
+            .slotSharingGroup(config.getSinkSlotSharingGroup());
+
+        // Optional direct path into ClickHouse; disable the Kafka engine consumer of
+        // attributed-events in the api-service when using it. attributed_events has no campaign
+        // metadata columns, so it is fed before enrichment
+        if (config.getClickHouseSink() != null) {
+            DataStreamSink<AttributedEvent> clickHouseSink = attributedEvents
+                .sinkTo(new ClickHouseSink(config.getClickHouseSink()))
+                .name("ClickHouse Sink")
+                .uid("clickhouse-sink")
+                .slotSharingGroup(config.getSinkSlotSharingGroup());
+            if (config.getSinkParallelism() != null) {
+                clickHouseSink.setParallelism(config.getSinkParallelism());
+            }
+        }
+
+        // 4. Side output: conversions no click could be found for, kept for replay and auditing
+        KafkaSink<ConversionEvent> unattributedSink = kafkaSink(config, config.getUnattributedTopic(),
+            new ConversionEventSerializationSchema(), "unattributed");
+
+        DataStreamSink<ConversionEvent> unattributedConversionsSink = attributedEvents
+            .getSideOutput(AttributionProcessFunction.UNATTRIBUTED_CONVERSIONS)
+            .sinkTo(unattributedSink)
+            .name("Unattributed Conversions Sink")
+            .uid("unattributed-conversions-sink")
+            .slotSharingGroup(config.getSinkSlotSharingGroup());
+
+        // 5. Dead letters: raw records that could not be decoded, copied byte for byte
+        DataStreamSink<DeadLetter> deadLetterSink = events
+            .getSideOutput(DeadLetterRouter.DEAD_LETTERS)
+            .sinkTo(kafkaSink(config, new DeadLetterSerializationSchema(config.getDeadLetterTopic()), "dead-letters"))
+            .name("Dead Letter Sink")
+            .uid("dead-letter-sink")
+            .slotSharingGroup(config.getSinkSlotSharingGroup());
 
-        attributedEvents.sinkTo(sink).name("Kafka Sink");
+        if (config.getSinkParallelism() != null) {
+            attributedSink.setParallelism(config.getSinkParallelism());
+            unattributedConversionsSink.setParallelism(config.getSinkParallelism());
+            deadLetterSink.setParallelism(config.getSinkParallelism());
+        }
 
-        env.execute("Ad Click Attribution Job");
+        // 6. Hot keys: events kept away from attribution, in the raw-events format for replay
+        HotKeyPolicy hotKeyPolicy = config.getHotKeys().getPolicy();
+        if (hotKeyPolicy == HotKeyPolicy.THROTTLE || hotKeyPolicy == HotKeyPolicy.DIVERT) {
+            DataStreamSink<Event> hotKeySink = screenedEvents
+                .getSideOutput(HotKeyDetector.HOT_KEY_EVENTS)
+                .sinkTo(kafkaSink(config, config.getHotKeyTopic(), new EventSerializationSchema(), "hot-keys"))
+                .name("Hot Key Events Sink")
+                .uid("hot-key-events-sink")
+                .slotSharingGroup(config.getSinkSlotSharingGroup());
+            if (config.getSinkParallelism() != null) {
+                hotKeySink.setParallelism(config.getSinkParallelism());
+            }
+        }
+
+        // 7. Quarantined clicks, in the raw-events format for review and replay
+        if (filteredEvents != null) {
+            DataStreamSink<Event> quarantineSink = filteredEvents
+                .getSideOutput(ClickFraudFilter.QUARANTINED_CLICKS)
+                .sinkTo(kafkaSink(config, config.getQuarantinedClicksTopic(), new EventSerializationSchema(), "quarantine"))
+                .name("Quarantined Clicks Sink")
+                .uid("quarantined-clicks-sink")
+                .slotSharingGroup(config.getSinkSlotSharingGroup());
+            if (config.getSinkParallelism() != null) {
+                quarantineSink.setParallelism(config.getSinkParallelism());
+            }
+        }
+
+        // 8. Click aggregates: per-minute click counts for reporting, so ClickHouse does not
+        // have to ingest every raw click to build daily_stats_agg. Counts only clicks that
+        // passed the hot key policy and the fraud filter
+        if (config.isClickAggregationEnabled()) {
+            SingleOutputStreamOperator<ClickAggregate> clickAggregates = ClickAggregation
+                .aggregate(acceptedEvents, config.getClickAggregationWindow(), config.getClickAggregationAllowedLateness())
+                .name("Click Aggregation")
+                .uid("click-aggregation");
+            if (config.getAttributionParallelism() != null) {
+                clickAggregates.setParallelism(config.getAttributionParallelism());
+            }
+
+            DataStreamSink<ClickAggregate> clickAggregatesSink = clickAggregates
+                .sinkTo(kafkaSink(config, config.getClickAggregatesTopic(),
+                    new ClickAggregateSerializationSchema(), "click-aggregates"))
+                .name("Click Aggregates Sink")
+                .uid("click-aggregates-sink")
+                .slotSharingGroup(config.getSinkSlotSharingGroup());
+            if (config.getSinkParallelism() != null) {
+                clickAggregatesSink.setParallelism(config.getSinkParallelism());
+            }
+        }
+
+        env.execute(config.getBackfill() != null ? "Ad Click Attribution Backfill" : "Ad Click Attribution Job");
+    }
+
+    // Click metadata is never used downstream, so it is skipped while parsing; undecodable
+    // records become dead letters instead of failing the job
+    static DataStreamSource<Either<Event, DeadLetter>> rawEvents(StreamExecutionEnvironment env, JobConfig config) {
+        DeadLetteringDeserializationSchema schema =
+            new DeadLetteringDeserializationSchema(new EventDeserializationSchema(false));
+
+        // Dead letters have no event time of their own and keep the Kafka record timestamp
+        WatermarkStrategy<Either<Event, DeadLetter>> watermarkStrategy = WatermarkStrategy
+            .<Either<Event, DeadLetter>>forBoundedOutOfOrderness(MAX_OUT_OF_ORDERNESS)
+            .withTimestampAssigner((record, recordTimestamp) ->
+                record.isLeft() ? record.left().getTimestamp() : recordTimestamp)
+            .withIdleness(SOURCE_IDLE_TIMEOUT);
+
+        // Stable uids keep state mapped to its operator across topology and parallelism changes
+        BackfillConfig backfill = config.getBackfill();
+        DataStreamSource<Either<Event, DeadLetter>> records;
+        if (backfill != null && backfill.getPath() != null) {
+            FileSource<Either<Event, DeadLetter>> source = FileSource
+                .forRecordStreamFormat(new JsonLinesFormat<>(schema), new Path(backfill.getPath()))
+                .build();
+            records = env.fromSource(source, watermarkStrategy, "Archived Events Source");
+            records.uid("archived-events-source");
+        } else {
+            KafkaSourceBuilder<Either<Event, DeadLetter>> builder = KafkaSource.<Either<Event, DeadLetter>>builder()
+                .setBootstrapServers(config.getBootstrapServers())
+                .setTopics(config.getInputTopic())
+                .setGroupId(config.getGroupId())
+                .setValueOnlyDeserializer(schema);
+            if (backfill != null) {
+                builder.setStartingOffsets(backfill.startingOffsetsInitializer(config.getInputTopic()))
+                    .setBounded(backfill.stoppingOffsetsInitializer(config.getInputTopic()));
+            } else {
+                builder.setStartingOffsets(config.startingOffsetsInitializer());
+            }
+            records = env.fromSource(builder.build(), watermarkStrategy, "Kafka Source");
+            records.uid("kafka-source");
+        }
+        if (config.getSourceParallelism() != null) {
+            records.setParallelism(config.getSourceParallelism());
+        }
+        return records;
+    }
+
+    private static <T> KafkaSink<T> kafkaSink(JobConfig config, String topic,
+                                              SerializationSchema<T> valueSchema, String sinkName) {
+        return kafkaSink(config, KafkaRecordSerializationSchema.<T>builder()
+            .setTopic(topic)
+            .setValueSerializationSchema(valueSchema)
+            .build(), sinkName);
+    }
+
+    // Each sink needs its own transactional id prefix so their transactions never fence each other
+    private static <T> KafkaSink<T> kafkaSink(JobConfig config, KafkaRecordSerializationSchema<T> recordSchema,
+                                              String sinkName) {
+        return KafkaSink.<T>builder()
+            .setBootstrapServers(config.getBootstrapServers())
+            .setRecordSerializer(recordSchema)
+            .setDeliveryGuarantee(config.getDeliveryGuarantee())
+            .setTransactionalIdPrefix(config.getTransactionalIdPrefix() + "-" + sinkName)
+            .setProperty("transaction.timeout.ms", String.valueOf(config.getTransactionTimeout().toMillis()))
+            .build();
     }
 }
@@ -1,93 +1,575 @@
 package com.example.adaggregator.flink;
 
+import com.example.adaggregator.flink.attribution.AttributionModel;
+import com.example.adaggregator.flink.attribution.CampaignRule;
+import com.example.adaggregator.flink.attribution.ClickHistory;
 import com.example.adaggregator.flink.model.AttributedEvent;
 import com.example.adaggregator.flink.model.ClickEvent;
 import com.example.adaggregator.flink.model.ConversionEvent;
 import com.example.adaggregator.flink.model.Event;
+import com.example.adaggregator.flink.typeutils.ModelTypes;
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.state.BroadcastState;
 import org.apache.flink.api.common.state.MapState;
 import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.state.ReadOnlyBroadcastState;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeinfo.Types;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.api.java.typeutils.GenericTypeInfo;
 import org.apache.flink.configuration.Configuration;
-import org.apache.flink.streaming.api.functions.KeyedProcessFunction;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.Histogram;
+import org.apache.flink.metrics.MeterView;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.runtime.metrics.DescriptiveStatisticsHistogram;
+import org.apache.flink.runtime.state.KeyedStateFunction;
+import org.apache.flink.streaming.api.functions.co.KeyedBroadcastProcessFunction;
 import org.apache.flink.util.Collector;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.apache.flink.util.OutputTag;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
-public class AttributionProcessFunction extends KeyedProcessFunction<String, Event, AttributedEvent> {
+/**
+ * Attributes conversions to earlier clicks of the same user and campaign. The attribution
+ * window, model and dedup retention default to the job parameters and can be overridden per
+ * campaign through the attribution rules control topic, broadcast to every subtask. A rule
+ * change applies to the next event of the campaign without a restart; clicks already evicted
+ * under a shorter window are not brought back when it grows.
+ */
+public class AttributionProcessFunction
+    extends KeyedBroadcastProcessFunction<String, Event, CampaignRule, AttributedEvent> {
 
-    private static final Logger LOG = LoggerFactory.getLogger(AttributionProcessFunction.class);
-    private static final long ATTRIBUTION_WINDOW_MS = Duration.ofHours(24).toMillis();
+    // Cleanup timers are rounded up to these granularities so a busy user registers
+    // at most one click timer per minute and one dedup timer per hour
+    private static final long CLICK_CLEANUP_GRANULARITY_MS = Duration.ofMinutes(1).toMillis();
+    private static final long DEDUP_CLEANUP_GRANULARITY_MS = Duration.ofHours(1).toMillis();
+    // Number of recent attributions the lag histogram computes its quantiles over
+    private static final int LAG_HISTOGRAM_WINDOW = 10_000;
 
-    private transient MapState<String, ClickEvent> clicksPerCampaignState;
+    // Conversions that found no click within their grace period, or did not fit the buffer
+    public static final OutputTag<ConversionEvent> UNATTRIBUTED_CONVERSIONS =
+        new OutputTag<>("unattributed-conversions", ModelTypes.CONVERSION_EVENT);
+
+    // Campaign id -> rule. Broadcast state is a plain map owned by the task thread, so the
+    // per-event lookup takes no lock
+    public static final MapStateDescriptor<String, CampaignRule> RULES_DESCRIPTOR = new MapStateDescriptor<>(
+        "attribution-rules",
+        Types.STRING,
+        TypeInformation.of(CampaignRule.class)
+    );
+
+    private final AttributionConfig config;
+    private final long attributionWindowMs;
+    private final long dedupRetentionMs;
+    private final long pendingGraceMs;
+
+    private transient MapState<String, ClickHistory> clickHistoryState;
+    // Conversion id -> time its dedup entry expires: conversion time plus the retention of
+    // its campaign when it was recorded
     private transient MapState<String, Long> processedConversionsState;
+    private transient MapState<String, List<ConversionEvent>> pendingConversionsState;
+    private transient ValueState<Integer> pendingCountState;
+    // Conversion outcomes are reported as metrics only; nothing on the per-event path logs
+    private transient Counter attributedConversions;
+    private transient Counter duplicateConversions;
+    private transient Counter outOfWindowConversions;
+    private transient Counter unattributedConversions;
+    private transient Histogram attributionLagMs;
+    private transient MapState<String, ClickEvent> legacyClicksState;
+    // Conversion id -> conversion time, kept forever by jobs before the dedup retention
+    private transient MapState<String, Long> legacyProcessedConversionsState;
+    // Set once a sweep found no legacy state left on this subtask; events and later sweeps skip it
+    private transient boolean legacyStateDrained;
+    private transient Counter legacyClicksMigrated;
+    private transient Counter legacyClicksExpired;
+    private transient Counter legacyConversionIdsExpired;
+    private transient Counter ruleUpdates;
+    // Resolved models by name; rules only carry the name
+    private transient Map<String, AttributionModel> models;
+
+    public AttributionProcessFunction() {
+        this(AttributionConfig.defaults());
+    }
+
+    public AttributionProcessFunction(AttributionConfig config) {
+        this.config = config;
+        this.attributionWindowMs = config.getAttributionWindow().toMillis();
+        this.dedupRetentionMs = config.getDedupRetention().toMillis();
+        this.pendingGraceMs = config.getPendingConversionGrace().toMillis();
+    }
 
     @Override
     public void open(Configuration parameters) throws Exception {
-        MapStateDescriptor<String, ClickEvent> clickDescriptor = new MapStateDescriptor<>(
-            "clicks-per-campaign",
-            String.class,
-            ClickEvent.class
+        MapStateDescriptor<String, ClickHistory> clickDescriptor = new MapStateDescriptor<>(
+            "click-history-per-campaign",
+            Types.STRING,
+            ModelTypes.CLICK_HISTORY
         );
-        clicksPerCampaignState = getRuntimeContext().getMapState(clickDescriptor);
+        clickHistoryState = getRuntimeContext().getMapState(clickDescriptor);
 
         MapStateDescriptor<String, Long> conversionDescriptor = new MapStateDescriptor<>(
-            "processed-conversions",
+            "processed-conversion-expiry",
             String.class,
             Long.class
         );
         processedConversionsState = getRuntimeContext().getMapState(conversionDescriptor);
+
+        MapStateDescriptor<String, List<ConversionEvent>> pendingDescriptor = new MapStateDescriptor<>(
+            "pending-conversions-per-campaign",
+            Types.STRING,
+            Types.LIST(ModelTypes.CONVERSION_EVENT)
+        );
+        pendingConversionsState = getRuntimeContext().getMapState(pendingDescriptor);
+        pendingCountState = getRuntimeContext().getState(
+            new ValueStateDescriptor<>("pending-conversion-count", Integer.class));
+
+        MetricGroup metrics = getRuntimeContext().getMetricGroup();
+        attributedConversions = metrics.counter("attributedConversions");
+        metrics.meter("attributedConversionsPerSecond", new MeterView(attributedConversions));
+        duplicateConversions = metrics.counter("duplicateConversionsDropped");
+        outOfWindowConversions = metrics.counter("outOfWindowConversions");
+        unattributedConversions = metrics.counter("unattributedConversions");
+        metrics.meter("unattributedConversionsPerSecond", new MeterView(unattributedConversions));
+        attributionLagMs = metrics.histogram("attributionLagMs",
+            new DescriptiveStatisticsHistogram(LAG_HISTOGRAM_WINDOW));
+        ruleUpdates = metrics.counter("attributionRuleUpdates");
+        models = new HashMap<>();
+        models.put(config.getModel().name(), config.getModel());
+
+        if (config.isMigrateLegacyClickState()) {
+            legacyClicksState = getRuntimeContext().getMapState(legacyClicksDescriptor());
+            legacyProcessedConversionsState = getRuntimeContext().getMapState(legacyProcessedConversionsDescriptor());
+            legacyClicksMigrated = metrics.counter("legacyClicksMigrated");
+            legacyClicksExpired = metrics.counter("legacyClicksExpired");
+            legacyConversionIdsExpired = metrics.counter("legacyConversionIdsExpired");
+        }
+    }
+
+    // Its entries were valued by conversion time rather than expiry, so they live under the old
+    // name and are moved over with an expiry and a timer
+    static MapStateDescriptor<String, Long> legacyProcessedConversionsDescriptor() {
+        return new MapStateDescriptor<>("processed-conversions", String.class, Long.class);
+    }
+
+    /**
+     * Descriptor of the state that held the whole last {@link ClickEvent} per campaign. Its
+     * serializer must match the one the old job wrote with: a POJO serializer whose metadata
+     * map falls back to Kryo. It is built outside the job's config so that state can still be
+     * read with generic types disabled.
+     */
+    static MapStateDescriptor<String, ClickEvent> legacyClicksDescriptor() {
+        Map<String, TypeInformation<?>> fields = new HashMap<>();
+        fields.put("eventType", Types.STRING);
+        fields.put("eventId", Types.STRING);
+        fields.put("userId", Types.STRING);
+        fields.put("campaignId", Types.STRING);
+        fields.put("timestamp", Types.LONG);
+        fields.put("adId", Types.STRING);
+        fields.put("source", Types.STRING);
+        fields.put("metadata", new GenericTypeInfo<>(Map.class));
+        TypeInformation<ClickEvent> legacyClickType = Types.POJO(ClickEvent.class, fields);
+
+        return new MapStateDescriptor<>(
+            "clicks-per-campaign",
+            StringSerializer.INSTANCE,
+            legacyClickType.createSerializer(new ExecutionConfig())
+        );
     }
 
     @Override
-    public void processElement(Event event, Context ctx, Collector<AttributedEvent> out) throws Exception {
+    public void processElement(Event event, ReadOnlyContext ctx, Collector<AttributedEvent> out) throws Exception {
+        if (legacyClicksState != null && !legacyStateDrained) {
+            migrateLegacyState(ctx);
+        }
+        CampaignRule rule = ctx.getBroadcastState(RULES_DESCRIPTOR).get(event.getCampaignId());
         if (event instanceof ClickEvent) {
-            processClick((ClickEvent) event);
+            processClick((ClickEvent) event, rule, ctx, out);
         } else if (event instanceof ConversionEvent) {
-            processConversion((ConversionEvent) event, out);
+            processConversion((ConversionEvent) event, rule, ctx, out);
+        }
+    }
+
+    /**
+     * Marker broadcast by {@link LegacyClickSweepTrigger}. Rules read from the control topic always
+     * name a campaign, so a rule without one cannot be mistaken for an update.
+     */
+    static CampaignRule legacyClickSweep() {
+        return new CampaignRule();
+    }
+
+    @Override
+    public void processBroadcastElement(CampaignRule rule, Context ctx, Collector<AttributedEvent> out) throws Exception {
+        if (rule.getCampaignId() == null) {
+            if (legacyClicksState != null && !legacyStateDrained) {
+                expireLegacyState(ctx);
+            }
+            return;
+        }
+
+        BroadcastState<String, CampaignRule> rules = ctx.getBroadcastState(RULES_DESCRIPTOR);
+        if (rule.hasOverrides()) {
+            rules.put(rule.getCampaignId(), rule);
+        } else {
+            rules.remove(rule.getCampaignId());
+        }
+        ruleUpdates.inc();
+    }
+
+    // Users who never send another event are not migrated, and their keys have no timer to
+    // hang a cleanup on: the old job registered none, and a timer needs the key's context.
+    // The broadcast side is the one place that can visit every key, so the sweep marker drops
+    // the clicks whose window and the conversion ids whose retention the watermark has passed.
+    private void expireLegacyState(Context ctx) throws Exception {
+        ReadOnlyBroadcastState<String, CampaignRule> rules = ctx.getBroadcastState(RULES_DESCRIPTOR);
+        long watermark = ctx.currentWatermark();
+        legacyStateDrained = true;
+        ctx.applyToKeyedState(legacyClicksDescriptor(), new KeyedStateFunction<String, MapState<String, ClickEvent>>() {
+            @Override
+            public void process(String key, MapState<String, ClickEvent> clicks) throws Exception {
+                Iterator<ClickEvent> iterator = clicks.values().iterator();
+                while (iterator.hasNext()) {
+                    ClickEvent click = iterator.next();
+                    if (click.getTimestamp() + windowFor(rules.get(click.getCampaignId())) < watermark) {
+                        iterator.remove();
+                        legacyClicksExpired.inc();
+                    }
+                }
+                if (clicks.isEmpty()) {
+                    clicks.clear();
+                } else {
+                    legacyStateDrained = false;
+                }
+            }
+        });
+        ctx.applyToKeyedState(legacyProcessedConversionsDescriptor(), new KeyedStateFunction<String, MapState<String, Long>>() {
+            @Override
+            public void process(String key, MapState<String, Long> conversionIds) throws Exception {
+                Iterator<Long> iterator = conversionIds.values().iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next() + dedupRetentionMs < watermark) {
+                        iterator.remove();
+                        legacyConversionIdsExpired.inc();
+                    }
+                }
+                if (conversionIds.isEmpty()) {
+                    conversionIds.clear();
+                } else {
+                    legacyStateDrained = false;
+                }
+            }
+        });
+    }
+
+    private void processClick(ClickEvent click, CampaignRule rule, ReadOnlyContext ctx,
+                              Collector<AttributedEvent> out) throws Exception {
+        ClickHistory history = clickHistoryState.get(click.getCampaignId());
+        if (history == null) {
+            history = new ClickHistory(config.getMaxClicksPerCampaign());
+        }
+        history.add(click.getEventId(), click.getAdId(), click.getSource(), click.getTimestamp());
+        clickHistoryState.put(click.getCampaignId(), history);
+
+        registerCleanupTimer(ctx, click.getTimestamp() + windowFor(rule), CLICK_CLEANUP_GRANULARITY_MS);
+
+        matchPendingConversions(click.getCampaignId(), history, rule, ctx, out);
+    }
+
+    private void migrateLegacyState(ReadOnlyContext ctx) throws Exception {
+        if (!legacyClicksState.isEmpty()) {
+            migrateLegacyClicks(ctx);
+        }
+        if (!legacyProcessedConversionsState.isEmpty()) {
+            migrateLegacyProcessedConversions(ctx);
         }
     }
 
-    private void processClick(ClickEvent click) throws Exception {
-        clicksPerCampaignState.put(click.getCampaignId(), click);
+    // The campaign an old id belonged to is not recorded, so it gets the job's default retention
+    private void migrateLegacyProcessedConversions(ReadOnlyContext ctx) throws Exception {
+        for (Map.Entry<String, Long> entry : legacyProcessedConversionsState.entries()) {
+            long expiresAt = entry.getValue() + dedupRetentionMs;
+            processedConversionsState.put(entry.getKey(), expiresAt);
+            registerCleanupTimer(ctx, expiresAt, DEDUP_CLEANUP_GRANULARITY_MS);
+        }
+        legacyProcessedConversionsState.clear();
     }
 
-    private void processConversion(ConversionEvent conversion, Collector<AttributedEvent> out) throws Exception {        
+    private void migrateLegacyClicks(ReadOnlyContext ctx) throws Exception {
+        ReadOnlyBroadcastState<String, CampaignRule> rules = ctx.getBroadcastState(RULES_DESCRIPTOR);
+        for (ClickEvent click : legacyClicksState.values()) {
+            ClickHistory history = clickHistoryState.get(click.getCampaignId());
+            if (history == null) {
+                history = new ClickHistory(config.getMaxClicksPerCampaign());
+            }
+            history.add(click.getEventId(), click.getAdId(), click.getSource(), click.getTimestamp());
+            clickHistoryState.put(click.getCampaignId(), history);
+            long windowMs = windowFor(rules.get(click.getCampaignId()));
+            registerCleanupTimer(ctx, click.getTimestamp() + windowMs, CLICK_CLEANUP_GRANULARITY_MS);
+            legacyClicksMigrated.inc();
+        }
+        legacyClicksState.clear();
+    }
+
+    private long windowFor(CampaignRule rule) {
+        return rule != null && rule.getAttributionWindowMs() != null ? rule.getAttributionWindowMs() : attributionWindowMs;
+    }
+
+    private long dedupRetentionFor(CampaignRule rule) {
+        return rule != null && rule.getDedupRetentionMs() != null ? rule.getDedupRetentionMs() : dedupRetentionMs;
+    }
+
+    private AttributionModel modelFor(CampaignRule rule) {
+        if (rule == null || rule.getModel() == null) {
+            return config.getModel();
+        }
+        return models.computeIfAbsent(rule.getModel(), AttributionModel::fromName);
+    }
+
+    private void registerCleanupTimer(ReadOnlyContext ctx, long expiresAt, long granularity) {
+        long cleanupTime = ((expiresAt / granularity) + 1) * granularity;
+        ctx.timerService().registerEventTimeTimer(cleanupTime);
+    }
+
+    @Override
+    public void onTimer(long timestamp, OnTimerContext ctx, Collector<AttributedEvent> out) throws Exception {
+        // Once the watermark passes click time + window, no conversion that can still
+        // arrive on time is able to match the click
+        ReadOnlyBroadcastState<String, CampaignRule> rules = ctx.getBroadcastState(RULES_DESCRIPTOR);
+        Iterator<Map.Entry<String, ClickHistory>> histories = clickHistoryState.iterator();
+        while (histories.hasNext()) {
+            Map.Entry<String, ClickHistory> entry = histories.next();
+            ClickHistory history = entry.getValue();
+            long windowMs = windowFor(rules.get(entry.getKey()));
+            int before = history.size();
+            history.evictOlderThan(timestamp - windowMs);
+            if (history.isEmpty()) {
+                histories.remove();
+                continue;
+            }
+            if (history.size() != before) {
+                entry.setValue(history);
+            }
+            // The click timers were set with the window at click time; if the campaign's window
+            // has grown since, the remaining clicks need a later one
+            registerCleanupTimer(ctx, history.timestampAt(0) + windowMs, CLICK_CLEANUP_GRANULARITY_MS);
+        }
+
+        // Conversion ids only need to be remembered for the dedup retention window
+        Iterator<Map.Entry<String, Long>> conversions = processedConversionsState.iterator();
+        while (conversions.hasNext()) {
+            if (conversions.next().getValue() < timestamp) {
+                conversions.remove();
+            }
+        }
+
+        expirePendingConversions(timestamp, ctx);
+    }
+
+    private void processConversion(ConversionEvent conversion, CampaignRule rule, ReadOnlyContext ctx,
+                                   Collector<AttributedEvent> out) throws Exception {
         if (processedConversionsState.contains(conversion.getEventId())) {
-            LOG.info("Duplicate conversion event ignored: {}", conversion.getEventId());
+            duplicateConversions.inc();
             return;
         }
+        // Recorded whatever the outcome, so a replay of a buffered or unattributed conversion
+        // is dropped as well instead of being processed again
+        long expiresAt = conversion.getTimestamp() + dedupRetentionFor(rule);
+        processedConversionsState.put(conversion.getEventId(), expiresAt);
+        registerCleanupTimer(ctx, expiresAt, DEDUP_CLEANUP_GRANULARITY_MS);
 
-        ClickEvent matchingClick = clicksPerCampaignState.get(conversion.getCampaignId());
-
-        if (matchingClick != null) {
-            long timeDiff = conversion.getTimestamp() - matchingClick.getTimestamp();
-            
-            if (timeDiff >= 0 && timeDiff <= ATTRIBUTION_WINDOW_MS) {
-                AttributedEvent attributed = AttributedEvent.builder()
-                    .conversionId(conversion.getEventId())
-                    .clickId(matchingClick.getEventId())
-                    .userId(conversion.getUserId())
-                    .adId(matchingClick.getAdId())
-                    .campaignId(matchingClick.getCampaignId())
-                    .source(matchingClick.getSource())
-                    .conversionType(conversion.getType())
-                    .value(conversion.getValue())
-                    .clickTime(matchingClick.getTimestamp())
-                    .conversionTime(conversion.getTimestamp())
-                    .attributionWindowHours(24)
-                    .build();
-
-                out.collect(attributed);
-
-                processedConversionsState.put(conversion.getEventId(), conversion.getTimestamp());
-            } else {
-                LOG.info("Conversion {} outside attribution window for campaign {}", 
-                    conversion.getEventId(), conversion.getCampaignId());
+        ClickHistory history = clickHistoryState.get(conversion.getCampaignId());
+        if (!tryAttribute(conversion, history, rule, out)) {
+            // Clicks exist but are all too old; a late click can still rescue it
+            if (history != null && !history.isEmpty()
+                && conversion.getTimestamp() - history.timestampAt(0) > windowFor(rule)) {
+                outOfWindowConversions.inc();
             }
+            bufferPendingConversion(conversion, ctx);
+        }
+    }
+
+    private boolean tryAttribute(ConversionEvent conversion, ClickHistory history, CampaignRule rule,
+                                 Collector<AttributedEvent> out) {
+        if (history == null) {
+            return false;
+        }
+
+        // Clicks are ordered oldest first, so the eligible ones form a contiguous range
+        long conversionTime = conversion.getTimestamp();
+        long windowMs = windowFor(rule);
+        int first = 0;
+        while (first < history.size() && conversionTime - history.timestampAt(first) > windowMs) {
+            first++;
+        }
+        int end = first;
+        while (end < history.size() && history.timestampAt(end) <= conversionTime) {
+            end++;
+        }
+        if (end == first) {
+            return false;
+        }
+
+        long[] clickTimes = new long[end - first];
+        for (int i = first; i < end; i++) {
+            clickTimes[i - first] = history.timestampAt(i);
+        }
+        AttributionModel model = modelFor(rule);
+        emitAttributions(conversion, history, first, model, windowMs,
+            model.assignCredit(clickTimes, conversionTime), out);
+        attributedConversions.inc();
+        attributionLagMs.update(conversionTime - history.timestampAt(end - 1));
+        return true;
+    }
+
+    // Conversions can overtake their click (SDK batching, partition skew), so an unmatched
+    // conversion waits for the grace period before it is given up on
+    private void bufferPendingConversion(ConversionEvent conversion, ReadOnlyContext ctx) throws Exception {
+        Integer count = pendingCountState.value();
+        int pending = count == null ? 0 : count;
+        if (pendingGraceMs <= 0 || pending >= config.getMaxPendingConversions()) {
+            emitUnattributed(conversion, ctx);
+            return;
+        }
+
+        List<ConversionEvent> campaignPending = pendingConversionsState.get(conversion.getCampaignId());
+        if (campaignPending == null) {
+            campaignPending = new ArrayList<>();
+        }
+        campaignPending.add(conversion);
+        pendingConversionsState.put(conversion.getCampaignId(), campaignPending);
+        pendingCountState.update(pending + 1);
+
+        registerCleanupTimer(ctx, conversion.getTimestamp() + pendingGraceMs, CLICK_CLEANUP_GRANULARITY_MS);
+    }
+
+    // Re-tries buffered conversions of the clicked campaign against the updated history
+    private void matchPendingConversions(String campaignId, ClickHistory history, CampaignRule rule,
+                                         ReadOnlyContext ctx, Collector<AttributedEvent> out) throws Exception {
+        List<ConversionEvent> campaignPending = pendingConversionsState.get(campaignId);
+        if (campaignPending == null) {
+            return;
+        }
+
+        List<ConversionEvent> remaining = new ArrayList<>(campaignPending.size());
+        for (ConversionEvent conversion : campaignPending) {
+            if (!tryAttribute(conversion, history, rule, out)) {
+                remaining.add(conversion);
+            }
+        }
+        if (remaining.size() == campaignPending.size()) {
+            return;
+        }
+        if (remaining.isEmpty()) {
+            pendingConversionsState.remove(campaignId);
+        } else {
+            pendingConversionsState.put(campaignId, remaining);
+        }
+        adjustPendingCount(remaining.size() - campaignPending.size());
+    }
+
+    private void expirePendingConversions(long timestamp, OnTimerContext ctx) throws Exception {
+        if (pendingCountState.value() == null) {
+            return;
+        }
+
+        int expired = 0;
+        Iterator<Map.Entry<String, List<ConversionEvent>>> entries = pendingConversionsState.iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, List<ConversionEvent>> entry = entries.next();
+            List<ConversionEvent> remaining = new ArrayList<>();
+            for (ConversionEvent conversion : entry.getValue()) {
+                if (conversion.getTimestamp() + pendingGraceMs < timestamp) {
+                    emitUnattributed(conversion, ctx);
+                    expired++;
+                } else {
+                    remaining.add(conversion);
+                }
+            }
+            if (remaining.isEmpty()) {
+                entries.remove();
+            } else if (remaining.size() != entry.getValue().size()) {
+                entry.setValue(remaining);
+            }
+        }
+        adjustPendingCount(-expired);
+    }
+
+    private void emitUnattributed(ConversionEvent conversion, ReadOnlyContext ctx) {
+        unattributedConversions.inc();
+        ctx.output(UNATTRIBUTED_CONVERSIONS, conversion);
+    }
+
+    private void adjustPendingCount(int delta) throws Exception {
+        if (delta == 0) {
+            return;
+        }
+        Integer count = pendingCountState.value();
+        int updated = (count == null ? 0 : count) + delta;
+        if (updated <= 0) {
+            pendingCountState.clear();
         } else {
-            LOG.info("No matching click found for conversion {} (user: {}, campaign: {})", 
-                conversion.getEventId(), conversion.getUserId(), conversion.getCampaignId());
+            pendingCountState.update(updated);
+        }
+    }
+
+    // Emits one event per credited click. Fractional values are rounded to the conversion's
+    // scale, but at least to cents so a whole-unit value is not split into whole units, and
+    // the last credited click absorbs the rounding so the parts sum to the total.
+    private void emitAttributions(ConversionEvent conversion, ClickHistory history, int offset,
+                                  AttributionModel model, long windowMs, double[] credit,
+                                  Collector<AttributedEvent> out) {
+        // Whole hours, rounded up so a sub-hour window is never reported as zero
+        long hourMs = Duration.ofHours(1).toMillis();
+        int hours = (int) ((windowMs + hourMs - 1) / hourMs);
+        BigDecimal value = conversion.getValue();
+        int scale = value == null ? 0 : Math.max(value.scale(), 2);
+
+        int lastCredited = credit.length - 1;
+        while (lastCredited > 0 && credit[lastCredited] == 0) {
+            lastCredited--;
+        }
+
+        BigDecimal assigned = BigDecimal.ZERO;
+        for (int i = 0; i <= lastCredited; i++) {
+            if (credit[i] == 0) {
+                continue;
+            }
+            BigDecimal share;
+            if (credit[i] == 1.0 || value == null) {
+                share = value;
+            } else if (i == lastCredited) {
+                share = value.subtract(assigned);
+            } else {
+                share = value.multiply(BigDecimal.valueOf(credit[i])).setScale(scale, RoundingMode.HALF_EVEN);
+                assigned = assigned.add(share);
+            }
+
+            int click = offset + i;
+            out.collect(AttributedEvent.builder()
+                .conversionId(conversion.getEventId())
+                .clickId(history.clickIdAt(click))
+                .userId(conversion.getUserId())
+                .adId(history.adIdAt(click))
+                .campaignId(conversion.getCampaignId())
+                .source(history.sourceAt(click))
+                .conversionType(conversion.getType())
+                .value(share)
+                .clickTime(history.timestampAt(click))
+                .conversionTime(conversion.getTimestamp())
+                .attributionWindowHours(hours)
+                .attributionWindowMs(windowMs)
+                .attributionModel(model.name())
+                .credit(credit[i])
+                .build());
         }
     }
 }
@@ -0,0 +1,105 @@
+package com.example.adaggregator.flink;
+
+import com.example.adaggregator.flink.enrichment.BatchingMetadataLookup;
+import com.example.adaggregator.flink.enrichment.CampaignMetadata;
+import com.example.adaggregator.flink.enrichment.CampaignMetadataCache;
+import com.example.adaggregator.flink.enrichment.CampaignMetadataClient;
+import com.example.adaggregator.flink.enrichment.EnrichmentConfig;
+import com.example.adaggregator.flink.model.AttributedEvent;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.metrics.ThreadSafeSimpleCounter;
+import org.apache.flink.streaming.api.functions.async.ResultFuture;
+import org.apache.flink.streaming.api.functions.async.RichAsyncFunction;
+
+import java.util.List;
+
+/**
+ * Adds the campaign name and advertiser id to attributed events. Metadata is served from a
+ * bounded LRU/TTL cache per subtask; misses are grouped into batched lookups that complete
+ * on the client's threads, so no record waits on a blocking call. An event whose lookup
+ * fails or times out is emitted without metadata: an outage of the metadata source costs
+ * enrichment, not attribution output.
+ */
+public class CampaignEnrichmentFunction extends RichAsyncFunction<AttributedEvent, AttributedEvent> {
+
+    private final EnrichmentConfig config;
+    private final CampaignMetadataClient client;
+
+    private transient CampaignMetadataCache cache;
+    private transient BatchingMetadataLookup lookup;
+    private transient Counter cacheHits;
+    private transient Counter cacheMisses;
+    // Updated from the lookup callbacks, off the task thread
+    private transient Counter lookupFailures;
+    private transient Counter lookupTimeouts;
+
+    public CampaignEnrichmentFunction(EnrichmentConfig config, CampaignMetadataClient client) {
+        this.config = config;
+        this.client = client;
+    }
+
+    @Override
+    public void open(Configuration parameters) throws Exception {
+        client.open();
+        cache = new CampaignMetadataCache(config.getCacheSize(), config.getCacheTtl(), config.getMissingTtl());
+        lookup = new BatchingMetadataLookup(client, config.getBatchSize(), config.getBatchDelay());
+
+        MetricGroup metrics = getRuntimeContext().getMetricGroup();
+        cacheHits = metrics.counter("enrichmentCacheHits");
+        cacheMisses = metrics.counter("enrichmentCacheMisses");
+        lookupFailures = metrics.counter("enrichmentFailures", new ThreadSafeSimpleCounter());
+        lookupTimeouts = metrics.counter("enrichmentTimeouts");
+        metrics.gauge("enrichmentCacheSize", (Gauge<Integer>) cache::size);
+    }
+
+    @Override
+    public void asyncInvoke(AttributedEvent event, ResultFuture<AttributedEvent> resultFuture) {
+        String campaignId = event.getCampaignId();
+        CampaignMetadataCache.Entry cached = cache.get(campaignId, System.currentTimeMillis());
+        if (cached != null) {
+            cacheHits.inc();
+            resultFuture.complete(List.of(enrich(event, cached.metadata())));
+            return;
+        }
+
+        cacheMisses.inc();
+        lookup.lookup(campaignId).whenComplete((metadata, error) -> {
+            if (error != null) {
+                lookupFailures.inc();
+                resultFuture.complete(List.of(event));
+                return;
+            }
+            cache.put(campaignId, metadata, System.currentTimeMillis());
+            resultFuture.complete(List.of(enrich(event, metadata)));
+        });
+    }
+
+    // The operator ignores a late completion of the lookup once this has completed the result
+    @Override
+    public void timeout(AttributedEvent event, ResultFuture<AttributedEvent> resultFuture) {
+        lookupTimeouts.inc();
+        resultFuture.complete(List.of(event));
+    }
+
+    // Copies rather than sets: after a timeout the input event may already be on its way downstream
+    private static AttributedEvent enrich(AttributedEvent event, CampaignMetadata metadata) {
+        if (metadata == null) {
+            return event;
+        }
+        return event.toBuilder()
+            .campaignName(metadata.getCampaignName())
+            .advertiserId(metadata.getAdvertiserId())
+            .build();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (lookup != null) {
+            lookup.close();
+        }
+        client.close();
+    }
+}
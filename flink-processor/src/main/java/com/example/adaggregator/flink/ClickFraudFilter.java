@@ -0,0 +1,130 @@
+package com.example.adaggregator.flink;
+
+import com.example.adaggregator.flink.fraud.ClickRate;
+import com.example.adaggregator.flink.fraud.FraudConfig;
+import com.example.adaggregator.flink.fraud.FraudThresholds;
+import com.example.adaggregator.flink.model.ClickEvent;
+import com.example.adaggregator.flink.model.Event;
+import com.example.adaggregator.flink.typeutils.ModelTypes;
+import org.apache.flink.api.common.state.BroadcastState;
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeinfo.Types;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.streaming.api.functions.co.KeyedBroadcastProcessFunction;
+import org.apache.flink.util.Collector;
+import org.apache.flink.util.OutputTag;
+
+/**
+ * Quarantines clicks from users clicking faster than the configured limits before they reach
+ * attribution state. Click rates are counted per user and per (user, campaign) in sliding
+ * event-time windows; the limits come from the fraud thresholds control topic, broadcast to
+ * every subtask, and fall back to the job parameters until the first update arrives.
+ * Quarantined clicks still count towards the rate, so a bot stays quarantined while it keeps
+ * clicking. Conversions always pass.
+ */
+public class ClickFraudFilter extends KeyedBroadcastProcessFunction<String, Event, FraudThresholds, Event> {
+
+    public static final OutputTag<Event> QUARANTINED_CLICKS = new OutputTag<>("quarantined-clicks", ModelTypes.EVENT);
+
+    public static final MapStateDescriptor<String, FraudThresholds> THRESHOLDS_DESCRIPTOR = new MapStateDescriptor<>(
+        "fraud-thresholds",
+        Types.STRING,
+        TypeInformation.of(FraudThresholds.class)
+    );
+    // Broadcast state holds a single entry
+    private static final String CURRENT_THRESHOLDS = "current";
+
+    private final FraudThresholds initialThresholds;
+    private final int buckets;
+    private final long bucketMs;
+
+    private transient ValueState<ClickRate> userRateState;
+    private transient MapState<String, ClickRate> campaignRateState;
+    private transient Counter quarantinedClicks;
+    private transient Counter thresholdUpdates;
+
+    public ClickFraudFilter() {
+        this(FraudConfig.defaults());
+    }
+
+    public ClickFraudFilter(FraudConfig config) {
+        this.initialThresholds = config.initialThresholds();
+        this.buckets = config.getBuckets();
+        this.bucketMs = Math.max(1, config.getWindow().toMillis() / config.getBuckets());
+    }
+
+    @Override
+    public void open(Configuration parameters) throws Exception {
+        userRateState = getRuntimeContext().getState(
+            new ValueStateDescriptor<>("user-click-rate", ModelTypes.CLICK_RATE));
+        campaignRateState = getRuntimeContext().getMapState(
+            new MapStateDescriptor<>("campaign-click-rate", Types.STRING, ModelTypes.CLICK_RATE));
+
+        MetricGroup metrics = getRuntimeContext().getMetricGroup();
+        quarantinedClicks = metrics.counter("quarantinedClicks");
+        thresholdUpdates = metrics.counter("fraudThresholdUpdates");
+    }
+
+    @Override
+    public void processElement(Event event, ReadOnlyContext ctx, Collector<Event> out) throws Exception {
+        if (!(event instanceof ClickEvent)) {
+            out.collect(event);
+            return;
+        }
+
+        FraudThresholds thresholds = ctx.getBroadcastState(THRESHOLDS_DESCRIPTOR).get(CURRENT_THRESHOLDS);
+        if (thresholds == null) {
+            thresholds = initialThresholds;
+        }
+
+        long timestamp = event.getTimestamp();
+        ClickRate userRate = userRateState.value();
+        if (userRate == null) {
+            userRate = new ClickRate(buckets);
+        }
+        int userClicks = userRate.add(timestamp, bucketMs);
+        userRateState.update(userRate);
+
+        ClickRate campaignRate = campaignRateState.get(event.getCampaignId());
+        if (campaignRate == null) {
+            campaignRate = new ClickRate(buckets);
+        }
+        int campaignClicks = campaignRate.add(timestamp, bucketMs);
+        campaignRateState.put(event.getCampaignId(), campaignRate);
+
+        // One timer per user and bucket at most; it clears the state once the user goes quiet
+        ctx.timerService().registerEventTimeTimer(userRate.windowEnd(bucketMs));
+
+        if (userClicks > thresholds.getMaxClicksPerUser()
+                || campaignClicks > thresholds.getMaxClicksPerUserCampaign()) {
+            quarantinedClicks.inc();
+            ctx.output(QUARANTINED_CLICKS, event);
+        } else {
+            out.collect(event);
+        }
+    }
+
+    @Override
+    public void processBroadcastElement(FraudThresholds update, Context ctx, Collector<Event> out) throws Exception {
+        BroadcastState<String, FraudThresholds> state = ctx.getBroadcastState(THRESHOLDS_DESCRIPTOR);
+        FraudThresholds current = state.get(CURRENT_THRESHOLDS);
+        state.put(CURRENT_THRESHOLDS, (current != null ? current : initialThresholds).mergedWith(update));
+        thresholdUpdates.inc();
+    }
+
+    @Override
+    public void onTimer(long timestamp, OnTimerContext ctx, Collector<Event> out) throws Exception {
+        // Every campaign rate of the user is at most as recent as the user's own
+        ClickRate userRate = userRateState.value();
+        if (userRate != null && timestamp >= userRate.windowEnd(bucketMs)) {
+            userRateState.clear();
+            campaignRateState.clear();
+        }
+    }
+}
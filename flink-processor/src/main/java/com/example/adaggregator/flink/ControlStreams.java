@@ -0,0 +1,60 @@
+package com.example.adaggregator.flink;
+
+import org.apache.flink.api.common.eventtime.Watermark;
+import org.apache.flink.api.common.eventtime.WatermarkGenerator;
+import org.apache.flink.api.common.eventtime.WatermarkOutput;
+import org.apache.flink.api.common.eventtime.WatermarkStrategy;
+import org.apache.flink.api.common.serialization.DeserializationSchema;
+import org.apache.flink.connector.kafka.source.KafkaSource;
+import org.apache.flink.connector.kafka.source.KafkaSourceBuilder;
+import org.apache.flink.connector.kafka.source.enumerator.initializer.OffsetsInitializer;
+import org.apache.flink.streaming.api.datastream.DataStream;
+import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
+
+import java.time.Duration;
+
+/** Sources for the low-volume control topics that are broadcast into the processing operators. */
+final class ControlStreams {
+
+    private static final Duration IDLE_TIMEOUT = Duration.ofSeconds(30);
+
+    private ControlStreams() {
+    }
+
+    // Read from the beginning on a fresh start so the latest update is replayed; on restore the
+    // source resumes from its checkpointed offsets and the broadcast state already holds it. A
+    // backfill reads up to the current end: BATCH mode consumes broadcast inputs before the
+    // events, so the latest updates apply to the whole replayed range
+    static <T> DataStream<T> fromTopic(StreamExecutionEnvironment env, JobConfig config, String topic,
+                                       DeserializationSchema<T> schema, String uid) {
+        KafkaSourceBuilder<T> builder = KafkaSource.<T>builder()
+            .setBootstrapServers(config.getBootstrapServers())
+            .setTopics(topic)
+            .setGroupId(config.getGroupId() + "-" + topic)
+            .setStartingOffsets(OffsetsInitializer.earliest())
+            .setValueOnlyDeserializer(schema);
+        if (config.getBackfill() != null) {
+            builder.setBounded(OffsetsInitializer.latest());
+        }
+        return env.fromSource(builder.build(), watermarkStrategy(), topic + " control source")
+            .uid(uid)
+            .setParallelism(1);
+    }
+
+    // Control records carry no event time. The operator they are connected to takes the minimum
+    // watermark of its inputs, so this input is pinned to the maximum, and marked idle while it
+    // has no partition to read, to never hold back event time
+    static <T> WatermarkStrategy<T> watermarkStrategy() {
+        return WatermarkStrategy.<T>forGenerator(context -> new WatermarkGenerator<>() {
+                @Override
+                public void onEvent(T event, long eventTimestamp, WatermarkOutput output) {
+                }
+
+                @Override
+                public void onPeriodicEmit(WatermarkOutput output) {
+                    output.emitWatermark(new Watermark(Long.MAX_VALUE));
+                }
+            })
+            .withIdleness(IDLE_TIMEOUT);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.adaggregator.flink;
+
+import com.example.adaggregator.flink.hotkeys.HotKeyConfig;
+import com.example.adaggregator.flink.hotkeys.HotKeyPolicy;
+import com.example.adaggregator.flink.hotkeys.SpaceSaving;
+import com.example.adaggregator.flink.model.ClickEvent;
+import com.example.adaggregator.flink.model.Event;
+import com.example.adaggregator.flink.typeutils.ModelTypes;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.streaming.api.functions.ProcessFunction;
+import org.apache.flink.util.Collector;
+import org.apache.flink.util.OutputTag;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Finds user ids that dominate this subtask's traffic before the stream is keyed by user, where
+ * a single bot or shared device id would otherwise pin one attribution subtask and backpressure
+ * the whole job. Counting runs in a {@link SpaceSaving} sketch per processing-time interval; keys
+ * above the configured share in one interval are hot for the next, and the policy is applied to
+ * their clicks. The sketch is not checkpointed, since one interval rebuilds it.
+ */
+public class HotKeyDetector extends ProcessFunction<Event, Event> {
+
+    // Clicks of hot keys that THROTTLE or DIVERT kept away from the keyed operators
+    public static final OutputTag<Event> HOT_KEY_EVENTS = new OutputTag<>("hot-key-events", ModelTypes.EVENT);
+
+    // Hot keys listed in the hotKeyIds gauge
+    private static final int REPORTED_HOT_KEYS = 10;
+
+    private final HotKeyConfig config;
+    private final long intervalMs;
+    private final long throttleBudget;
+
+    private transient SpaceSaving sketch;
+    private transient long intervalEnd;
+    // Hot keys of the current interval and the events let through for each
+    private transient Map<String, Long> hotKeys;
+    private transient double heaviestKeyShare;
+    private transient String hotKeyIds;
+    private transient Counter hotKeyEvents;
+    private transient Counter hotKeyEventsDiverted;
+    private transient Counter hotKeyEventsDropped;
+
+    public HotKeyDetector(HotKeyConfig config) {
+        this.config = config;
+        this.intervalMs = config.getInterval().toMillis();
+        this.throttleBudget = Math.max(1, config.getThrottleRate() * intervalMs / 1000);
+    }
+
+    @Override
+    public void open(Configuration parameters) throws Exception {
+        sketch = new SpaceSaving(config.getSketchCapacity());
+        intervalEnd = Long.MIN_VALUE;
+        hotKeys = new HashMap<>();
+        hotKeyIds = "";
+
+        MetricGroup metrics = getRuntimeContext().getMetricGroup();
+        hotKeyEvents = metrics.counter("hotKeyEvents");
+        hotKeyEventsDiverted = metrics.counter("hotKeyEventsDiverted");
+        hotKeyEventsDropped = metrics.counter("hotKeyEventsDropped");
+        metrics.gauge("hotKeys", (Gauge<Integer>) () -> hotKeys.size());
+        metrics.gauge("heaviestKeyShare", (Gauge<Double>) () -> heaviestKeyShare);
+        metrics.gauge("hotKeyIds", (Gauge<String>) () -> hotKeyIds);
+    }
+
+    @Override
+    public void processElement(Event event, Context ctx, Collector<Event> out) {
+        long now = ctx.timerService().currentProcessingTime();
+        if (now >= intervalEnd) {
+            rollInterval(now);
+        }
+
+        String key = event.getUserId();
+        sketch.offer(key);
+
+        Long passed = hotKeys.get(key);
+        if (passed == null || config.getPolicy() == HotKeyPolicy.MONITOR) {
+            out.collect(event);
+            return;
+        }
+
+        hotKeyEvents.inc();
+        // Conversions always reach attribution; holding one back would lose its credit
+        if (!(event instanceof ClickEvent)) {
+            out.collect(event);
+            return;
+        }
+        switch (config.getPolicy()) {
+            case THROTTLE -> {
+                if (passed < throttleBudget) {
+                    hotKeys.put(key, passed + 1);
+                    out.collect(event);
+                } else {
+                    divert(event, ctx);
+                }
+            }
+            case DIVERT -> divert(event, ctx);
+            case FILTER -> hotKeyEventsDropped.inc();
+            default -> out.collect(event);
+        }
+    }
+
+    private void divert(Event event, Context ctx) {
+        hotKeyEventsDiverted.inc();
+        ctx.output(HOT_KEY_EVENTS, event);
+    }
+
+    private void rollInterval(long now) {
+        long total = sketch.total();
+        long threshold = Math.max(config.getMinEvents(), (long) Math.ceil(config.getHotShare() * total));
+
+        // Lower bounds only, so a key is never flagged on the sketch's overestimate
+        Map<String, Long> hot = new HashMap<>();
+        long heaviest = 0;
+        for (SpaceSaving.Entry entry : sketch.entries()) {
+            heaviest = Math.max(heaviest, entry.guaranteedCount());
+            if (entry.guaranteedCount() >= threshold) {
+                hot.put(entry.key(), 0L);
+            }
+        }
+        hotKeys = hot;
+        heaviestKeyShare = total == 0 ? 0.0 : (double) heaviest / total;
+        hotKeyIds = hot.keySet().stream().limit(REPORTED_HOT_KEYS).collect(Collectors.joining(","));
+
+        sketch.clear();
+        intervalEnd = now + intervalMs;
+    }
+}
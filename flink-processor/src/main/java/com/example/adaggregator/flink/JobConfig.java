@@ -0,0 +1,266 @@
+package com.example.adaggregator.flink;
+
+import com.example.adaggregator.flink.attribution.AttributionModel;
+import com.example.adaggregator.flink.backfill.BackfillConfig;
+import com.example.adaggregator.flink.clickhouse.ClickHouseSinkConfig;
+import com.example.adaggregator.flink.enrichment.EnrichmentConfig;
+import com.example.adaggregator.flink.fraud.FraudConfig;
+import com.example.adaggregator.flink.hotkeys.HotKeyConfig;
+import com.example.adaggregator.flink.hotkeys.HotKeyPolicy;
+import lombok.Builder;
+import lombok.Data;
+import org.apache.flink.api.java.utils.ParameterTool;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.connector.base.DeliveryGuarantee;
+import org.apache.flink.connector.kafka.source.enumerator.initializer.OffsetsInitializer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.apache.flink.util.TimeUtils.parseDuration;
+
+/**
+ * Job topology and tuning, read from {@code --key value} arguments and optionally a properties
+ * file given with {@code --config}; arguments win over the file. Keys under the Flink option
+ * namespaces ({@code state.}, {@code execution.checkpointing.}, ...) are handed to Flink as-is.
+ */
+@Data
+@Builder
+public class JobConfig {
+
+    // Flink derives 128 key groups for small jobs; pinning it keeps existing savepoints
+    // restorable while parallelism is changed
+    public static final int DEFAULT_MAX_PARALLELISM = 128;
+
+    private static final String[] FLINK_OPTION_PREFIXES = {
+        "state.", "execution.checkpointing.", "taskmanager.network.", "restart-strategy", "pipeline."
+    };
+
+    private static final Map<String, String> FLINK_DEFAULTS = Map.of(
+        "state.backend.type", "rocksdb",
+        "state.backend.incremental", "true",
+        "execution.checkpointing.interval", "1 min",
+        "execution.checkpointing.min-pause", "10 s"
+    );
+
+    private String bootstrapServers;
+    private String inputTopic;
+    private String outputTopic;
+    private String unattributedTopic;
+    // Raw records that could not be decoded, copied unchanged with the error in a header
+    private String deadLetterTopic;
+    // Per-window click counts per campaign, source and ad, for reporting
+    private String clickAggregatesTopic;
+    // Events of hot user ids held back by the throttle or divert policies
+    private String hotKeyTopic;
+    // Clicks over the fraud limits, and the control topic those limits are updated through
+    private String quarantinedClicksTopic;
+    private String fraudThresholdsTopic;
+    // Control topic of per-campaign attribution window, model and dedup retention overrides
+    private String attributionRulesTopic;
+    private String groupId;
+    // earliest, latest, or committed (falling back to earliest)
+    private String startingOffsets;
+    // Exactly-once sinks write in Kafka transactions committed on checkpoint completion
+    private DeliveryGuarantee deliveryGuarantee;
+    private String transactionalIdPrefix;
+    // Must not exceed the broker's transaction.max.timeout.ms (15 minutes by default)
+    private Duration transactionTimeout;
+
+    // Null leaves the parallelism to the environment default
+    private Integer parallelism;
+    private Integer sourceParallelism;
+    private Integer attributionParallelism;
+    private Integer sinkParallelism;
+    private int maxParallelism;
+    private String sinkSlotSharingGroup;
+    // Operator id of the attribution step in savepoints taken before uids were assigned
+    private String attributionLegacyUidHash;
+
+    private AttributionConfig attribution;
+    private HotKeyConfig hotKeys;
+    private boolean fraudFilterEnabled;
+    private FraudConfig fraud;
+    private boolean clickAggregationEnabled;
+    private Duration clickAggregationWindow;
+    // Clicks this late re-fire their window with the clicks added since; later ones are dropped
+    private Duration clickAggregationAllowedLateness;
+    // Adds campaign metadata to attributed events; needs an enrichment.file or enrichment.endpoint
+    private boolean enrichmentEnabled;
+    private EnrichmentConfig enrichment;
+    // Null unless backfill.enabled; then the job reprocesses a bounded range of history in BATCH mode
+    private BackfillConfig backfill;
+    // Null unless clickhouse.sink.enabled; then attributed events are also written to ClickHouse directly
+    private ClickHouseSinkConfig clickHouseSink;
+    private Configuration flinkConfiguration;
+
+    public static JobConfig fromArgs(String[] args) throws IOException {
+        ParameterTool params = ParameterTool.fromArgs(args);
+        if (params.has("config")) {
+            params = ParameterTool.fromPropertiesFile(params.get("config")).mergeWith(params);
+        }
+        return fromParameters(params);
+    }
+
+    public static JobConfig fromParameters(ParameterTool params) {
+        AttributionConfig defaults = AttributionConfig.defaults();
+        AttributionConfig attribution = AttributionConfig.builder()
+            .attributionWindow(parseDuration(params.get("attribution.window", "24 h")))
+            .dedupRetention(parseDuration(params.get("attribution.dedup-retention", "7 d")))
+            .model(AttributionModel.fromName(params.get("attribution.model", defaults.getModel().name())))
+            .maxClicksPerCampaign(params.getInt("attribution.max-clicks-per-campaign", defaults.getMaxClicksPerCampaign()))
+            .pendingConversionGrace(parseDuration(params.get("attribution.pending-grace", "15 min")))
+            .maxPendingConversions(params.getInt("attribution.max-pending-conversions", defaults.getMaxPendingConversions()))
+            .migrateLegacyClickState(params.getBoolean("attribution.migrate-legacy-click-state", false))
+            .build();
+
+        BackfillConfig backfill = params.getBoolean("backfill.enabled", false) ? backfill(params) : null;
+        HotKeyConfig hotKeys = hotKeys(params);
+        if (backfill != null) {
+            // Throttle and divert act on processing-time rates, which a replay at batch speed does
+            // not reproduce; hot keys are only reported
+            hotKeys.setPolicy(HotKeyPolicy.MONITOR);
+        }
+
+        // BATCH mode takes no checkpoints, so an exactly-once sink would write the whole backfill in
+        // one Kafka transaction that the broker aborts once it outlives the transaction timeout
+        DeliveryGuarantee deliveryGuarantee = DeliveryGuarantee.valueOf(
+            params.get("kafka.delivery-guarantee", backfill != null ? "at-least-once" : "exactly-once")
+                .toUpperCase().replace('-', '_'));
+        if (backfill != null && deliveryGuarantee == DeliveryGuarantee.EXACTLY_ONCE) {
+            throw new IllegalArgumentException(
+                "kafka.delivery-guarantee exactly-once is not supported with backfill.enabled; use at-least-once");
+        }
+
+        return JobConfig.builder()
+            .bootstrapServers(params.get("kafka.bootstrap-servers",
+                System.getenv().getOrDefault("KAFKA_BOOTSTRAP_SERVERS", "kafka:29092")))
+            .inputTopic(params.get("kafka.input-topic", "raw-events"))
+            .outputTopic(params.get("kafka.output-topic", "attributed-events"))
+            .unattributedTopic(params.get("kafka.unattributed-topic", "unattributed-conversions"))
+            .deadLetterTopic(params.get("kafka.dead-letter-topic", "raw-events-dlq"))
+            .clickAggregatesTopic(params.get("kafka.click-aggregates-topic", "click-aggregates"))
+            .hotKeyTopic(params.get("kafka.hot-key-topic", "hot-key-events"))
+            .quarantinedClicksTopic(params.get("kafka.quarantined-clicks-topic", "quarantined-clicks"))
+            .fraudThresholdsTopic(params.get("kafka.fraud-thresholds-topic", "fraud-thresholds"))
+            .attributionRulesTopic(params.get("kafka.attribution-rules-topic", "attribution-rules"))
+            .groupId(params.get("kafka.group-id", "flink-attribution-group"))
+            .startingOffsets(params.get("kafka.starting-offsets", "earliest"))
+            .deliveryGuarantee(deliveryGuarantee)
+            // A backfill running next to the live job must not fence its transactions
+            .transactionalIdPrefix(params.get("kafka.transactional-id-prefix",
+                backfill != null ? "attribution-backfill" : "attribution-job"))
+            .transactionTimeout(parseDuration(params.get("kafka.transaction-timeout", "15 min")))
+            .parallelism(optionalInt(params, "parallelism"))
+            .sourceParallelism(optionalInt(params, "source.parallelism"))
+            .attributionParallelism(optionalInt(params, "attribution.parallelism"))
+            .sinkParallelism(optionalInt(params, "sink.parallelism"))
+            .maxParallelism(params.getInt("max-parallelism", DEFAULT_MAX_PARALLELISM))
+            .sinkSlotSharingGroup(params.get("sink.slot-sharing-group", "default"))
+            .attributionLegacyUidHash(params.get("attribution.legacy-uid-hash"))
+            .attribution(attribution)
+            .hotKeys(hotKeys)
+            .fraudFilterEnabled(params.getBoolean("fraud.enabled", false))
+            .fraud(fraud(params))
+            .clickAggregationEnabled(params.getBoolean("aggregation.clicks.enabled", false))
+            .clickAggregationWindow(parseDuration(params.get("aggregation.clicks.window", "1 min")))
+            .clickAggregationAllowedLateness(parseDuration(params.get("aggregation.clicks.allowed-lateness", "0 s")))
+            .enrichmentEnabled(params.getBoolean("enrichment.enabled", false))
+            .enrichment(enrichment(params))
+            .backfill(backfill)
+            .clickHouseSink(params.getBoolean("clickhouse.sink.enabled", false) ? clickHouseSink(params) : null)
+            .flinkConfiguration(flinkConfiguration(params))
+            .build();
+    }
+
+    public OffsetsInitializer startingOffsetsInitializer() {
+        return switch (startingOffsets) {
+            case "earliest" -> OffsetsInitializer.earliest();
+            case "latest" -> OffsetsInitializer.latest();
+            case "committed" -> OffsetsInitializer.committedOffsets(OffsetResetStrategy.EARLIEST);
+            default -> throw new IllegalArgumentException("Unknown kafka.starting-offsets: " + startingOffsets);
+        };
+    }
+
+    private static HotKeyConfig hotKeys(ParameterTool params) {
+        HotKeyConfig defaults = HotKeyConfig.defaults();
+        return HotKeyConfig.builder()
+            .policy(HotKeyPolicy.fromName(params.get("hot-keys.policy", defaults.getPolicy().name())))
+            .interval(parseDuration(params.get("hot-keys.interval", "10 s")))
+            .hotShare(params.getDouble("hot-keys.share", defaults.getHotShare()))
+            .minEvents(params.getLong("hot-keys.min-events", defaults.getMinEvents()))
+            .sketchCapacity(params.getInt("hot-keys.sketch-capacity", defaults.getSketchCapacity()))
+            .throttleRate(params.getLong("hot-keys.throttle-rate", defaults.getThrottleRate()))
+            .build();
+    }
+
+    private static FraudConfig fraud(ParameterTool params) {
+        FraudConfig defaults = FraudConfig.defaults();
+        return FraudConfig.builder()
+            .window(parseDuration(params.get("fraud.window", "1 min")))
+            .buckets(params.getInt("fraud.buckets", defaults.getBuckets()))
+            .maxClicksPerUser(params.getInt("fraud.max-clicks-per-user", defaults.getMaxClicksPerUser()))
+            .maxClicksPerUserCampaign(params.getInt("fraud.max-clicks-per-user-campaign",
+                defaults.getMaxClicksPerUserCampaign()))
+            .build();
+    }
+
+    private static EnrichmentConfig enrichment(ParameterTool params) {
+        EnrichmentConfig defaults = EnrichmentConfig.defaults();
+        return EnrichmentConfig.builder()
+            .client(params.get("enrichment.client", defaults.getClient()))
+            .file(params.get("enrichment.file"))
+            .endpoint(params.get("enrichment.endpoint"))
+            .cacheSize(params.getInt("enrichment.cache-size", defaults.getCacheSize()))
+            .cacheTtl(parseDuration(params.get("enrichment.cache-ttl", "10 min")))
+            .missingTtl(parseDuration(params.get("enrichment.missing-ttl", "1 min")))
+            .batchSize(params.getInt("enrichment.batch-size", defaults.getBatchSize()))
+            .batchDelay(parseDuration(params.get("enrichment.batch-delay", "10 ms")))
+            .timeout(parseDuration(params.get("enrichment.timeout", "2 s")))
+            .capacity(params.getInt("enrichment.capacity", defaults.getCapacity()))
+            .build();
+    }
+
+    private static BackfillConfig backfill(ParameterTool params) {
+        BackfillConfig defaults = BackfillConfig.defaults();
+        return BackfillConfig.builder()
+            .startOffsets(params.get("backfill.start-offsets", defaults.getStartOffsets()))
+            .endOffsets(params.get("backfill.end-offsets", defaults.getEndOffsets()))
+            .path(params.get("backfill.path"))
+            .build();
+    }
+
+    private static ClickHouseSinkConfig clickHouseSink(ParameterTool params) {
+        ClickHouseSinkConfig defaults = ClickHouseSinkConfig.builder().build();
+        return ClickHouseSinkConfig.builder()
+            .endpoint(params.get("clickhouse.endpoint", defaults.getEndpoint()))
+            .database(params.get("clickhouse.database", defaults.getDatabase()))
+            .table(params.get("clickhouse.table", defaults.getTable()))
+            .user(params.get("clickhouse.user", System.getenv("CLICKHOUSE_USER")))
+            .password(params.get("clickhouse.password", System.getenv("CLICKHOUSE_PASSWORD")))
+            .maxBatchRows(params.getInt("clickhouse.batch.max-rows", defaults.getMaxBatchRows()))
+            .maxBatchDelay(parseDuration(params.get("clickhouse.batch.max-delay", "1 s")))
+            .maxRetries(params.getInt("clickhouse.max-retries", defaults.getMaxRetries()))
+            .build();
+    }
+
+    private static Configuration flinkConfiguration(ParameterTool params) {
+        Map<String, String> options = new HashMap<>(FLINK_DEFAULTS);
+        for (Map.Entry<String, String> entry : params.toMap().entrySet()) {
+            for (String prefix : FLINK_OPTION_PREFIXES) {
+                if (entry.getKey().startsWith(prefix)) {
+                    options.put(entry.getKey(), entry.getValue());
+                    break;
+                }
+            }
+        }
+        return Configuration.fromMap(options);
+    }
+
+    private static Integer optionalInt(ParameterTool params, String key) {
+        return params.has(key) ? params.getInt(key) : null;
+    }
+}
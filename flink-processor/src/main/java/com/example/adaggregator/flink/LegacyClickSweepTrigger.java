@@ -0,0 +1,58 @@
+package com.example.adaggregator.flink;
+
+import com.example.adaggregator.flink.attribution.CampaignRule;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.streaming.api.datastream.DataStream;
+import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
+import org.apache.flink.streaming.api.functions.source.RichSourceFunction;
+
+import java.time.Duration;
+
+/**
+ * Broadcasts {@link AttributionProcessFunction#legacyClickSweep()} into the attribution step
+ * one attribution window after the job starts or restores, and once per window after that.
+ * Legacy clicks of users who send nothing have no key context to hang a timer on, so the
+ * function sweeps them from the broadcast side when the marker arrives; a marker that finds
+ * the state drained costs it a flag check.
+ */
+@SuppressWarnings("deprecation")
+final class LegacyClickSweepTrigger extends RichSourceFunction<CampaignRule> {
+
+    private final long intervalMs;
+    private volatile boolean running = true;
+
+    private LegacyClickSweepTrigger(Duration interval) {
+        this.intervalMs = interval.toMillis();
+    }
+
+    static DataStream<CampaignRule> create(StreamExecutionEnvironment env, Duration interval) {
+        return env.addSource(new LegacyClickSweepTrigger(interval), "Legacy Click Sweep Trigger",
+                TypeInformation.of(CampaignRule.class))
+            .uid("legacy-click-sweep-trigger")
+            .setParallelism(1)
+            .assignTimestampsAndWatermarks(ControlStreams.watermarkStrategy())
+            .uid("legacy-click-sweep-watermarks");
+    }
+
+    @Override
+    public void run(SourceContext<CampaignRule> ctx) throws InterruptedException {
+        long next = System.currentTimeMillis() + intervalMs;
+        while (running) {
+            long wait = next - System.currentTimeMillis();
+            if (wait > 0) {
+                // Short naps so cancel() is noticed promptly
+                Thread.sleep(Math.min(wait, 1000L));
+                continue;
+            }
+            synchronized (ctx.getCheckpointLock()) {
+                ctx.collect(AttributionProcessFunction.legacyClickSweep());
+            }
+            next += intervalMs;
+        }
+    }
+
+    @Override
+    public void cancel() {
+        running = false;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.adaggregator.flink.aggregation;
+
+import com.example.adaggregator.flink.model.ClickAggregate;
+import com.example.adaggregator.flink.model.ClickEvent;
+import com.example.adaggregator.flink.model.Event;
+import com.example.adaggregator.flink.typeutils.ModelTypes;
+import org.apache.flink.api.common.functions.AggregateFunction;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeinfo.Types;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.streaming.api.datastream.DataStream;
+import org.apache.flink.streaming.api.datastream.SingleOutputStreamOperator;
+import org.apache.flink.streaming.api.functions.windowing.ProcessWindowFunction;
+import org.apache.flink.streaming.api.windowing.assigners.TumblingEventTimeWindows;
+import org.apache.flink.streaming.api.windowing.windows.TimeWindow;
+import org.apache.flink.util.Collector;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Counts clicks per campaign, source and ad in tumbling event-time windows. The count is kept
+ * incrementally, so an open window holds one long per key instead of buffering its clicks, and
+ * only one record per key and window leaves the job. A late firing emits only the clicks added
+ * since the window last fired, so downstream sums every record.
+ */
+public final class ClickAggregation {
+
+    static final TypeInformation<Tuple3<String, String, String>> KEY_TYPE =
+        Types.TUPLE(Types.STRING, Types.STRING, Types.STRING);
+
+    private ClickAggregation() {
+    }
+
+    public static SingleOutputStreamOperator<ClickAggregate> aggregate(DataStream<Event> events, Duration window,
+                                                                       Duration allowedLateness) {
+        return events
+            .filter(ClickEvent.class::isInstance)
+            .map(ClickEvent.class::cast)
+            .returns(ModelTypes.CLICK_EVENT)
+            .keyBy(ClickAggregation::key, KEY_TYPE)
+            .window(TumblingEventTimeWindows.of(window))
+            .allowedLateness(allowedLateness)
+            .aggregate(new CountClicks(), new EmitClickAggregate());
+    }
+
+    // Tuple fields cannot be null; the ClickHouse columns are non-nullable strings as well
+    static Tuple3<String, String, String> key(ClickEvent click) {
+        return Tuple3.of(
+            click.getCampaignId(),
+            Objects.toString(click.getSource(), ""),
+            Objects.toString(click.getAdId(), "")
+        );
+    }
+
+    public static class CountClicks implements AggregateFunction<ClickEvent, Long, Long> {
+        @Override
+        public Long createAccumulator() {
+            return 0L;
+        }
+
+        @Override
+        public Long add(ClickEvent click, Long count) {
+            return count + 1;
+        }
+
+        @Override
+        public Long getResult(Long count) {
+            return count;
+        }
+
+        @Override
+        public Long merge(Long a, Long b) {
+            return a + b;
+        }
+    }
+
+    public static class EmitClickAggregate
+        extends ProcessWindowFunction<Long, ClickAggregate, Tuple3<String, String, String>, TimeWindow> {
+
+        // Clicks already emitted for the window, kept until the window is purged after its lateness
+        private static final ValueStateDescriptor<Long> EMITTED =
+            new ValueStateDescriptor<>("emitted-clicks", Types.LONG);
+
+        @Override
+        public void process(Tuple3<String, String, String> key, Context context, Iterable<Long> counts,
+                            Collector<ClickAggregate> out) throws Exception {
+            long total = counts.iterator().next();
+            ValueState<Long> emitted = context.windowState().getState(EMITTED);
+            long previous = emitted.value() == null ? 0L : emitted.value();
+            if (total == previous) {
+                return;
+            }
+            emitted.update(total);
+            out.collect(ClickAggregate.builder()
+                .campaignId(key.f0)
+                .source(key.f1)
+                .adId(key.f2)
+                .windowStart(context.window().getStart())
+                .clicks(total - previous)
+                .build());
+        }
+
+        @Override
+        public void clear(Context context) {
+            context.windowState().getState(EMITTED).clear();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.adaggregator.flink.attribution;
+
+import java.io.Serializable;
+import java.time.Duration;
+
+/**
+ * Splits the credit for one conversion across the clicks that are eligible for it.
+ */
+public interface AttributionModel extends Serializable {
+
+    /**
+     * @param clickTimes     timestamps of the eligible clicks, oldest first; never empty
+     * @param conversionTime timestamp of the conversion
+     * @return credit per click, in the same order, summing to 1
+     */
+    double[] assignCredit(long[] clickTimes, long conversionTime);
+
+    /** Name written to {@code attribution_model} in the output. */
+    String name();
+
+    static AttributionModel fromName(String name) {
+        return switch (name.toLowerCase()) {
+            case LastClickModel.NAME -> new LastClickModel();
+            case FirstClickModel.NAME -> new FirstClickModel();
+            case LinearModel.NAME -> new LinearModel();
+            case TimeDecayModel.NAME -> new TimeDecayModel(TimeDecayModel.DEFAULT_HALF_LIFE);
+            default -> throw new IllegalArgumentException("Unknown attribution model: " + name);
+        };
+    }
+
+    static AttributionModel timeDecay(Duration halfLife) {
+        return new TimeDecayModel(halfLife);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.adaggregator.flink.attribution;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Attribution settings of one campaign, as read from the attribution rules control topic. Each
+ * update replaces the campaign's previous rule; a field left out falls back to the job's
+ * attribution parameters, and a rule without any field reverts the campaign to them entirely.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CampaignRule implements Serializable {
+    private String campaignId;
+
+    private Long attributionWindowMs;
+
+    // Canonical model name, see AttributionModel#fromName
+    private String model;
+
+    private Long dedupRetentionMs;
+
+    public boolean hasOverrides() {
+        return attributionWindowMs != null || model != null || dedupRetentionMs != null;
+    }
+}
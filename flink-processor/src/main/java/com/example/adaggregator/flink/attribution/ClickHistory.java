@@ -0,0 +1,137 @@
+package com.example.adaggregator.flink.attribution;
+
+import com.example.adaggregator.flink.typeutils.ModelTypes;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.apache.flink.api.common.typeinfo.TypeInfo;
+
+/**
+ * Fixed-capacity ring buffer of the clicks a user made on one campaign, kept oldest first.
+ * Only the fields attribution needs are stored, in parallel arrays, so an entry costs one
+ * long and three string references instead of a full {@code ClickEvent} with its metadata.
+ * When full, the oldest click is overwritten.
+ */
+@Getter
+@Setter
+@TypeInfo(ModelTypes.ClickHistoryFactory.class)
+@NoArgsConstructor
+public class ClickHistory {
+
+    private long[] timestamps;
+    private String[] clickIds;
+    private String[] adIds;
+    private String[] sources;
+    // Physical index of the oldest click
+    private int head;
+    private int size;
+
+    public ClickHistory(int capacity) {
+        this.timestamps = new long[capacity];
+        this.clickIds = new String[capacity];
+        this.adIds = new String[capacity];
+        this.sources = new String[capacity];
+    }
+
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long timestampAt(int i) {
+        return timestamps[slot(i)];
+    }
+
+    public String clickIdAt(int i) {
+        return clickIds[slot(i)];
+    }
+
+    public String adIdAt(int i) {
+        return adIds[slot(i)];
+    }
+
+    public String sourceAt(int i) {
+        return sources[slot(i)];
+    }
+
+    /**
+     * Inserts a click in timestamp order. Replayed click ids are ignored, and a click older
+     * than everything in a full buffer is dropped.
+     */
+    public void add(String clickId, String adId, String source, long timestamp) {
+        for (int i = 0; i < size; i++) {
+            if (clickIdAt(i).equals(clickId)) {
+                return;
+            }
+        }
+        if (size == capacity()) {
+            if (timestamp < timestampAt(0)) {
+                return;
+            }
+            evictOldest();
+        }
+
+        // Shift newer clicks one slot towards the tail; usually none for in-order input
+        int pos = size;
+        while (pos > 0 && timestampAt(pos - 1) > timestamp) {
+            copy(slot(pos - 1), slot(pos));
+            pos--;
+        }
+        int target = slot(pos);
+        timestamps[target] = timestamp;
+        clickIds[target] = clickId;
+        adIds[target] = adId;
+        sources[target] = source;
+        size++;
+    }
+
+    /**
+     * Appends a click newer than every held one, as read back from state or copied from another
+     * history. Those are already in order and free of duplicates, so this path skips the
+     * duplicate check and the ordered insert.
+     */
+    public void append(String clickId, String adId, String source, long timestamp) {
+        if (size == capacity()) {
+            evictOldest();
+        }
+        int target = slot(size);
+        timestamps[target] = timestamp;
+        clickIds[target] = clickId;
+        adIds[target] = adId;
+        sources[target] = source;
+        size++;
+    }
+
+    /** Drops every click with a timestamp before {@code minTimestamp}. */
+    public void evictOlderThan(long minTimestamp) {
+        while (size > 0 && timestampAt(0) < minTimestamp) {
+            evictOldest();
+        }
+    }
+
+    private void evictOldest() {
+        clickIds[head] = null;
+        adIds[head] = null;
+        sources[head] = null;
+        head = (head + 1) % capacity();
+        size--;
+    }
+
+    private void copy(int from, int to) {
+        timestamps[to] = timestamps[from];
+        clickIds[to] = clickIds[from];
+        adIds[to] = adIds[from];
+        sources[to] = sources[from];
+    }
+
+    private int slot(int i) {
+        return (head + i) % capacity();
+    }
+}
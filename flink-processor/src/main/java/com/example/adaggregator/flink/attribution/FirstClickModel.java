@@ -0,0 +1,18 @@
+package com.example.adaggregator.flink.attribution;
+
+public class FirstClickModel implements AttributionModel {
+
+    public static final String NAME = "first_click";
+
+    @Override
+    public double[] assignCredit(long[] clickTimes, long conversionTime) {
+        double[] credit = new double[clickTimes.length];
+        credit[0] = 1.0;
+        return credit;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+}
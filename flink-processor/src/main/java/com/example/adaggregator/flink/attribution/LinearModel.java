@@ -0,0 +1,20 @@
+package com.example.adaggregator.flink.attribution;
+
+import java.util.Arrays;
+
+public class LinearModel implements AttributionModel {
+
+    public static final String NAME = "linear";
+
+    @Override
+    public double[] assignCredit(long[] clickTimes, long conversionTime) {
+        double[] credit = new double[clickTimes.length];
+        Arrays.fill(credit, 1.0 / clickTimes.length);
+        return credit;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+}
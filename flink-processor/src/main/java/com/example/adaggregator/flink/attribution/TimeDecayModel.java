@@ -0,0 +1,38 @@
+package com.example.adaggregator.flink.attribution;
+
+import java.time.Duration;
+
+/**
+ * Weights each click by {@code 2^(-age / halfLife)}, where age is the time from the click
+ * to the conversion, then normalizes the weights.
+ */
+public class TimeDecayModel implements AttributionModel {
+
+    public static final String NAME = "time_decay";
+    public static final Duration DEFAULT_HALF_LIFE = Duration.ofHours(12);
+
+    private final long halfLifeMs;
+
+    public TimeDecayModel(Duration halfLife) {
+        this.halfLifeMs = halfLife.toMillis();
+    }
+
+    @Override
+    public double[] assignCredit(long[] clickTimes, long conversionTime) {
+        double[] credit = new double[clickTimes.length];
+        double total = 0;
+        for (int i = 0; i < clickTimes.length; i++) {
+            credit[i] = Math.pow(2, -(double) (conversionTime - clickTimes[i]) / halfLifeMs);
+            total += credit[i];
+        }
+        for (int i = 0; i < credit.length; i++) {
+            credit[i] /= total;
+        }
+        return credit;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.adaggregator.flink.backfill;
+
+import lombok.Builder;
+import lombok.Data;
+import org.apache.flink.connector.kafka.source.enumerator.initializer.OffsetsInitializer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Range of history a backfill reprocesses: either the input topic between two offset
+ * positions, or archived raw events under {@code path}. Positions are {@code earliest},
+ * {@code latest}, {@code timestamp:<epoch ms>} or partition offsets such as {@code 0:1200,1:1350}.
+ */
+@Data
+@Builder
+public class BackfillConfig implements Serializable {
+
+    @Builder.Default
+    private String startOffsets = "earliest";
+
+    // Resolved when the job starts, so events produced during the backfill are not read
+    @Builder.Default
+    private String endOffsets = "latest";
+
+    // JSON Lines file or directory of them, optionally compressed; read instead of Kafka when set
+    private String path;
+
+    public static BackfillConfig defaults() {
+        return BackfillConfig.builder().build();
+    }
+
+    // Partitions missing from a list of partition offsets start at the earliest offset
+    public OffsetsInitializer startingOffsetsInitializer(String topic) {
+        return offsetsInitializer(startOffsets, topic, OffsetResetStrategy.EARLIEST);
+    }
+
+    // Partitions missing from a list of partition offsets stop at the latest offset
+    public OffsetsInitializer stoppingOffsetsInitializer(String topic) {
+        return offsetsInitializer(endOffsets, topic, OffsetResetStrategy.LATEST);
+    }
+
+    static OffsetsInitializer offsetsInitializer(String position, String topic, OffsetResetStrategy unlisted) {
+        if (position.equals("earliest")) {
+            return OffsetsInitializer.earliest();
+        }
+        if (position.equals("latest")) {
+            return OffsetsInitializer.latest();
+        }
+        if (position.startsWith("timestamp:")) {
+            return OffsetsInitializer.timestamp(Long.parseLong(position.substring("timestamp:".length()).trim()));
+        }
+
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        for (String entry : position.split(",")) {
+            String[] partitionOffset = entry.split(":");
+            if (partitionOffset.length != 2) {
+                throw new IllegalArgumentException("Unknown backfill offsets: " + position);
+            }
+            offsets.put(new TopicPartition(topic, Integer.parseInt(partitionOffset[0].trim())),
+                Long.parseLong(partitionOffset[1].trim()));
+        }
+        return OffsetsInitializer.offsets(offsets, unlisted);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.adaggregator.flink.clickhouse;
+
+import com.example.adaggregator.flink.model.AttributedEvent;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * RowBinary layout of the {@code attributed_events} table. Column order must match
+ * {@link #COLUMNS}; times are converted from epoch millis to the table's DateTime seconds,
+ * as {@code attributed_events_mv} does for the Kafka path.
+ */
+final class AttributedEventRowBinary {
+
+    static final String COLUMNS = "conversion_id, click_id, user_id, ad_id, campaign_id, source, "
+        + "conversion_type, value, click_time, conversion_time, attribution_model, credit";
+
+    // Decimal(18, 2)
+    private static final int VALUE_SCALE = 2;
+
+    private AttributedEventRowBinary() {
+    }
+
+    static String insertQuery(String database, String table) {
+        return "INSERT INTO " + database + "." + table + " (" + COLUMNS + ") FORMAT RowBinary";
+    }
+
+    static void write(AttributedEvent event, RowBinaryBuffer buffer) {
+        buffer.writeString(event.getConversionId());
+        buffer.writeString(event.getClickId());
+        buffer.writeString(event.getUserId());
+        buffer.writeString(event.getAdId());
+        buffer.writeString(event.getCampaignId());
+        buffer.writeString(event.getSource());
+        buffer.writeString(event.getConversionType());
+        buffer.writeInt64(unscaledValue(event.getValue()));
+        buffer.writeUInt32(toSeconds(event.getClickTime()));
+        buffer.writeUInt32(toSeconds(event.getConversionTime()));
+        buffer.writeString(event.getAttributionModel());
+        buffer.writeFloat64(event.getCredit() == null ? 1.0 : event.getCredit());
+    }
+
+    private static long unscaledValue(BigDecimal value) {
+        if (value == null) {
+            return 0L;
+        }
+        return value.setScale(VALUE_SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    private static long toSeconds(Long epochMillis) {
+        return epochMillis == null ? 0L : epochMillis / 1000;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.adaggregator.flink.clickhouse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Posts pre-encoded insert bodies to the ClickHouse HTTP interface. Every attempt of the same
+ * batch carries the same {@code insert_deduplication_token}, so a retry after a response was
+ * lost does not insert the rows twice, neither in the target table nor in the views it feeds.
+ */
+class ClickHouseHttpClient implements AutoCloseable {
+
+    private final ClickHouseSinkConfig config;
+    private final HttpClient httpClient;
+
+    ClickHouseHttpClient(ClickHouseSinkConfig config) {
+        this.config = config;
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(config.getRequestTimeout())
+            .build();
+    }
+
+    void insert(String query, byte[] body, String dedupToken) throws IOException, InterruptedException {
+        URI uri = URI.create(config.getEndpoint() + "/?query=" + encode(query)
+            + "&insert_deduplication_token=" + encode(dedupToken)
+            + "&deduplicate_blocks_in_dependent_materialized_views=1");
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+            .timeout(config.getRequestTimeout())
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+        if (config.getUser() != null) {
+            request.header("X-ClickHouse-User", config.getUser());
+            request.header("X-ClickHouse-Key", config.getPassword() == null ? "" : config.getPassword());
+        }
+
+        long backoffMs = config.getRetryBackoff().toMillis();
+        for (int attempt = 0; ; attempt++) {
+            IOException failure;
+            try {
+                HttpResponse<String> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() == 200) {
+                    return;
+                }
+                failure = new IOException("ClickHouse insert failed with HTTP "
+                    + response.statusCode() + ": " + response.body());
+                // Client errors (bad query, schema mismatch) will not succeed on retry
+                if (response.statusCode() < 500) {
+                    throw failure;
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+            if (attempt >= config.getMaxRetries()) {
+                throw failure;
+            }
+            Thread.sleep(backoffMs);
+            backoffMs *= 2;
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        // java.net.http.HttpClient only gained close() in Java 21; its threads are daemons
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.adaggregator.flink.clickhouse;
+
+import com.example.adaggregator.flink.model.AttributedEvent;
+import org.apache.flink.api.connector.sink2.Sink;
+import org.apache.flink.api.connector.sink2.SinkWriter;
+
+/**
+ * Writes attributed events straight into ClickHouse over HTTP in RowBinary, skipping the
+ * attributed-events topic and the Kafka engine's JSON parsing. Delivery is at-least-once.
+ */
+public class ClickHouseSink implements Sink<AttributedEvent> {
+
+    private final ClickHouseSinkConfig config;
+
+    public ClickHouseSink(ClickHouseSinkConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    public SinkWriter<AttributedEvent> createWriter(InitContext context) {
+        return new ClickHouseSinkWriter(config, context.getProcessingTimeService());
+    }
+}
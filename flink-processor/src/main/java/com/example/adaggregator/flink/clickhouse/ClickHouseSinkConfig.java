@@ -0,0 +1,43 @@
+package com.example.adaggregator.flink.clickhouse;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.Duration;
+
+@Data
+@Builder
+public class ClickHouseSinkConfig implements Serializable {
+
+    // HTTP interface, e.g. http://clickhouse:8123
+    @Builder.Default
+    private String endpoint = "http://clickhouse:8123";
+
+    @Builder.Default
+    private String database = "default";
+
+    @Builder.Default
+    private String table = "attributed_events";
+
+    private String user;
+    private String password;
+
+    // A batch is sent when it reaches this many rows or has been open this long,
+    // and always before a checkpoint barrier is passed on
+    @Builder.Default
+    private int maxBatchRows = 10_000;
+
+    @Builder.Default
+    private Duration maxBatchDelay = Duration.ofSeconds(1);
+
+    // Attempts after the first failed one; each waits twice as long as the previous
+    @Builder.Default
+    private int maxRetries = 3;
+
+    @Builder.Default
+    private Duration retryBackoff = Duration.ofMillis(200);
+
+    @Builder.Default
+    private Duration requestTimeout = Duration.ofSeconds(30);
+}
@@ -0,0 +1,89 @@
+package com.example.adaggregator.flink.clickhouse;
+
+import com.example.adaggregator.flink.model.AttributedEvent;
+import org.apache.flink.api.common.operators.ProcessingTimeService;
+import org.apache.flink.api.connector.sink2.SinkWriter;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Encodes attributed events into one RowBinary batch and sends it when it is full, when it
+ * has been open for the configured delay, or when Flink flushes before a checkpoint barrier.
+ * A checkpoint therefore only completes once every row before it is in ClickHouse, which
+ * gives at-least-once delivery; replays after a restore collapse in the ReplacingMergeTree.
+ */
+class ClickHouseSinkWriter implements SinkWriter<AttributedEvent> {
+
+    private final ClickHouseSinkConfig config;
+    private final ProcessingTimeService timeService;
+    private final ClickHouseHttpClient client;
+    private final String insertQuery;
+    private final RowBinaryBuffer buffer = new RowBinaryBuffer(64 * 1024);
+
+    private int rows;
+    // Incremented per sent batch so a timer for an already flushed batch does nothing
+    private long batchSequence;
+
+    ClickHouseSinkWriter(ClickHouseSinkConfig config, ProcessingTimeService timeService) {
+        this(config, timeService, new ClickHouseHttpClient(config));
+    }
+
+    ClickHouseSinkWriter(ClickHouseSinkConfig config, ProcessingTimeService timeService, ClickHouseHttpClient client) {
+        this.config = config;
+        this.timeService = timeService;
+        this.client = client;
+        this.insertQuery = AttributedEventRowBinary.insertQuery(config.getDatabase(), config.getTable());
+    }
+
+    @Override
+    public void write(AttributedEvent element, Context context) throws IOException, InterruptedException {
+        AttributedEventRowBinary.write(element, buffer);
+        rows++;
+        if (rows == 1) {
+            long sequence = batchSequence;
+            timeService.registerTimer(
+                timeService.getCurrentProcessingTime() + config.getMaxBatchDelay().toMillis(),
+                time -> {
+                    if (batchSequence == sequence) {
+                        sendBatch();
+                    }
+                });
+        }
+        if (rows >= config.getMaxBatchRows()) {
+            sendBatch();
+        }
+    }
+
+    @Override
+    public void flush(boolean endOfInput) throws IOException, InterruptedException {
+        sendBatch();
+    }
+
+    @Override
+    public void close() throws Exception {
+        client.close();
+    }
+
+    private void sendBatch() throws IOException, InterruptedException {
+        if (rows == 0) {
+            return;
+        }
+        byte[] body = buffer.toByteArray();
+        client.insert(insertQuery, body, dedupToken(body));
+        buffer.reset();
+        rows = 0;
+        batchSequence++;
+    }
+
+    // Derived from the batch content, so any resend of identical rows is dropped by ClickHouse
+    private static String dedupToken(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.adaggregator.flink.enrichment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups single-campaign lookups into batched client requests. A request is sent once
+ * {@code batchSize} campaigns are waiting, or {@code batchDelay} after the first of them
+ * arrived. A lookup of a campaign that is already waiting or in flight shares that request.
+ */
+public class BatchingMetadataLookup implements AutoCloseable {
+
+    private final CampaignMetadataClient client;
+    private final int batchSize;
+    private final long batchDelayMs;
+    private final ScheduledExecutorService scheduler;
+
+    // Guarded by this: lookups holds every campaign waiting or in flight, batch the waiting ones
+    private final Map<String, CompletableFuture<CampaignMetadata>> lookups = new HashMap<>();
+    private Set<String> batch = new HashSet<>();
+    private ScheduledFuture<?> flushTimer;
+
+    public BatchingMetadataLookup(CampaignMetadataClient client, int batchSize, Duration batchDelay) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.client = client;
+        this.batchSize = batchSize;
+        this.batchDelayMs = batchDelay.toMillis();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "campaign-metadata-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Completes with the campaign's metadata, or with null if the source does not know it. */
+    public CompletableFuture<CampaignMetadata> lookup(String campaignId) {
+        CompletableFuture<CampaignMetadata> result;
+        Set<String> full = null;
+        synchronized (this) {
+            result = lookups.get(campaignId);
+            if (result != null) {
+                return result;
+            }
+            result = new CompletableFuture<>();
+            lookups.put(campaignId, result);
+            batch.add(campaignId);
+            if (batch.size() >= batchSize) {
+                full = takeBatch();
+            } else if (flushTimer == null) {
+                flushTimer = scheduler.schedule(this::flush, batchDelayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return result;
+    }
+
+    void flush() {
+        Set<String> due;
+        synchronized (this) {
+            due = takeBatch();
+        }
+        if (!due.isEmpty()) {
+            send(due);
+        }
+    }
+
+    private Set<String> takeBatch() {
+        Set<String> taken = batch;
+        batch = new HashSet<>();
+        if (flushTimer != null) {
+            flushTimer.cancel(false);
+            flushTimer = null;
+        }
+        return taken;
+    }
+
+    private void send(Set<String> campaignIds) {
+        CompletableFuture<Map<String, CampaignMetadata>> response;
+        try {
+            response = client.lookup(campaignIds);
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        response.whenComplete((found, error) -> {
+            List<CompletableFuture<CampaignMetadata>> waiting = new ArrayList<>(campaignIds.size());
+            synchronized (this) {
+                for (String campaignId : campaignIds) {
+                    waiting.add(lookups.get(campaignId));
+                }
+            }
+            // Completed before they are forgotten, so the callbacks have filled the cache by
+            // the time a new lookup of the same campaign can start another request
+            int i = 0;
+            for (String campaignId : campaignIds) {
+                CompletableFuture<CampaignMetadata> future = waiting.get(i++);
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    future.complete(found.get(campaignId));
+                }
+            }
+            synchronized (this) {
+                lookups.keySet().removeAll(campaignIds);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.adaggregator.flink.enrichment;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/** Campaign attributes attributed events are enriched with, as served by a metadata client. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CampaignMetadata implements Serializable {
+    @JsonProperty("campaign_id")
+    private String campaignId;
+
+    @JsonProperty("campaign_name")
+    private String campaignName;
+
+    @JsonProperty("advertiser_id")
+    private String advertiserId;
+}
@@ -0,0 +1,56 @@
+package com.example.adaggregator.flink.enrichment;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of campaign metadata with a time-to-live per entry. Campaigns the source
+ * does not know are cached as well, for a shorter time, so events of an unknown campaign do
+ * not each trigger a lookup. Read on the task thread and filled from lookup callbacks, hence
+ * synchronized; every operation is a single hash map access.
+ */
+public class CampaignMetadataCache {
+
+    private final long ttlMs;
+    private final long missingTtlMs;
+    private final LinkedHashMap<String, Entry> entries;
+
+    public CampaignMetadataCache(int maxSize, Duration ttl, Duration missingTtl) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.ttlMs = ttl.toMillis();
+        this.missingTtlMs = missingTtl.toMillis();
+        // Access order makes the eldest entry the least recently used one
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /** Returns the cached entry, or null if the campaign is not cached or its entry expired. */
+    public synchronized Entry get(String campaignId, long now) {
+        Entry entry = entries.get(campaignId);
+        if (entry != null && entry.expiresAt() <= now) {
+            entries.remove(campaignId);
+            return null;
+        }
+        return entry;
+    }
+
+    /** Caches the lookup result; a null {@code metadata} records that the campaign is unknown. */
+    public synchronized void put(String campaignId, CampaignMetadata metadata, long now) {
+        entries.put(campaignId, new Entry(metadata, now + (metadata != null ? ttlMs : missingTtlMs)));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** A cached lookup result; {@code metadata} is null for a campaign the source does not know. */
+    public record Entry(CampaignMetadata metadata, long expiresAt) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.adaggregator.flink.enrichment;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Source of campaign metadata for the enrichment stage. Instances are shipped to the task
+ * managers with the job and opened there.
+ */
+public interface CampaignMetadataClient extends Serializable {
+
+    default void open() throws Exception {
+    }
+
+    /**
+     * Looks up several campaigns in one request. Must not block the calling thread.
+     *
+     * @return metadata by campaign id; campaigns the source does not know are left out
+     */
+    CompletableFuture<Map<String, CampaignMetadata>> lookup(Set<String> campaignIds);
+
+    default void close() throws Exception {
+    }
+
+    static CampaignMetadataClient create(EnrichmentConfig config) {
+        return switch (config.getClient().toLowerCase()) {
+            case "file" -> new FileCampaignMetadataClient(config.getFile());
+            case "http" -> new HttpCampaignMetadataClient(config.getEndpoint(), config.getTimeout());
+            default -> throw new IllegalArgumentException("Unknown enrichment client: " + config.getClient());
+        };
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.adaggregator.flink.enrichment;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.Duration;
+
+@Data
+@Builder
+public class EnrichmentConfig implements Serializable {
+
+    // file (JSON Lines read at startup) or http (batched GET against a metadata service)
+    @Builder.Default
+    private String client = "file";
+
+    private String file;
+
+    private String endpoint;
+
+    // Campaigns cached per subtask; the least recently used one is dropped beyond this
+    @Builder.Default
+    private int cacheSize = 10_000;
+
+    @Builder.Default
+    private Duration cacheTtl = Duration.ofMinutes(10);
+
+    // Campaigns the source does not know are asked for again after this
+    @Builder.Default
+    private Duration missingTtl = Duration.ofMinutes(1);
+
+    // A lookup request is sent once this many campaigns wait, or batchDelay after the first
+    @Builder.Default
+    private int batchSize = 100;
+
+    @Builder.Default
+    private Duration batchDelay = Duration.ofMillis(10);
+
+    // An event still waiting for its campaign after this is emitted without metadata
+    @Builder.Default
+    private Duration timeout = Duration.ofSeconds(2);
+
+    // Events waiting for a lookup per subtask before the operator backpressures
+    @Builder.Default
+    private int capacity = 1_000;
+
+    public static EnrichmentConfig defaults() {
+        return EnrichmentConfig.builder().build();
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.adaggregator.flink.enrichment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Serves campaign metadata from a JSON Lines file, one campaign per line, read when the task
+ * opens. The file must be readable from every task manager. Meant for tests and small, rarely
+ * changing campaign sets; a changed file is picked up on the next restart.
+ */
+public class FileCampaignMetadataClient implements CampaignMetadataClient {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String path;
+    private transient InMemoryCampaignMetadataClient campaigns;
+
+    public FileCampaignMetadataClient(String path) {
+        if (path == null) {
+            throw new IllegalArgumentException("enrichment.file is required for the file client");
+        }
+        this.path = path;
+    }
+
+    @Override
+    public void open() throws Exception {
+        Map<String, CampaignMetadata> loaded = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(path), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    CampaignMetadata metadata = objectMapper.readValue(line, CampaignMetadata.class);
+                    loaded.put(metadata.getCampaignId(), metadata);
+                }
+            }
+        }
+        campaigns = new InMemoryCampaignMetadataClient(loaded);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, CampaignMetadata>> lookup(Set<String> campaignIds) {
+        return campaigns.lookup(campaignIds);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.adaggregator.flink.enrichment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Looks campaigns up in a metadata service with one {@code GET} per batch,
+ * {@code <endpoint>?campaign_id=a&campaign_id=b}, answered with a JSON array of
+ * {@link CampaignMetadata}. Requests are sent asynchronously; the response is parsed on the
+ * HTTP client's threads, never on the task thread.
+ */
+public class HttpCampaignMetadataClient implements CampaignMetadataClient {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String endpoint;
+    private final Duration timeout;
+    private transient HttpClient httpClient;
+
+    public HttpCampaignMetadataClient(String endpoint, Duration timeout) {
+        if (endpoint == null) {
+            throw new IllegalArgumentException("enrichment.endpoint is required for the http client");
+        }
+        this.endpoint = endpoint;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void open() {
+        httpClient = HttpClient.newBuilder()
+            .connectTimeout(timeout)
+            .build();
+    }
+
+    @Override
+    public CompletableFuture<Map<String, CampaignMetadata>> lookup(Set<String> campaignIds) {
+        StringBuilder uri = new StringBuilder(endpoint);
+        char separator = endpoint.indexOf('?') < 0 ? '?' : '&';
+        for (String campaignId : campaignIds) {
+            uri.append(separator).append("campaign_id=").append(URLEncoder.encode(campaignId, StandardCharsets.UTF_8));
+            separator = '&';
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(uri.toString()))
+            .timeout(timeout)
+            .header("Accept", "application/json")
+            .GET()
+            .build();
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+            .thenApply(response -> {
+                if (response.statusCode() != 200) {
+                    throw new UncheckedIOException(new IOException(
+                        "Campaign metadata lookup failed with HTTP " + response.statusCode()));
+                }
+                try {
+                    Map<String, CampaignMetadata> found = new HashMap<>();
+                    for (CampaignMetadata metadata : objectMapper.readValue(response.body(), CampaignMetadata[].class)) {
+                        found.put(metadata.getCampaignId(), metadata);
+                    }
+                    return found;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.adaggregator.flink.enrichment;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/** Serves campaign metadata from a fixed map; lookups complete immediately. */
+public class InMemoryCampaignMetadataClient implements CampaignMetadataClient {
+
+    private final Map<String, CampaignMetadata> campaigns;
+
+    public InMemoryCampaignMetadataClient(Map<String, CampaignMetadata> campaigns) {
+        this.campaigns = new HashMap<>(campaigns);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, CampaignMetadata>> lookup(Set<String> campaignIds) {
+        Map<String, CampaignMetadata> found = new HashMap<>();
+        for (String campaignId : campaignIds) {
+            CampaignMetadata metadata = campaigns.get(campaignId);
+            if (metadata != null) {
+                found.put(campaignId, metadata);
+            }
+        }
+        return CompletableFuture.completedFuture(found);
+    }
+}
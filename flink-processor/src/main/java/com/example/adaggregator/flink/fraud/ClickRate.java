@@ -0,0 +1,73 @@
+package com.example.adaggregator.flink.fraud;
+
+import com.example.adaggregator.flink.typeutils.ModelTypes;
+import org.apache.flink.api.common.typeinfo.TypeInfo;
+
+import java.util.Arrays;
+
+/**
+ * Clicks in a sliding event-time window, kept as a ring of per-bucket counts so the state per
+ * key is one long and a few ints however many clicks it has seen. The window slides one bucket
+ * at a time and ends with the bucket of the latest click; clicks older than the window are not
+ * counted.
+ */
+@TypeInfo(ModelTypes.ClickRateFactory.class)
+public class ClickRate {
+
+    private static final long NO_BUCKET = Long.MIN_VALUE;
+
+    private long lastBucket;
+    private final int[] counts;
+
+    public ClickRate(int buckets) {
+        this(NO_BUCKET, new int[buckets]);
+    }
+
+    public ClickRate(long lastBucket, int[] counts) {
+        this.lastBucket = lastBucket;
+        this.counts = counts;
+    }
+
+    /** Counts a click and returns the clicks now in the window. */
+    public int add(long timestamp, long bucketMs) {
+        long bucket = Math.floorDiv(timestamp, bucketMs);
+        if (lastBucket == NO_BUCKET || bucket - lastBucket >= counts.length) {
+            Arrays.fill(counts, 0);
+            lastBucket = bucket;
+        } else if (bucket > lastBucket) {
+            for (long b = lastBucket + 1; b <= bucket; b++) {
+                counts[slot(b)] = 0;
+            }
+            lastBucket = bucket;
+        }
+        if (bucket > lastBucket - counts.length) {
+            counts[slot(bucket)]++;
+        }
+        return total();
+    }
+
+    public int total() {
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /** Event time from which every counted click has left the window. */
+    public long windowEnd(long bucketMs) {
+        return (lastBucket + counts.length) * bucketMs;
+    }
+
+    public long lastBucket() {
+        return lastBucket;
+    }
+
+    public int[] counts() {
+        return counts;
+    }
+
+    private int slot(long bucket) {
+        return (int) Math.floorMod(bucket, (long) counts.length);
+    }
+}
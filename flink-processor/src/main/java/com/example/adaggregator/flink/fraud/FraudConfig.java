@@ -0,0 +1,34 @@
+package com.example.adaggregator.flink.fraud;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.Duration;
+
+@Data
+@Builder
+public class FraudConfig implements Serializable {
+
+    // Sliding window the click limits apply to; it moves in window / buckets steps
+    @Builder.Default
+    private Duration window = Duration.ofMinutes(1);
+
+    @Builder.Default
+    private int buckets = 6;
+
+    // Limits until the control topic overrides them
+    @Builder.Default
+    private int maxClicksPerUser = 300;
+
+    @Builder.Default
+    private int maxClicksPerUserCampaign = 60;
+
+    public static FraudConfig defaults() {
+        return FraudConfig.builder().build();
+    }
+
+    public FraudThresholds initialThresholds() {
+        return new FraudThresholds(maxClicksPerUser, maxClicksPerUserCampaign);
+    }
+}
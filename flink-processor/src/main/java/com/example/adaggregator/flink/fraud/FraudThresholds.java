@@ -0,0 +1,30 @@
+package com.example.adaggregator.flink.fraud;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Click limits per sliding window, as read from the thresholds control topic. A field left out
+ * of an update keeps its current value.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FraudThresholds implements Serializable {
+    @JsonProperty("max_clicks_per_user")
+    private Integer maxClicksPerUser;
+
+    @JsonProperty("max_clicks_per_user_campaign")
+    private Integer maxClicksPerUserCampaign;
+
+    public FraudThresholds mergedWith(FraudThresholds update) {
+        return new FraudThresholds(
+            update.getMaxClicksPerUser() != null ? update.getMaxClicksPerUser() : maxClicksPerUser,
+            update.getMaxClicksPerUserCampaign() != null ? update.getMaxClicksPerUserCampaign() : maxClicksPerUserCampaign
+        );
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.adaggregator.flink.hotkeys;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.Duration;
+
+@Data
+@Builder
+public class HotKeyConfig implements Serializable {
+
+    @Builder.Default
+    private HotKeyPolicy policy = HotKeyPolicy.MONITOR;
+
+    // Keys are counted per interval; a key found hot in one interval is acted on in the next
+    @Builder.Default
+    private Duration interval = Duration.ofSeconds(10);
+
+    // Share of a subtask's events in one interval above which a key is hot
+    @Builder.Default
+    private double hotShare = 0.05;
+
+    // Keeps low-traffic subtasks from flagging keys on a handful of events
+    @Builder.Default
+    private long minEvents = 1_000;
+
+    // Keys tracked by the sketch per subtask; must exceed 1 / hotShare to find every hot key
+    @Builder.Default
+    private int sketchCapacity = 64;
+
+    // Events per second let through per hot key under THROTTLE
+    @Builder.Default
+    private long throttleRate = 100;
+
+    public static HotKeyConfig defaults() {
+        return HotKeyConfig.builder().build();
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.adaggregator.flink.hotkeys;
+
+/** What happens to clicks of a key detected as hot before they reach the keyed operators; conversions always pass. */
+public enum HotKeyPolicy {
+    /** Report hot keys as metrics only. */
+    MONITOR,
+    /** Let a fixed number of clicks per second through per hot key; the rest go to the side output. */
+    THROTTLE,
+    /** Send every click of a hot key to the side output. */
+    DIVERT,
+    /** Drop clicks of hot keys; their conversions still pass. */
+    FILTER;
+
+    public static HotKeyPolicy fromName(String name) {
+        return valueOf(name.toUpperCase());
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.adaggregator.flink.hotkeys;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy-hitter sketch (Metwally, Agrawal and El Abbadi). At most {@code capacity}
+ * keys are tracked; an untracked key takes over the slot with the smallest count and inherits
+ * that count as its error. Every key seen more than {@code total / capacity} times is tracked,
+ * and {@code count - error} never exceeds its true count.
+ *
+ * <p>Entries sit in the paper's stream-summary: a list of buckets in ascending count order,
+ * each holding the entries with that count. A count only ever grows by one, so an entry moves
+ * to the next bucket or a new one right after it, and the smallest entry is the head of the
+ * first bucket. Every offer is constant time, whatever the capacity.
+ */
+public class SpaceSaving {
+
+    private final int capacity;
+    private final Map<String, Entry> entries;
+    private long total;
+    // Smallest and largest count; null while nothing is tracked
+    private Bucket minBucket;
+    private Bucket maxBucket;
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.entries = new HashMap<>(capacity * 2);
+    }
+
+    public void offer(String key) {
+        total++;
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            increment(entry);
+            return;
+        }
+        if (entries.size() < capacity) {
+            entry = new Entry(key);
+            entries.put(key, entry);
+            if (minBucket == null || minBucket.count != 1) {
+                insertBucketAfter(null, 1);
+            }
+            minBucket.add(entry);
+            return;
+        }
+        Entry victim = minBucket.head;
+        entries.remove(victim.key);
+        victim.key = key;
+        victim.error = victim.count;
+        increment(victim);
+        entries.put(key, victim);
+    }
+
+    /** Tracked keys, heaviest first. */
+    public List<Entry> entries() {
+        List<Entry> sorted = new ArrayList<>(entries.size());
+        for (Bucket bucket = maxBucket; bucket != null; bucket = bucket.prev) {
+            for (Entry entry = bucket.head; entry != null; entry = entry.next) {
+                sorted.add(entry);
+            }
+        }
+        return sorted;
+    }
+
+    public long total() {
+        return total;
+    }
+
+    public void clear() {
+        entries.clear();
+        total = 0;
+        minBucket = null;
+        maxBucket = null;
+    }
+
+    private void increment(Entry entry) {
+        Bucket from = entry.bucket;
+        long count = from.count + 1;
+        Bucket to = from.next;
+        if (to == null || to.count != count) {
+            to = insertBucketAfter(from, count);
+        }
+        from.remove(entry);
+        if (from.head == null) {
+            unlink(from);
+        }
+        entry.count = count;
+        to.add(entry);
+    }
+
+    // A null predecessor inserts at the front
+    private Bucket insertBucketAfter(Bucket prev, long count) {
+        Bucket bucket = new Bucket(count);
+        Bucket next = prev == null ? minBucket : prev.next;
+        bucket.prev = prev;
+        bucket.next = next;
+        if (prev == null) {
+            minBucket = bucket;
+        } else {
+            prev.next = bucket;
+        }
+        if (next == null) {
+            maxBucket = bucket;
+        } else {
+            next.prev = bucket;
+        }
+        return bucket;
+    }
+
+    private void unlink(Bucket bucket) {
+        if (bucket.prev == null) {
+            minBucket = bucket.next;
+        } else {
+            bucket.prev.next = bucket.next;
+        }
+        if (bucket.next == null) {
+            maxBucket = bucket.prev;
+        } else {
+            bucket.next.prev = bucket.prev;
+        }
+    }
+
+    // Entries with the same count, in a doubly linked list so any of them leaves in O(1)
+    private static final class Bucket {
+        private final long count;
+        private Entry head;
+        private Bucket prev;
+        private Bucket next;
+
+        private Bucket(long count) {
+            this.count = count;
+        }
+
+        private void add(Entry entry) {
+            entry.bucket = this;
+            entry.prev = null;
+            entry.next = head;
+            if (head != null) {
+                head.prev = entry;
+            }
+            head = entry;
+        }
+
+        private void remove(Entry entry) {
+            if (entry.prev == null) {
+                head = entry.next;
+            } else {
+                entry.prev.next = entry.next;
+            }
+            if (entry.next != null) {
+                entry.next.prev = entry.prev;
+            }
+            entry.bucket = null;
+            entry.prev = null;
+            entry.next = null;
+        }
+    }
+
+    public static final class Entry {
+        private String key;
+        private long count = 1;
+        private long error;
+        private Bucket bucket;
+        private Entry prev;
+        private Entry next;
+
+        private Entry(String key) {
+            this.key = key;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        /** Upper bound of the key's true count. */
+        public long count() {
+            return count;
+        }
+
+        /** Lower bound of the key's true count. */
+        public long guaranteedCount() {
+            return count - error;
+        }
+    }
+}
@@ -1,12 +1,15 @@
 package com.example.adaggregator.flink.model;
 
+import com.example.adaggregator.flink.typeutils.ModelTypes;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Builder;
 import lombok.Data;
+import org.apache.flink.api.common.typeinfo.TypeInfo;
 import java.math.BigDecimal;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
+@TypeInfo(ModelTypes.AttributedEventFactory.class)
 public class AttributedEvent {
     @JsonProperty("event_type")
     @Builder.Default
@@ -41,6 +44,25 @@ public class AttributedEvent {
     @JsonProperty("conversion_time")
     private Long conversionTime;
     
+    // Rounded up to whole hours; attribution_window_ms is exact
     @JsonProperty("attribution_window_hours")
     private Integer attributionWindowHours;
+
+    @JsonProperty("attribution_window_ms")
+    private Long attributionWindowMs;
+
+    @JsonProperty("attribution_model")
+    @Builder.Default
+    private String attributionModel = "last_click";
+
+    // Share of the conversion credited to this click; value is already scaled by it
+    @Builder.Default
+    private Double credit = 1.0;
+
+    // Campaign metadata added by the enrichment stage; null when it is disabled or has no entry
+    @JsonProperty("campaign_name")
+    private String campaignName;
+
+    @JsonProperty("advertiser_id")
+    private String advertiserId;
 }
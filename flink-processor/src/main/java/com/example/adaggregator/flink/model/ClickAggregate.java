@@ -0,0 +1,28 @@
+package com.example.adaggregator.flink.model;
+
+import com.example.adaggregator.flink.typeutils.ModelTypes;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Data;
+import org.apache.flink.api.common.typeinfo.TypeInfo;
+
+@Data
+@Builder(toBuilder = true)
+@TypeInfo(ModelTypes.ClickAggregateFactory.class)
+public class ClickAggregate {
+    @JsonProperty("campaign_id")
+    private String campaignId;
+
+    @JsonProperty("source")
+    private String source;
+
+    @JsonProperty("ad_id")
+    private String adId;
+
+    // Epoch millis; windows are aligned to the epoch, so this identifies the window
+    @JsonProperty("window_start")
+    private Long windowStart;
+
+    // Clicks added since the window last fired; the first firing carries the whole window
+    private Long clicks;
+}
@@ -1,12 +1,15 @@
 package com.example.adaggregator.flink.model;
 
+import com.example.adaggregator.flink.typeutils.ModelTypes;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import org.apache.flink.api.common.typeinfo.TypeInfo;
 import java.util.Map;
 
 @Data
 @EqualsAndHashCode(callSuper = true)
+@TypeInfo(ModelTypes.ClickEventFactory.class)
 public class ClickEvent extends Event {
     @JsonProperty("ad_id")
     private String adId;
@@ -1,11 +1,14 @@
 package com.example.adaggregator.flink.model;
 
+import com.example.adaggregator.flink.typeutils.ModelTypes;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import org.apache.flink.api.common.typeinfo.TypeInfo;
 import java.math.BigDecimal;
 
 @Data
 @EqualsAndHashCode(callSuper = true)
+@TypeInfo(ModelTypes.ConversionEventFactory.class)
 public class ConversionEvent extends Event {
     private String type;
     private BigDecimal value;
@@ -0,0 +1,14 @@
+package com.example.adaggregator.flink.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** A raw-events record that could not be decoded, kept byte for byte for inspection and replay. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeadLetter {
+    private byte[] payload;
+    private String error;
+}
@@ -1,11 +1,14 @@
 package com.example.adaggregator.flink.model;
 
+import com.example.adaggregator.flink.typeutils.ModelTypes;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
+import org.apache.flink.api.common.typeinfo.TypeInfo;
 
 @Data
+@TypeInfo(ModelTypes.EventFactory.class)
 @JsonTypeInfo(
     use = JsonTypeInfo.Id.NAME,
     include = JsonTypeInfo.As.PROPERTY,
@@ -0,0 +1,247 @@
+package com.example.adaggregator.flink.serialization;
+
+import com.example.adaggregator.flink.model.AttributedEvent;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes {@link AttributedEvent} as the exact bytes Jackson's default {@code ObjectMapper}
+ * produces, without bean introspection. Field names are pre-encoded and strings, longs and
+ * decimals are formatted straight into a buffer reused across records. Not thread-safe; each
+ * serialization schema instance owns one.
+ */
+public class AttributedEventJsonWriter {
+
+    private static final byte[] EVENT_TYPE = ascii("{\"event_type\":");
+    private static final byte[] CONVERSION_ID = ascii(",\"conversion_id\":");
+    private static final byte[] CLICK_ID = ascii(",\"click_id\":");
+    private static final byte[] USER_ID = ascii(",\"user_id\":");
+    private static final byte[] AD_ID = ascii(",\"ad_id\":");
+    private static final byte[] CAMPAIGN_ID = ascii(",\"campaign_id\":");
+    private static final byte[] SOURCE = ascii(",\"source\":");
+    private static final byte[] CONVERSION_TYPE = ascii(",\"conversion_type\":");
+    private static final byte[] VALUE = ascii(",\"value\":");
+    private static final byte[] CLICK_TIME = ascii(",\"click_time\":");
+    private static final byte[] CONVERSION_TIME = ascii(",\"conversion_time\":");
+    private static final byte[] ATTRIBUTION_WINDOW_HOURS = ascii(",\"attribution_window_hours\":");
+    private static final byte[] ATTRIBUTION_WINDOW_MS = ascii(",\"attribution_window_ms\":");
+    private static final byte[] ATTRIBUTION_MODEL = ascii(",\"attribution_model\":");
+    private static final byte[] CREDIT = ascii(",\"credit\":");
+    private static final byte[] CAMPAIGN_NAME = ascii(",\"campaign_name\":");
+    private static final byte[] ADVERTISER_ID = ascii(",\"advertiser_id\":");
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] HEX = ascii("0123456789ABCDEF");
+
+    // Longest long is 20 characters with its sign
+    private final byte[] digits = new byte[20];
+    private byte[] buffer = new byte[512];
+    private int size;
+
+    public byte[] write(AttributedEvent event) {
+        size = 0;
+        writeRaw(EVENT_TYPE);
+        writeString(event.getEventType());
+        writeRaw(CONVERSION_ID);
+        writeString(event.getConversionId());
+        writeRaw(CLICK_ID);
+        writeString(event.getClickId());
+        writeRaw(USER_ID);
+        writeString(event.getUserId());
+        writeRaw(AD_ID);
+        writeString(event.getAdId());
+        writeRaw(CAMPAIGN_ID);
+        writeString(event.getCampaignId());
+        writeRaw(SOURCE);
+        writeString(event.getSource());
+        writeRaw(CONVERSION_TYPE);
+        writeString(event.getConversionType());
+        writeRaw(VALUE);
+        writeDecimal(event.getValue());
+        writeRaw(CLICK_TIME);
+        writeLong(event.getClickTime());
+        writeRaw(CONVERSION_TIME);
+        writeLong(event.getConversionTime());
+        writeRaw(ATTRIBUTION_WINDOW_HOURS);
+        writeLong(event.getAttributionWindowHours() == null ? null : event.getAttributionWindowHours().longValue());
+        writeRaw(ATTRIBUTION_WINDOW_MS);
+        writeLong(event.getAttributionWindowMs());
+        writeRaw(ATTRIBUTION_MODEL);
+        writeString(event.getAttributionModel());
+        writeRaw(CREDIT);
+        writeDouble(event.getCredit());
+        writeRaw(CAMPAIGN_NAME);
+        writeString(event.getCampaignName());
+        writeRaw(ADVERTISER_ID);
+        writeString(event.getAdvertiserId());
+        ensureCapacity(1);
+        buffer[size++] = '}';
+        return Arrays.copyOf(buffer, size);
+    }
+
+    // Same escaping as Jackson: quote, backslash and control characters; everything else as UTF-8
+    private void writeString(String value) {
+        if (value == null) {
+            writeRaw(NULL);
+            return;
+        }
+        // Worst case is six bytes per char (\u00XX), plus the quotes
+        ensureCapacity(value.length() * 6 + 2);
+        byte[] out = buffer;
+        int pos = size;
+        out[pos++] = '"';
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    out[pos++] = (byte) c;
+                    continue;
+                }
+                out[pos++] = '\\';
+                switch (c) {
+                    case '"', '\\' -> out[pos++] = (byte) c;
+                    case '\b' -> out[pos++] = 'b';
+                    case '\t' -> out[pos++] = 't';
+                    case '\n' -> out[pos++] = 'n';
+                    case '\f' -> out[pos++] = 'f';
+                    case '\r' -> out[pos++] = 'r';
+                    default -> {
+                        out[pos++] = 'u';
+                        out[pos++] = '0';
+                        out[pos++] = '0';
+                        out[pos++] = HEX[c >> 4];
+                        out[pos++] = HEX[c & 0xF];
+                    }
+                }
+            } else if (c < 0x800) {
+                out[pos++] = (byte) (0xC0 | (c >> 6));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                out[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                out[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                out[pos++] = (byte) (0xE0 | (c >> 12));
+                out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        out[pos++] = '"';
+        size = pos;
+    }
+
+    private void writeLong(Long value) {
+        if (value == null) {
+            writeRaw(NULL);
+            return;
+        }
+        long v = value;
+        if (v == Long.MIN_VALUE) {
+            writeAscii(Long.toString(v));
+            return;
+        }
+        ensureCapacity(digits.length);
+        if (v < 0) {
+            buffer[size++] = '-';
+            v = -v;
+        }
+        int count = toDigits(v);
+        System.arraycopy(digits, digits.length - count, buffer, size, count);
+        size += count;
+    }
+
+    // Plain-notation decimals with a long-sized unscaled value are formatted here; anything
+    // BigDecimal.toString() would render differently (exponents, huge values) goes through it
+    private void writeDecimal(BigDecimal value) {
+        if (value == null) {
+            writeRaw(NULL);
+            return;
+        }
+        int scale = value.scale();
+        BigInteger unscaledValue = value.unscaledValue();
+        if (scale < 0 || scale > 18 || value.precision() - 1 - scale < -6 || unscaledValue.bitLength() > 62) {
+            writeAscii(value.toString());
+            return;
+        }
+
+        long unscaled = unscaledValue.longValue();
+        ensureCapacity(digits.length + scale + 3);
+        if (unscaled < 0) {
+            buffer[size++] = '-';
+            unscaled = -unscaled;
+        }
+        int count = toDigits(unscaled);
+        int start = digits.length - count;
+        if (scale == 0) {
+            System.arraycopy(digits, start, buffer, size, count);
+            size += count;
+        } else if (count > scale) {
+            int integerDigits = count - scale;
+            System.arraycopy(digits, start, buffer, size, integerDigits);
+            size += integerDigits;
+            buffer[size++] = '.';
+            System.arraycopy(digits, start + integerDigits, buffer, size, scale);
+            size += scale;
+        } else {
+            buffer[size++] = '0';
+            buffer[size++] = '.';
+            for (int i = count; i < scale; i++) {
+                buffer[size++] = '0';
+            }
+            System.arraycopy(digits, start, buffer, size, count);
+            size += count;
+        }
+    }
+
+    private void writeDouble(Double value) {
+        if (value == null) {
+            writeRaw(NULL);
+        } else if (value == 1.0) {
+            // Single-touch attribution, by far the most common credit
+            writeAscii("1.0");
+        } else if (Double.isFinite(value)) {
+            writeAscii(Double.toString(value));
+        } else {
+            // Jackson quotes non-finite numbers by default
+            writeAscii("\"" + value + "\"");
+        }
+    }
+
+    // Digits of a non-negative long, right-aligned in the scratch array; returns their count
+    private int toDigits(long value) {
+        int pos = digits.length;
+        do {
+            digits[--pos] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        return digits.length - pos;
+    }
+
+    private void writeAscii(String value) {
+        ensureCapacity(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            buffer[size++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void writeRaw(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
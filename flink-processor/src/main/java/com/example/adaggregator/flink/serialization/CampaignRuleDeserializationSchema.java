@@ -0,0 +1,87 @@
+package com.example.adaggregator.flink.serialization;
+
+import com.example.adaggregator.flink.AttributionConfig;
+import com.example.adaggregator.flink.attribution.AttributionModel;
+import com.example.adaggregator.flink.attribution.CampaignRule;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.flink.api.common.serialization.DeserializationSchema;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.util.TimeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * Reads per-campaign attribution rules from the control topic, for example
+ * {@code {"campaign_id": "camp-1", "attribution_window": "7 d", "model": "linear"}}. Durations
+ * use the same format as the job parameters. A malformed or invalid rule is logged and skipped,
+ * so it never reaches the attribution operator. A rule whose dedup retention, after falling back
+ * to the job parameters, is shorter than its attribution window is invalid: a conversion replayed
+ * while its clicks are still held would be attributed twice.
+ */
+public class CampaignRuleDeserializationSchema implements DeserializationSchema<CampaignRule> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CampaignRuleDeserializationSchema.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final long defaultWindowMs;
+    private final long defaultDedupRetentionMs;
+
+    public CampaignRuleDeserializationSchema() {
+        this(AttributionConfig.defaults());
+    }
+
+    public CampaignRuleDeserializationSchema(AttributionConfig defaults) {
+        this.defaultWindowMs = defaults.getAttributionWindow().toMillis();
+        this.defaultDedupRetentionMs = defaults.getDedupRetention().toMillis();
+    }
+
+    @Override
+    public CampaignRule deserialize(byte[] message) {
+        try {
+            JsonNode node = objectMapper.readTree(message);
+            String campaignId = node.path("campaign_id").asText(null);
+            if (campaignId == null || campaignId.isEmpty()) {
+                throw new IllegalArgumentException("campaign_id is required");
+            }
+            Long windowMs = positiveDurationMs(node, "attribution_window");
+            Long dedupRetentionMs = positiveDurationMs(node, "dedup_retention");
+            if ((dedupRetentionMs != null ? dedupRetentionMs : defaultDedupRetentionMs)
+                    < (windowMs != null ? windowMs : defaultWindowMs)) {
+                throw new IllegalArgumentException("dedup_retention must not be shorter than attribution_window");
+            }
+            return new CampaignRule(
+                campaignId,
+                windowMs,
+                node.hasNonNull("model") ? AttributionModel.fromName(node.get("model").asText()).name() : null,
+                dedupRetentionMs
+            );
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.warn("Skipping invalid attribution rule", e);
+            return null;
+        }
+    }
+
+    private static Long positiveDurationMs(JsonNode node, String field) {
+        if (!node.hasNonNull(field)) {
+            return null;
+        }
+        long millis = TimeUtils.parseDuration(node.get(field).asText()).toMillis();
+        if (millis <= 0) {
+            throw new IllegalArgumentException(field + " must be positive");
+        }
+        return millis;
+    }
+
+    @Override
+    public boolean isEndOfStream(CampaignRule nextElement) {
+        return false;
+    }
+
+    @Override
+    public TypeInformation<CampaignRule> getProducedType() {
+        return TypeInformation.of(CampaignRule.class);
+    }
+}
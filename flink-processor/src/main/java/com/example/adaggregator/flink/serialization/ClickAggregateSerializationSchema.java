@@ -0,0 +1,20 @@
+package com.example.adaggregator.flink.serialization;
+
+import com.example.adaggregator.flink.model.ClickAggregate;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.flink.api.common.serialization.SerializationSchema;
+
+public class ClickAggregateSerializationSchema implements SerializationSchema<ClickAggregate> {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public byte[] serialize(ClickAggregate element) {
+        try {
+            return objectMapper.writeValueAsBytes(element);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize ClickAggregate", e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.adaggregator.flink.serialization;
+
+import com.example.adaggregator.flink.model.ConversionEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.apache.flink.api.common.serialization.SerializationSchema;
+
+import static com.example.adaggregator.flink.serialization.EventSerializationSchema.RAW_EVENT_MAPPER;
+
+public class ConversionEventSerializationSchema implements SerializationSchema<ConversionEvent> {
+
+    @Override
+    public byte[] serialize(ConversionEvent element) {
+        try {
+            return RAW_EVENT_MAPPER.writeValueAsBytes(element);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize ConversionEvent", e);
+        }
+    }
+}
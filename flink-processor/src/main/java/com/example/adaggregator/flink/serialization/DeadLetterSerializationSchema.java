@@ -0,0 +1,27 @@
+package com.example.adaggregator.flink.serialization;
+
+import com.example.adaggregator.flink.model.DeadLetter;
+import org.apache.flink.connector.kafka.sink.KafkaRecordSerializationSchema;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+
+import java.nio.charset.StandardCharsets;
+
+/** Writes the original payload unchanged, with the decode error in an {@code error} header. */
+public class DeadLetterSerializationSchema implements KafkaRecordSerializationSchema<DeadLetter> {
+
+    private final String topic;
+
+    public DeadLetterSerializationSchema(String topic) {
+        this.topic = topic;
+    }
+
+    @Override
+    public ProducerRecord<byte[], byte[]> serialize(DeadLetter element, KafkaSinkContext context, Long timestamp) {
+        RecordHeaders headers = new RecordHeaders();
+        if (element.getError() != null) {
+            headers.add("error", element.getError().getBytes(StandardCharsets.UTF_8));
+        }
+        return new ProducerRecord<>(topic, null, timestamp, null, element.getPayload(), headers);
+    }
+}
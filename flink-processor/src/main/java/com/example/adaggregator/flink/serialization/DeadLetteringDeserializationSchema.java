@@ -0,0 +1,53 @@
+package com.example.adaggregator.flink.serialization;
+
+import com.example.adaggregator.flink.model.DeadLetter;
+import com.example.adaggregator.flink.model.Event;
+import com.example.adaggregator.flink.typeutils.ModelTypes;
+import org.apache.flink.api.common.serialization.DeserializationSchema;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.java.typeutils.EitherTypeInfo;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.types.Either;
+
+/**
+ * Wraps {@link EventDeserializationSchema} so a record it cannot decode becomes a
+ * {@link DeadLetter} instead of an exception that fails the source and restarts the job
+ * onto the same record.
+ */
+public class DeadLetteringDeserializationSchema implements DeserializationSchema<Either<Event, DeadLetter>> {
+
+    private final EventDeserializationSchema events;
+    private transient Counter undecodableEvents;
+
+    public DeadLetteringDeserializationSchema(EventDeserializationSchema events) {
+        this.events = events;
+    }
+
+    @Override
+    public void open(InitializationContext context) throws Exception {
+        events.open(context);
+        undecodableEvents = context.getMetricGroup().counter("undecodableEvents");
+    }
+
+    @Override
+    public Either<Event, DeadLetter> deserialize(byte[] message) {
+        try {
+            return Either.Left(events.deserialize(message));
+        } catch (Exception e) {
+            if (undecodableEvents != null) {
+                undecodableEvents.inc();
+            }
+            return Either.Right(new DeadLetter(message, e.getMessage()));
+        }
+    }
+
+    @Override
+    public boolean isEndOfStream(Either<Event, DeadLetter> nextElement) {
+        return false;
+    }
+
+    @Override
+    public TypeInformation<Either<Event, DeadLetter>> getProducedType() {
+        return new EitherTypeInfo<>(ModelTypes.EVENT, TypeInformation.of(DeadLetter.class));
+    }
+}
@@ -1,19 +1,151 @@
 package com.example.adaggregator.flink.serialization;
 
+import com.example.adaggregator.flink.model.ClickEvent;
+import com.example.adaggregator.flink.model.ConversionEvent;
 import com.example.adaggregator.flink.model.Event;
+import com.example.adaggregator.flink.typeutils.ModelTypes;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.flink.api.common.serialization.DeserializationSchema;
 import org.apache.flink.api.common.typeinfo.TypeInformation;
 
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
 
+/**
+ * Parses raw events field by field with Jackson's streaming parser instead of data binding.
+ * Unknown fields are skipped, and {@code metadata}, which attribution never reads, is only
+ * materialized when {@code captureMetadata} is set. Records that are not valid JSON, have an
+ * unknown {@code event_type} or lack an id, user, campaign or timestamp fail with an
+ * {@link IOException}.
+ */
 public class EventDeserializationSchema implements DeserializationSchema<Event> {
 
     private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {};
+
+    private final boolean captureMetadata;
+
+    public EventDeserializationSchema() {
+        this(true);
+    }
+
+    public EventDeserializationSchema(boolean captureMetadata) {
+        this.captureMetadata = captureMetadata;
+    }
 
     @Override
     public Event deserialize(byte[] message) throws IOException {
-        return objectMapper.readValue(message, Event.class);
+        try (JsonParser parser = objectMapper.getFactory().createParser(message)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Event is not a JSON object");
+            }
+
+            String eventType = null;
+            String eventId = null;
+            String userId = null;
+            String campaignId = null;
+            Long timestamp = null;
+            String adId = null;
+            String source = null;
+            String type = null;
+            BigDecimal value = null;
+            Map<String, Object> metadata = null;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                switch (field) {
+                    case "event_type" -> eventType = text(parser, token);
+                    case "event_id" -> eventId = text(parser, token);
+                    case "user_id" -> userId = text(parser, token);
+                    case "campaign_id" -> campaignId = text(parser, token);
+                    case "timestamp" -> timestamp = longValue(parser, token);
+                    case "ad_id" -> adId = text(parser, token);
+                    case "source" -> source = text(parser, token);
+                    case "type" -> type = text(parser, token);
+                    case "value" -> value = decimal(parser, token);
+                    case "metadata" -> {
+                        if (captureMetadata && token == JsonToken.START_OBJECT) {
+                            metadata = objectMapper.readValue(parser, METADATA_TYPE);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+
+            if (eventId == null || userId == null || campaignId == null || timestamp == null) {
+                throw new JsonParseException(parser,
+                    "Event is missing one of event_id, user_id, campaign_id, timestamp");
+            }
+
+            Event event;
+            if ("click".equals(eventType)) {
+                ClickEvent click = new ClickEvent();
+                click.setAdId(adId);
+                click.setSource(source);
+                click.setMetadata(metadata);
+                event = click;
+            } else if ("conversion".equals(eventType)) {
+                ConversionEvent conversion = new ConversionEvent();
+                conversion.setType(type);
+                conversion.setValue(value);
+                conversion.setSource(source);
+                event = conversion;
+            } else {
+                throw new JsonParseException(parser, "Unknown event_type: " + eventType);
+            }
+            event.setEventType(eventType);
+            event.setEventId(eventId);
+            event.setUserId(userId);
+            event.setCampaignId(campaignId);
+            event.setTimestamp(timestamp);
+            return event;
+        }
+    }
+
+    private static String text(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!token.isScalarValue()) {
+            throw new JsonParseException(parser, "Expected a scalar for " + parser.currentName());
+        }
+        return parser.getText();
+    }
+
+    private static Long longValue(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        try {
+            return Long.parseLong(text(parser, token));
+        } catch (NumberFormatException e) {
+            throw new JsonParseException(parser, "Expected an integer for " + parser.currentName(), e);
+        }
+    }
+
+    private static BigDecimal decimal(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isNumeric()) {
+            return parser.getDecimalValue();
+        }
+        try {
+            return new BigDecimal(text(parser, token));
+        } catch (NumberFormatException e) {
+            throw new JsonParseException(parser, "Expected a number for " + parser.currentName(), e);
+        }
     }
 
     @Override
@@ -23,6 +155,6 @@ public class EventDeserializationSchema implements DeserializationSchema<Event>
 
     @Override
     public TypeInformation<Event> getProducedType() {
-        return TypeInformation.of(Event.class);
+        return ModelTypes.EVENT;
     }
 }
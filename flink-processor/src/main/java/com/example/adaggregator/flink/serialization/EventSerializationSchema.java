@@ -0,0 +1,28 @@
+package com.example.adaggregator.flink.serialization;
+
+import com.example.adaggregator.flink.model.Event;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.flink.api.common.serialization.SerializationSchema;
+
+/** Writes clicks and conversions back in the {@code raw-events} format. */
+public class EventSerializationSchema implements SerializationSchema<Event> {
+
+    // event_type is a regular property already; without this Jackson writes it twice
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NONE)
+    private abstract static class NoTypeId {
+    }
+
+    static final ObjectMapper RAW_EVENT_MAPPER = new ObjectMapper()
+        .addMixIn(Event.class, NoTypeId.class);
+
+    @Override
+    public byte[] serialize(Event element) {
+        try {
+            return RAW_EVENT_MAPPER.writeValueAsBytes(element);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize Event", e);
+        }
+    }
+}
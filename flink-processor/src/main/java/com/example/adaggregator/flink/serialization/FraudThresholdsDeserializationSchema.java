@@ -0,0 +1,50 @@
+package com.example.adaggregator.flink.serialization;
+
+import com.example.adaggregator.flink.fraud.FraudThresholds;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.flink.api.common.serialization.DeserializationSchema;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * Reads threshold updates from the control topic. A malformed update, or one with a limit that
+ * is not positive, is logged and skipped, so it never reaches the filter.
+ */
+public class FraudThresholdsDeserializationSchema implements DeserializationSchema<FraudThresholds> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FraudThresholdsDeserializationSchema.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public FraudThresholds deserialize(byte[] message) {
+        try {
+            FraudThresholds thresholds = objectMapper.readValue(message, FraudThresholds.class);
+            requirePositive(thresholds.getMaxClicksPerUser(), "max_clicks_per_user");
+            requirePositive(thresholds.getMaxClicksPerUserCampaign(), "max_clicks_per_user_campaign");
+            return thresholds;
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.warn("Skipping invalid fraud thresholds update", e);
+            return null;
+        }
+    }
+
+    // A limit of zero would quarantine every click
+    private static void requirePositive(Integer limit, String field) {
+        if (limit != null && limit <= 0) {
+            throw new IllegalArgumentException(field + " must be positive");
+        }
+    }
+
+    @Override
+    public boolean isEndOfStream(FraudThresholds nextElement) {
+        return false;
+    }
+
+    @Override
+    public TypeInformation<FraudThresholds> getProducedType() {
+        return TypeInformation.of(FraudThresholds.class);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.adaggregator.flink.serialization;
+
+import org.apache.flink.api.common.serialization.DeserializationSchema;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.connector.file.src.reader.SimpleStreamFormat;
+import org.apache.flink.core.fs.FSDataInputStream;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads files of one JSON record per line, decoding each line with the schema the Kafka source
+ * uses for the same records. Blank lines and lines the schema returns null for are skipped.
+ * Files are not split; compressed files are decompressed by the file source.
+ */
+public class JsonLinesFormat<T> extends SimpleStreamFormat<T> {
+
+    private final DeserializationSchema<T> schema;
+
+    public JsonLinesFormat(DeserializationSchema<T> schema) {
+        this.schema = schema;
+    }
+
+    @Override
+    public Reader<T> createReader(Configuration config, FSDataInputStream stream) {
+        BufferedReader lines = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        return new Reader<>() {
+            @Override
+            public T read() throws IOException {
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    T record = schema.deserialize(line.getBytes(StandardCharsets.UTF_8));
+                    if (record != null) {
+                        return record;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public void close() throws IOException {
+                lines.close();
+            }
+        };
+    }
+
+    @Override
+    public TypeInformation<T> getProducedType() {
+        return schema.getProducedType();
+    }
+}
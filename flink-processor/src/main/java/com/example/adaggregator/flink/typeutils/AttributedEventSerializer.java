@@ -0,0 +1,191 @@
+package com.example.adaggregator.flink.typeutils;
+
+import com.example.adaggregator.flink.model.AttributedEvent;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.TypeSerializerSchemaCompatibility;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.base.BigDecSerializer;
+import org.apache.flink.api.common.typeutils.base.TypeSerializerSingleton;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+
+import java.io.IOException;
+
+import static com.example.adaggregator.flink.typeutils.SerializerSupport.*;
+
+/**
+ * Attributed events are held in state by the async enrichment operator, which checkpoints its
+ * in-flight records. Each format change bumps the snapshot version, and a snapshot of an older
+ * version restores a serializer that reads that version's format.
+ */
+public final class AttributedEventSerializer extends TypeSerializerSingleton<AttributedEvent> {
+
+    public static final AttributedEventSerializer INSTANCE =
+        new AttributedEventSerializer(AttributedEventSerializerSnapshot.CURRENT_VERSION);
+
+    // Snapshot version whose format this instance reads and writes
+    private final int version;
+
+    private AttributedEventSerializer(int version) {
+        this.version = version;
+    }
+
+    @Override
+    public boolean isImmutableType() {
+        return false;
+    }
+
+    @Override
+    public AttributedEvent createInstance() {
+        return AttributedEvent.builder().build();
+    }
+
+    @Override
+    public AttributedEvent copy(AttributedEvent from) {
+        return from.toBuilder().build();
+    }
+
+    @Override
+    public AttributedEvent copy(AttributedEvent from, AttributedEvent reuse) {
+        return copy(from);
+    }
+
+    @Override
+    public int getLength() {
+        return -1;
+    }
+
+    @Override
+    public void serialize(AttributedEvent record, DataOutputView target) throws IOException {
+        writeString(record.getEventType(), target);
+        writeString(record.getConversionId(), target);
+        writeString(record.getClickId(), target);
+        writeString(record.getUserId(), target);
+        writeString(record.getAdId(), target);
+        writeString(record.getCampaignId(), target);
+        writeString(record.getSource(), target);
+        writeString(record.getConversionType(), target);
+        BigDecSerializer.writeBigDecimal(record.getValue(), target);
+        writeLong(record.getClickTime(), target);
+        writeLong(record.getConversionTime(), target);
+        writeInt(record.getAttributionWindowHours(), target);
+        if (version >= AttributedEventSerializerSnapshot.WINDOW_MS_VERSION) {
+            writeLong(record.getAttributionWindowMs(), target);
+        }
+        writeString(record.getAttributionModel(), target);
+        writeDouble(record.getCredit(), target);
+        if (version >= AttributedEventSerializerSnapshot.CAMPAIGN_METADATA_VERSION) {
+            writeString(record.getCampaignName(), target);
+            writeString(record.getAdvertiserId(), target);
+        }
+    }
+
+    @Override
+    public AttributedEvent deserialize(DataInputView source) throws IOException {
+        AttributedEvent.AttributedEventBuilder builder = AttributedEvent.builder()
+            .eventType(readString(source))
+            .conversionId(readString(source))
+            .clickId(readString(source))
+            .userId(readString(source))
+            .adId(readString(source))
+            .campaignId(readString(source))
+            .source(readString(source))
+            .conversionType(readString(source))
+            .value(BigDecSerializer.readBigDecimal(source))
+            .clickTime(readLong(source))
+            .conversionTime(readLong(source))
+            .attributionWindowHours(readInt(source));
+        if (version >= AttributedEventSerializerSnapshot.WINDOW_MS_VERSION) {
+            builder.attributionWindowMs(readLong(source));
+        }
+        builder.attributionModel(readString(source))
+            .credit(readDouble(source));
+        if (version >= AttributedEventSerializerSnapshot.CAMPAIGN_METADATA_VERSION) {
+            builder.campaignName(readString(source))
+                .advertiserId(readString(source));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public AttributedEvent deserialize(AttributedEvent reuse, DataInputView source) throws IOException {
+        return deserialize(source);
+    }
+
+    @Override
+    public void copy(DataInputView source, DataOutputView target) throws IOException {
+        serialize(deserialize(source), target);
+    }
+
+    @Override
+    public TypeSerializerSnapshot<AttributedEvent> snapshotConfiguration() {
+        return new AttributedEventSerializerSnapshot();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof AttributedEventSerializer other && other.version == version;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(version);
+    }
+
+    public static final class AttributedEventSerializerSnapshot implements TypeSerializerSnapshot<AttributedEvent> {
+
+        // Versions up to 3 were written by SimpleTypeSerializerSnapshot, before the format
+        // carried campaign_name and advertiser_id
+        static final int CAMPAIGN_METADATA_VERSION = 4;
+        static final int WINDOW_MS_VERSION = 5;
+        static final int CURRENT_VERSION = WINDOW_MS_VERSION;
+
+        private int readVersion = CURRENT_VERSION;
+
+        @Override
+        public int getCurrentVersion() {
+            return CURRENT_VERSION;
+        }
+
+        @Override
+        public void writeSnapshot(DataOutputView out) {
+        }
+
+        @Override
+        public void readSnapshot(int readVersion, DataInputView in, ClassLoader userCodeClassLoader) throws IOException {
+            // Version 2 of SimpleTypeSerializerSnapshot still wrote the serializer class name
+            if (readVersion == 2) {
+                in.readUTF();
+            }
+            this.readVersion = readVersion;
+        }
+
+        @Override
+        public TypeSerializer<AttributedEvent> restoreSerializer() {
+            return readVersion == CURRENT_VERSION ? INSTANCE : new AttributedEventSerializer(readVersion);
+        }
+
+        @Override
+        public TypeSerializerSchemaCompatibility<AttributedEvent> resolveSchemaCompatibility(
+                TypeSerializerSnapshot<AttributedEvent> oldSerializerSnapshot) {
+            if (!(oldSerializerSnapshot instanceof AttributedEventSerializerSnapshot old)) {
+                return TypeSerializerSchemaCompatibility.incompatible();
+            }
+            return old.readVersion == CURRENT_VERSION
+                ? TypeSerializerSchemaCompatibility.compatibleAsIs()
+                : TypeSerializerSchemaCompatibility.compatibleAfterMigration();
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public TypeSerializerSchemaCompatibility<AttributedEvent> resolveSchemaCompatibility(
+                TypeSerializer<AttributedEvent> newSerializer) {
+            if (!(newSerializer instanceof AttributedEventSerializer)) {
+                return TypeSerializerSchemaCompatibility.incompatible();
+            }
+            return readVersion == CURRENT_VERSION
+                ? TypeSerializerSchemaCompatibility.compatibleAsIs()
+                : TypeSerializerSchemaCompatibility.compatibleAfterMigration();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.adaggregator.flink.typeutils;
+
+import com.example.adaggregator.flink.model.ClickAggregate;
+import org.apache.flink.api.common.typeutils.SimpleTypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.base.TypeSerializerSingleton;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+
+import java.io.IOException;
+
+import static com.example.adaggregator.flink.typeutils.SerializerSupport.*;
+
+public final class ClickAggregateSerializer extends TypeSerializerSingleton<ClickAggregate> {
+
+    public static final ClickAggregateSerializer INSTANCE = new ClickAggregateSerializer();
+
+    @Override
+    public boolean isImmutableType() {
+        return false;
+    }
+
+    @Override
+    public ClickAggregate createInstance() {
+        return ClickAggregate.builder().build();
+    }
+
+    @Override
+    public ClickAggregate copy(ClickAggregate from) {
+        return from.toBuilder().build();
+    }
+
+    @Override
+    public ClickAggregate copy(ClickAggregate from, ClickAggregate reuse) {
+        return copy(from);
+    }
+
+    @Override
+    public int getLength() {
+        return -1;
+    }
+
+    @Override
+    public void serialize(ClickAggregate record, DataOutputView target) throws IOException {
+        writeString(record.getCampaignId(), target);
+        writeString(record.getSource(), target);
+        writeString(record.getAdId(), target);
+        writeLong(record.getWindowStart(), target);
+        writeLong(record.getClicks(), target);
+    }
+
+    @Override
+    public ClickAggregate deserialize(DataInputView source) throws IOException {
+        return ClickAggregate.builder()
+            .campaignId(readString(source))
+            .source(readString(source))
+            .adId(readString(source))
+            .windowStart(readLong(source))
+            .clicks(readLong(source))
+            .build();
+    }
+
+    @Override
+    public ClickAggregate deserialize(ClickAggregate reuse, DataInputView source) throws IOException {
+        return deserialize(source);
+    }
+
+    @Override
+    public void copy(DataInputView source, DataOutputView target) throws IOException {
+        serialize(deserialize(source), target);
+    }
+
+    @Override
+    public TypeSerializerSnapshot<ClickAggregate> snapshotConfiguration() {
+        return new ClickAggregateSerializerSnapshot();
+    }
+
+    public static final class ClickAggregateSerializerSnapshot extends SimpleTypeSerializerSnapshot<ClickAggregate> {
+        public ClickAggregateSerializerSnapshot() {
+            super(() -> INSTANCE);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.adaggregator.flink.typeutils;
+
+import com.example.adaggregator.flink.model.ClickEvent;
+import org.apache.flink.api.common.typeutils.SimpleTypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.base.TypeSerializerSingleton;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+
+import java.io.IOException;
+import java.util.HashMap;
+
+import static com.example.adaggregator.flink.typeutils.SerializerSupport.*;
+
+public final class ClickEventSerializer extends TypeSerializerSingleton<ClickEvent> {
+
+    public static final ClickEventSerializer INSTANCE = new ClickEventSerializer();
+
+    @Override
+    public boolean isImmutableType() {
+        return false;
+    }
+
+    @Override
+    public ClickEvent createInstance() {
+        return new ClickEvent();
+    }
+
+    @Override
+    public ClickEvent copy(ClickEvent from) {
+        ClickEvent copy = new ClickEvent();
+        copyEventFields(from, copy);
+        copy.setAdId(from.getAdId());
+        copy.setSource(from.getSource());
+        copy.setMetadata(from.getMetadata() == null ? null : new HashMap<>(from.getMetadata()));
+        return copy;
+    }
+
+    @Override
+    public ClickEvent copy(ClickEvent from, ClickEvent reuse) {
+        return copy(from);
+    }
+
+    @Override
+    public int getLength() {
+        return -1;
+    }
+
+    @Override
+    public void serialize(ClickEvent record, DataOutputView target) throws IOException {
+        writeEventFields(record, target);
+        writeString(record.getAdId(), target);
+        writeString(record.getSource(), target);
+        writeMetadata(record.getMetadata(), target);
+    }
+
+    @Override
+    public ClickEvent deserialize(DataInputView source) throws IOException {
+        ClickEvent click = new ClickEvent();
+        readEventFields(click, source);
+        click.setAdId(readString(source));
+        click.setSource(readString(source));
+        click.setMetadata(readMetadata(source));
+        return click;
+    }
+
+    @Override
+    public ClickEvent deserialize(ClickEvent reuse, DataInputView source) throws IOException {
+        return deserialize(source);
+    }
+
+    @Override
+    public void copy(DataInputView source, DataOutputView target) throws IOException {
+        serialize(deserialize(source), target);
+    }
+
+    @Override
+    public TypeSerializerSnapshot<ClickEvent> snapshotConfiguration() {
+        return new ClickEventSerializerSnapshot();
+    }
+
+    public static final class ClickEventSerializerSnapshot extends SimpleTypeSerializerSnapshot<ClickEvent> {
+        public ClickEventSerializerSnapshot() {
+            super(() -> INSTANCE);
+        }
+    }
+}
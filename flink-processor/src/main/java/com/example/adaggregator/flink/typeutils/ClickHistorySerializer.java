@@ -0,0 +1,98 @@
+package com.example.adaggregator.flink.typeutils;
+
+import com.example.adaggregator.flink.attribution.ClickHistory;
+import org.apache.flink.api.common.typeutils.SimpleTypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.base.TypeSerializerSingleton;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+
+import java.io.IOException;
+
+import static com.example.adaggregator.flink.typeutils.SerializerSupport.readString;
+import static com.example.adaggregator.flink.typeutils.SerializerSupport.writeString;
+
+/**
+ * Writes only the live clicks of a history, oldest first, so empty ring slots cost nothing
+ * and a restored history always starts at slot zero.
+ */
+public final class ClickHistorySerializer extends TypeSerializerSingleton<ClickHistory> {
+
+    public static final ClickHistorySerializer INSTANCE = new ClickHistorySerializer();
+
+    @Override
+    public boolean isImmutableType() {
+        return false;
+    }
+
+    @Override
+    public ClickHistory createInstance() {
+        return new ClickHistory(0);
+    }
+
+    @Override
+    public ClickHistory copy(ClickHistory from) {
+        ClickHistory copy = new ClickHistory(from.capacity());
+        for (int i = 0; i < from.size(); i++) {
+            copy.append(from.clickIdAt(i), from.adIdAt(i), from.sourceAt(i), from.timestampAt(i));
+        }
+        return copy;
+    }
+
+    @Override
+    public ClickHistory copy(ClickHistory from, ClickHistory reuse) {
+        return copy(from);
+    }
+
+    @Override
+    public int getLength() {
+        return -1;
+    }
+
+    @Override
+    public void serialize(ClickHistory record, DataOutputView target) throws IOException {
+        target.writeInt(record.capacity());
+        target.writeInt(record.size());
+        for (int i = 0; i < record.size(); i++) {
+            target.writeLong(record.timestampAt(i));
+            writeString(record.clickIdAt(i), target);
+            writeString(record.adIdAt(i), target);
+            writeString(record.sourceAt(i), target);
+        }
+    }
+
+    @Override
+    public ClickHistory deserialize(DataInputView source) throws IOException {
+        ClickHistory history = new ClickHistory(source.readInt());
+        int size = source.readInt();
+        for (int i = 0; i < size; i++) {
+            long timestamp = source.readLong();
+            String clickId = readString(source);
+            String adId = readString(source);
+            // Entries are written oldest first and were deduplicated when first added
+            history.append(clickId, adId, readString(source), timestamp);
+        }
+        return history;
+    }
+
+    @Override
+    public ClickHistory deserialize(ClickHistory reuse, DataInputView source) throws IOException {
+        return deserialize(source);
+    }
+
+    @Override
+    public void copy(DataInputView source, DataOutputView target) throws IOException {
+        serialize(deserialize(source), target);
+    }
+
+    @Override
+    public TypeSerializerSnapshot<ClickHistory> snapshotConfiguration() {
+        return new ClickHistorySerializerSnapshot();
+    }
+
+    public static final class ClickHistorySerializerSnapshot extends SimpleTypeSerializerSnapshot<ClickHistory> {
+        public ClickHistorySerializerSnapshot() {
+            super(() -> INSTANCE);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.adaggregator.flink.typeutils;
+
+import com.example.adaggregator.flink.fraud.ClickRate;
+import org.apache.flink.api.common.typeutils.SimpleTypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.base.TypeSerializerSingleton;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+
+import java.io.IOException;
+
+public final class ClickRateSerializer extends TypeSerializerSingleton<ClickRate> {
+
+    public static final ClickRateSerializer INSTANCE = new ClickRateSerializer();
+
+    @Override
+    public boolean isImmutableType() {
+        return false;
+    }
+
+    @Override
+    public ClickRate createInstance() {
+        return new ClickRate(0);
+    }
+
+    @Override
+    public ClickRate copy(ClickRate from) {
+        return new ClickRate(from.lastBucket(), from.counts().clone());
+    }
+
+    @Override
+    public ClickRate copy(ClickRate from, ClickRate reuse) {
+        return copy(from);
+    }
+
+    @Override
+    public int getLength() {
+        return -1;
+    }
+
+    @Override
+    public void serialize(ClickRate record, DataOutputView target) throws IOException {
+        target.writeLong(record.lastBucket());
+        int[] counts = record.counts();
+        target.writeInt(counts.length);
+        for (int count : counts) {
+            target.writeInt(count);
+        }
+    }
+
+    @Override
+    public ClickRate deserialize(DataInputView source) throws IOException {
+        long lastBucket = source.readLong();
+        int[] counts = new int[source.readInt()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = source.readInt();
+        }
+        return new ClickRate(lastBucket, counts);
+    }
+
+    @Override
+    public ClickRate deserialize(ClickRate reuse, DataInputView source) throws IOException {
+        return deserialize(source);
+    }
+
+    @Override
+    public void copy(DataInputView source, DataOutputView target) throws IOException {
+        serialize(deserialize(source), target);
+    }
+
+    @Override
+    public TypeSerializerSnapshot<ClickRate> snapshotConfiguration() {
+        return new ClickRateSerializerSnapshot();
+    }
+
+    public static final class ClickRateSerializerSnapshot extends SimpleTypeSerializerSnapshot<ClickRate> {
+        public ClickRateSerializerSnapshot() {
+            super(() -> INSTANCE);
+        }
+    }
+}
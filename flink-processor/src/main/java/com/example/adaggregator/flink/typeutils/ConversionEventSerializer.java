@@ -0,0 +1,87 @@
+package com.example.adaggregator.flink.typeutils;
+
+import com.example.adaggregator.flink.model.ConversionEvent;
+import org.apache.flink.api.common.typeutils.SimpleTypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.base.BigDecSerializer;
+import org.apache.flink.api.common.typeutils.base.TypeSerializerSingleton;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+
+import java.io.IOException;
+
+import static com.example.adaggregator.flink.typeutils.SerializerSupport.*;
+
+public final class ConversionEventSerializer extends TypeSerializerSingleton<ConversionEvent> {
+
+    public static final ConversionEventSerializer INSTANCE = new ConversionEventSerializer();
+
+    @Override
+    public boolean isImmutableType() {
+        return false;
+    }
+
+    @Override
+    public ConversionEvent createInstance() {
+        return new ConversionEvent();
+    }
+
+    @Override
+    public ConversionEvent copy(ConversionEvent from) {
+        ConversionEvent copy = new ConversionEvent();
+        copyEventFields(from, copy);
+        copy.setType(from.getType());
+        copy.setValue(from.getValue());
+        copy.setSource(from.getSource());
+        return copy;
+    }
+
+    @Override
+    public ConversionEvent copy(ConversionEvent from, ConversionEvent reuse) {
+        return copy(from);
+    }
+
+    @Override
+    public int getLength() {
+        return -1;
+    }
+
+    @Override
+    public void serialize(ConversionEvent record, DataOutputView target) throws IOException {
+        writeEventFields(record, target);
+        writeString(record.getType(), target);
+        BigDecSerializer.writeBigDecimal(record.getValue(), target);
+        writeString(record.getSource(), target);
+    }
+
+    @Override
+    public ConversionEvent deserialize(DataInputView source) throws IOException {
+        ConversionEvent conversion = new ConversionEvent();
+        readEventFields(conversion, source);
+        conversion.setType(readString(source));
+        conversion.setValue(BigDecSerializer.readBigDecimal(source));
+        conversion.setSource(readString(source));
+        return conversion;
+    }
+
+    @Override
+    public ConversionEvent deserialize(ConversionEvent reuse, DataInputView source) throws IOException {
+        return deserialize(source);
+    }
+
+    @Override
+    public void copy(DataInputView source, DataOutputView target) throws IOException {
+        serialize(deserialize(source), target);
+    }
+
+    @Override
+    public TypeSerializerSnapshot<ConversionEvent> snapshotConfiguration() {
+        return new ConversionEventSerializerSnapshot();
+    }
+
+    public static final class ConversionEventSerializerSnapshot extends SimpleTypeSerializerSnapshot<ConversionEvent> {
+        public ConversionEventSerializerSnapshot() {
+            super(() -> INSTANCE);
+        }
+    }
+}
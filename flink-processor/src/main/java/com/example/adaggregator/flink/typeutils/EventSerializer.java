@@ -0,0 +1,105 @@
+package com.example.adaggregator.flink.typeutils;
+
+import com.example.adaggregator.flink.model.ClickEvent;
+import com.example.adaggregator.flink.model.ConversionEvent;
+import com.example.adaggregator.flink.model.Event;
+import org.apache.flink.api.common.typeutils.SimpleTypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.base.TypeSerializerSingleton;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+
+import java.io.IOException;
+
+/**
+ * Serializes the raw event union with a one-byte subtype tag in front of the subtype's own
+ * encoding, replacing the Kryo fallback Flink picks for the abstract {@link Event}.
+ */
+public final class EventSerializer extends TypeSerializerSingleton<Event> {
+
+    public static final EventSerializer INSTANCE = new EventSerializer();
+
+    private static final byte CLICK = 0;
+    private static final byte CONVERSION = 1;
+
+    @Override
+    public boolean isImmutableType() {
+        return false;
+    }
+
+    @Override
+    public Event createInstance() {
+        // Abstract type; there is no meaningful empty instance
+        return null;
+    }
+
+    @Override
+    public Event copy(Event from) {
+        if (from instanceof ClickEvent click) {
+            return ClickEventSerializer.INSTANCE.copy(click);
+        }
+        if (from instanceof ConversionEvent conversion) {
+            return ConversionEventSerializer.INSTANCE.copy(conversion);
+        }
+        throw unsupported(from);
+    }
+
+    @Override
+    public Event copy(Event from, Event reuse) {
+        return copy(from);
+    }
+
+    @Override
+    public int getLength() {
+        return -1;
+    }
+
+    @Override
+    public void serialize(Event record, DataOutputView target) throws IOException {
+        if (record instanceof ClickEvent click) {
+            target.writeByte(CLICK);
+            ClickEventSerializer.INSTANCE.serialize(click, target);
+        } else if (record instanceof ConversionEvent conversion) {
+            target.writeByte(CONVERSION);
+            ConversionEventSerializer.INSTANCE.serialize(conversion, target);
+        } else {
+            throw unsupported(record);
+        }
+    }
+
+    @Override
+    public Event deserialize(DataInputView source) throws IOException {
+        byte tag = source.readByte();
+        return switch (tag) {
+            case CLICK -> ClickEventSerializer.INSTANCE.deserialize(source);
+            case CONVERSION -> ConversionEventSerializer.INSTANCE.deserialize(source);
+            default -> throw new IOException("Unknown event tag: " + tag);
+        };
+    }
+
+    @Override
+    public Event deserialize(Event reuse, DataInputView source) throws IOException {
+        return deserialize(source);
+    }
+
+    @Override
+    public void copy(DataInputView source, DataOutputView target) throws IOException {
+        serialize(deserialize(source), target);
+    }
+
+    @Override
+    public TypeSerializerSnapshot<Event> snapshotConfiguration() {
+        return new EventSerializerSnapshot();
+    }
+
+    private static IllegalArgumentException unsupported(Event event) {
+        return new IllegalArgumentException("Unsupported event type: "
+            + (event == null ? "null" : event.getClass().getName()));
+    }
+
+    public static final class EventSerializerSnapshot extends SimpleTypeSerializerSnapshot<Event> {
+        public EventSerializerSnapshot() {
+            super(() -> INSTANCE);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.adaggregator.flink.typeutils;
+
+import com.example.adaggregator.flink.attribution.ClickHistory;
+import com.example.adaggregator.flink.fraud.ClickRate;
+import com.example.adaggregator.flink.model.AttributedEvent;
+import com.example.adaggregator.flink.model.ClickAggregate;
+import com.example.adaggregator.flink.model.ClickEvent;
+import com.example.adaggregator.flink.model.ConversionEvent;
+import com.example.adaggregator.flink.model.Event;
+import org.apache.flink.api.common.typeinfo.TypeInfoFactory;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+
+/**
+ * Type information for the job's records and state. The model classes point at the factories
+ * below through {@code @TypeInfo}, so {@code TypeInformation.of(...)}, class-based state
+ * descriptors and operator output extraction all resolve to the dedicated serializers.
+ */
+public final class ModelTypes {
+
+    public static final TypeInformation<Event> EVENT =
+        new SerializerTypeInfo<>(Event.class, EventSerializer.INSTANCE);
+    public static final TypeInformation<ClickEvent> CLICK_EVENT =
+        new SerializerTypeInfo<>(ClickEvent.class, ClickEventSerializer.INSTANCE);
+    public static final TypeInformation<ConversionEvent> CONVERSION_EVENT =
+        new SerializerTypeInfo<>(ConversionEvent.class, ConversionEventSerializer.INSTANCE);
+    public static final TypeInformation<AttributedEvent> ATTRIBUTED_EVENT =
+        new SerializerTypeInfo<>(AttributedEvent.class, AttributedEventSerializer.INSTANCE);
+    public static final TypeInformation<ClickHistory> CLICK_HISTORY =
+        new SerializerTypeInfo<>(ClickHistory.class, ClickHistorySerializer.INSTANCE);
+    public static final TypeInformation<ClickAggregate> CLICK_AGGREGATE =
+        new SerializerTypeInfo<>(ClickAggregate.class, ClickAggregateSerializer.INSTANCE);
+    public static final TypeInformation<ClickRate> CLICK_RATE =
+        new SerializerTypeInfo<>(ClickRate.class, ClickRateSerializer.INSTANCE);
+
+    private ModelTypes() {
+    }
+
+    public static class EventFactory extends TypeInfoFactory<Event> {
+        @Override
+        public TypeInformation<Event> createTypeInfo(Type t, Map<String, TypeInformation<?>> genericParameters) {
+            return EVENT;
+        }
+    }
+
+    public static class ClickEventFactory extends TypeInfoFactory<ClickEvent> {
+        @Override
+        public TypeInformation<ClickEvent> createTypeInfo(Type t, Map<String, TypeInformation<?>> genericParameters) {
+            return CLICK_EVENT;
+        }
+    }
+
+    public static class ConversionEventFactory extends TypeInfoFactory<ConversionEvent> {
+        @Override
+        public TypeInformation<ConversionEvent> createTypeInfo(Type t, Map<String, TypeInformation<?>> genericParameters) {
+            return CONVERSION_EVENT;
+        }
+    }
+
+    public static class AttributedEventFactory extends TypeInfoFactory<AttributedEvent> {
+        @Override
+        public TypeInformation<AttributedEvent> createTypeInfo(Type t, Map<String, TypeInformation<?>> genericParameters) {
+            return ATTRIBUTED_EVENT;
+        }
+    }
+
+    public static class ClickHistoryFactory extends TypeInfoFactory<ClickHistory> {
+        @Override
+        public TypeInformation<ClickHistory> createTypeInfo(Type t, Map<String, TypeInformation<?>> genericParameters) {
+            return CLICK_HISTORY;
+        }
+    }
+
+    public static class ClickAggregateFactory extends TypeInfoFactory<ClickAggregate> {
+        @Override
+        public TypeInformation<ClickAggregate> createTypeInfo(Type t, Map<String, TypeInformation<?>> genericParameters) {
+            return CLICK_AGGREGATE;
+        }
+    }
+
+    public static class ClickRateFactory extends TypeInfoFactory<ClickRate> {
+        @Override
+        public TypeInformation<ClickRate> createTypeInfo(Type t, Map<String, TypeInformation<?>> genericParameters) {
+            return CLICK_RATE;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.adaggregator.flink.typeutils;
+
+import com.example.adaggregator.flink.model.Event;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.types.StringValue;
+
+import java.io.IOException;
+import java.util.Map;
+
+/** Field-level encoding shared by the model serializers. Every field is nullable. */
+final class SerializerSupport {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {};
+
+    private SerializerSupport() {
+    }
+
+    static void writeString(String value, DataOutputView target) throws IOException {
+        StringValue.writeString(value, target);
+    }
+
+    static String readString(DataInputView source) throws IOException {
+        return StringValue.readString(source);
+    }
+
+    static void writeLong(Long value, DataOutputView target) throws IOException {
+        target.writeBoolean(value != null);
+        if (value != null) {
+            target.writeLong(value);
+        }
+    }
+
+    static Long readLong(DataInputView source) throws IOException {
+        return source.readBoolean() ? source.readLong() : null;
+    }
+
+    static void writeInt(Integer value, DataOutputView target) throws IOException {
+        target.writeBoolean(value != null);
+        if (value != null) {
+            target.writeInt(value);
+        }
+    }
+
+    static Integer readInt(DataInputView source) throws IOException {
+        return source.readBoolean() ? source.readInt() : null;
+    }
+
+    static void writeDouble(Double value, DataOutputView target) throws IOException {
+        target.writeBoolean(value != null);
+        if (value != null) {
+            target.writeDouble(value);
+        }
+    }
+
+    static Double readDouble(DataInputView source) throws IOException {
+        return source.readBoolean() ? source.readDouble() : null;
+    }
+
+    // Metadata is free-form JSON from the SDK and never read by the job, so it is kept as JSON
+    static void writeMetadata(Map<String, Object> metadata, DataOutputView target) throws IOException {
+        writeString(metadata == null ? null : objectMapper.writeValueAsString(metadata), target);
+    }
+
+    static Map<String, Object> readMetadata(DataInputView source) throws IOException {
+        String json = readString(source);
+        return json == null ? null : objectMapper.readValue(json, METADATA_TYPE);
+    }
+
+    static void writeEventFields(Event event, DataOutputView target) throws IOException {
+        writeString(event.getEventType(), target);
+        writeString(event.getEventId(), target);
+        writeString(event.getUserId(), target);
+        writeString(event.getCampaignId(), target);
+        writeLong(event.getTimestamp(), target);
+    }
+
+    static void readEventFields(Event event, DataInputView source) throws IOException {
+        event.setEventType(readString(source));
+        event.setEventId(readString(source));
+        event.setUserId(readString(source));
+        event.setCampaignId(readString(source));
+        event.setTimestamp(readLong(source));
+    }
+
+    static void copyEventFields(Event from, Event to) {
+        to.setEventType(from.getEventType());
+        to.setEventId(from.getEventId());
+        to.setUserId(from.getUserId());
+        to.setCampaignId(from.getCampaignId());
+        to.setTimestamp(from.getTimestamp());
+    }
+}
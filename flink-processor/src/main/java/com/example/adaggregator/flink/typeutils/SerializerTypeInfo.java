@@ -0,0 +1,86 @@
+package com.example.adaggregator.flink.typeutils;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.serialization.SerializerConfig;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+
+/**
+ * Type information backed by one fixed, stateless serializer. Lets the job's own types bypass
+ * the Kryo fallback, so the pipeline runs with generic types disabled.
+ */
+public class SerializerTypeInfo<T> extends TypeInformation<T> {
+
+    private final Class<T> typeClass;
+    private final TypeSerializer<T> serializer;
+
+    public SerializerTypeInfo(Class<T> typeClass, TypeSerializer<T> serializer) {
+        this.typeClass = typeClass;
+        this.serializer = serializer;
+    }
+
+    @Override
+    public boolean isBasicType() {
+        return false;
+    }
+
+    @Override
+    public boolean isTupleType() {
+        return false;
+    }
+
+    @Override
+    public int getArity() {
+        return 1;
+    }
+
+    @Override
+    public int getTotalFields() {
+        return 1;
+    }
+
+    @Override
+    public Class<T> getTypeClass() {
+        return typeClass;
+    }
+
+    @Override
+    public boolean isKeyType() {
+        return false;
+    }
+
+    // Both variants are declared without @Override: 1.19 is mid-way through moving from
+    // ExecutionConfig to SerializerConfig and the serializer ignores either
+    public TypeSerializer<T> createSerializer(SerializerConfig config) {
+        return serializer;
+    }
+
+    public TypeSerializer<T> createSerializer(ExecutionConfig config) {
+        return serializer;
+    }
+
+    @Override
+    public String toString() {
+        return typeClass.getSimpleName() + "<" + serializer.getClass().getSimpleName() + ">";
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof SerializerTypeInfo<?> other)) {
+            return false;
+        }
+        return other.canEqual(this)
+            && typeClass.equals(other.typeClass)
+            && serializer.equals(other.serializer);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * typeClass.hashCode() + serializer.hashCode();
+    }
+
+    @Override
+    public boolean canEqual(Object obj) {
+        return obj instanceof SerializerTypeInfo;
+    }
+}
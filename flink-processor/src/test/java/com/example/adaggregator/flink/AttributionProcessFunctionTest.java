@@ -1,39 +1,66 @@
 package com.example.adaggregator.flink;
 
+import com.example.adaggregator.flink.attribution.AttributionModel;
+import com.example.adaggregator.flink.attribution.CampaignRule;
 import com.example.adaggregator.flink.model.AttributedEvent;
 import com.example.adaggregator.flink.model.ClickEvent;
 import com.example.adaggregator.flink.model.ConversionEvent;
 import com.example.adaggregator.flink.model.Event;
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
 import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeinfo.Types;
+import org.apache.flink.api.java.typeutils.PojoField;
+import org.apache.flink.api.java.typeutils.PojoTypeInfo;
+import org.apache.flink.api.java.typeutils.TypeExtractor;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
+import org.apache.flink.runtime.state.heap.HeapKeyedStateBackend;
+import org.apache.flink.streaming.api.functions.KeyedProcessFunction;
 import org.apache.flink.streaming.api.operators.KeyedProcessOperator;
+import org.apache.flink.streaming.api.operators.co.CoBroadcastWithKeyedOperator;
+import org.apache.flink.streaming.util.KeyedBroadcastOperatorTestHarness;
 import org.apache.flink.streaming.util.KeyedOneInputStreamOperatorTestHarness;
 import org.junit.jupiter.api.BeforeEach;
+import org.apache.flink.util.Collector;
 import org.junit.jupiter.api.Test;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 
 class AttributionProcessFunctionTest {
 
-    private KeyedOneInputStreamOperatorTestHarness<String, Event, AttributedEvent> testHarness;
+    private KeyedBroadcastOperatorTestHarness<String, Event, CampaignRule, AttributedEvent> testHarness;
+    private CoBroadcastWithKeyedOperator<String, Event, CampaignRule, AttributedEvent> operator;
     private static final long ATTRIBUTION_WINDOW_MS = Duration.ofHours(24).toMillis();
 
     @BeforeEach
     void setUp() throws Exception {
-        AttributionProcessFunction function = new AttributionProcessFunction();
-        testHarness = new KeyedOneInputStreamOperatorTestHarness<>(
-            new KeyedProcessOperator<>(function),
-            Event::getUserId,
-            TypeInformation.of(String.class)
-        );
+        createHarness(AttributionConfig.defaults());
         testHarness.open();
     }
 
+    private void createHarness(AttributionConfig config) throws Exception {
+        operator = new CoBroadcastWithKeyedOperator<>(
+            new AttributionProcessFunction(config),
+            List.of(AttributionProcessFunction.RULES_DESCRIPTOR)
+        );
+        testHarness = new KeyedBroadcastOperatorTestHarness<>(operator, Event::getUserId, Types.STRING, 1, 1, 0);
+    }
+
+    private int numKeyedStateEntries() {
+        return ((HeapKeyedStateBackend<?>) operator.getKeyedStateBackend()).numKeyValueStateEntries();
+    }
+
     @Test
     void testClickEventIsStoredInState() throws Exception {
         // Given: A click event
@@ -191,6 +218,500 @@ class AttributionProcessFunctionTest {
         assertThat(output).hasSize(1);
     }
 
+    @Test
+    void testClickEvictedOnceWatermarkPassesWindow() throws Exception {
+        // Given: A stored click
+        ClickEvent click = createClickEvent("click-1", "user-1", "campaign-1", "ad-1", 1000L);
+        testHarness.processElement(click, 1000L);
+        assertThat(numKeyedStateEntries()).isEqualTo(1);
+        assertThat(testHarness.numEventTimeTimers()).isEqualTo(1);
+
+        // When: The watermark is still inside the window
+        testHarness.processWatermark(1000L + ATTRIBUTION_WINDOW_MS);
+
+        // Then: The click is kept
+        assertThat(numKeyedStateEntries()).isEqualTo(1);
+
+        // When: The watermark moves past the window
+        testHarness.processWatermark(1000L + ATTRIBUTION_WINDOW_MS + Duration.ofMinutes(2).toMillis());
+
+        // Then: The click and its timer are gone
+        assertThat(numKeyedStateEntries()).isZero();
+        assertThat(testHarness.numEventTimeTimers()).isZero();
+    }
+
+    @Test
+    void testStateStaysFlatOverSimulatedWeeks() throws Exception {
+        long day = Duration.ofDays(1).toMillis();
+        int usersPerDay = 50;
+        int maxEntries = 0;
+
+        // Given: Three weeks of traffic from a fresh set of users every day
+        for (int d = 0; d < 21; d++) {
+            long dayStart = d * day;
+            for (int u = 0; u < usersPerDay; u++) {
+                long ts = dayStart + u * 1000L;
+                String userId = "user-" + d + "-" + u;
+                testHarness.processElement(createClickEvent("click-" + d + "-" + u, userId, "campaign-1", "ad-1", ts), ts);
+                testHarness.processElement(createClickEvent("click-" + d + "-" + u + "-b", userId, "campaign-2", "ad-2", ts), ts);
+            }
+            testHarness.processWatermark(dayStart + day - 1);
+            maxEntries = Math.max(maxEntries, numKeyedStateEntries());
+        }
+
+        // Then: Only about one day of users is ever held, regardless of history length
+        assertThat(maxEntries).isLessThanOrEqualTo(2 * usersPerDay);
+        assertThat(testHarness.numEventTimeTimers()).isLessThanOrEqualTo(2 * usersPerDay);
+    }
+
+    @Test
+    void testProcessedConversionIdsExpireAfterDedupRetention() throws Exception {
+        // Given: A function that remembers conversion ids for two hours
+        testHarness.close();
+        createHarness(AttributionConfig.builder().dedupRetention(Duration.ofHours(2)).build());
+        testHarness.open();
+
+        ClickEvent click = createClickEvent("click-1", "user-1", "campaign-1", "ad-1", 1000L);
+        ConversionEvent conversion = createConversionEvent("conv-1", "user-1", "campaign-1",
+            5000L, "purchase", new BigDecimal("99.99"));
+        testHarness.processElement(click, 1000L);
+        testHarness.processElement(conversion, 5000L);
+        assertThat(numKeyedStateEntries()).isEqualTo(2);
+
+        // When: The watermark passes the retention window but not the attribution window
+        testHarness.processWatermark(5000L + Duration.ofHours(4).toMillis());
+
+        // Then: Only the click is still held
+        assertThat(numKeyedStateEntries()).isEqualTo(1);
+        assertThat(testHarness.extractOutputValues()).hasSize(1);
+    }
+
+    @Test
+    void testLastClickUsesMostRecentEligibleClick() throws Exception {
+        // Given: Two clicks before the conversion and one after it
+        testHarness.processElement(createClickEvent("click-1", "user-1", "campaign-1", "ad-1", 1000L), 1000L);
+        testHarness.processElement(createClickEvent("click-2", "user-1", "campaign-1", "ad-2", 2000L), 2000L);
+        testHarness.processElement(createClickEvent("click-3", "user-1", "campaign-1", "ad-3", 9000L), 9000L);
+        testHarness.processElement(createConversionEvent("conv-1", "user-1", "campaign-1",
+            5000L, "purchase", new BigDecimal("10.00")), 5000L);
+
+        // Then: The latest click before the conversion gets full credit
+        List<AttributedEvent> output = testHarness.extractOutputValues();
+        assertThat(output).hasSize(1);
+        assertThat(output.get(0).getClickId()).isEqualTo("click-2");
+        assertThat(output.get(0).getCredit()).isEqualTo(1.0);
+        assertThat(output.get(0).getAttributionModel()).isEqualTo("last_click");
+    }
+
+    @Test
+    void testLinearModelSplitsValueAcrossClicks() throws Exception {
+        // Given: A function using linear attribution
+        testHarness.close();
+        createHarness(AttributionConfig.builder().model(AttributionModel.fromName("linear")).build());
+        testHarness.open();
+
+        // When: Three clicks precede a conversion
+        testHarness.processElement(createClickEvent("click-1", "user-1", "campaign-1", "ad-1", 1000L), 1000L);
+        testHarness.processElement(createClickEvent("click-2", "user-1", "campaign-1", "ad-2", 2000L), 2000L);
+        testHarness.processElement(createClickEvent("click-3", "user-1", "campaign-1", "ad-3", 3000L), 3000L);
+        testHarness.processElement(createConversionEvent("conv-1", "user-1", "campaign-1",
+            5000L, "purchase", new BigDecimal("10.00")), 5000L);
+
+        // Then: Each click gets a third and the parts add up to the full value
+        List<AttributedEvent> output = testHarness.extractOutputValues();
+        assertThat(output).extracting(AttributedEvent::getClickId)
+            .containsExactly("click-1", "click-2", "click-3");
+        assertThat(output).allSatisfy(e -> {
+            assertThat(e.getCredit()).isCloseTo(1.0 / 3, within(1e-9));
+            assertThat(e.getAttributionModel()).isEqualTo("linear");
+        });
+        assertThat(output.stream().map(AttributedEvent::getValue).reduce(BigDecimal.ZERO, BigDecimal::add))
+            .isEqualByComparingTo("10.00");
+        assertThat(output.get(0).getValue()).isEqualByComparingTo("3.33");
+    }
+
+    @Test
+    void testLinearModelSplitsWholeUnitValueIntoCents() throws Exception {
+        // Given: A function using linear attribution
+        testHarness.close();
+        createHarness(AttributionConfig.builder().model(AttributionModel.fromName("linear")).build());
+        testHarness.open();
+
+        // When: Three clicks precede a conversion whose value has no decimals
+        testHarness.processElement(createClickEvent("click-1", "user-1", "campaign-1", "ad-1", 1000L), 1000L);
+        testHarness.processElement(createClickEvent("click-2", "user-1", "campaign-1", "ad-2", 2000L), 2000L);
+        testHarness.processElement(createClickEvent("click-3", "user-1", "campaign-1", "ad-3", 3000L), 3000L);
+        testHarness.processElement(createConversionEvent("conv-1", "user-1", "campaign-1",
+            5000L, "purchase", new BigDecimal("10")), 5000L);
+
+        // Then: The shares are cents rather than whole units, and the last one takes the remainder
+        List<AttributedEvent> output = testHarness.extractOutputValues();
+        assertThat(output).extracting(AttributedEvent::getValue)
+            .containsExactly(new BigDecimal("3.33"), new BigDecimal("3.33"), new BigDecimal("3.34"));
+    }
+
+    @Test
+    void testConversionBeforeClickMatchedWhenClickArrives() throws Exception {
+        // Given: A conversion whose click is delayed
+        testHarness.processElement(createConversionEvent("conv-1", "user-1", "campaign-1",
+            5000L, "purchase", new BigDecimal("99.99")), 5000L);
+        assertThat(testHarness.extractOutputValues()).isEmpty();
+
+        // When: The earlier click arrives late
+        testHarness.processElement(createClickEvent("click-1", "user-1", "campaign-1", "ad-1", 1000L), 1000L);
+
+        // Then: The buffered conversion is attributed to it
+        List<AttributedEvent> output = testHarness.extractOutputValues();
+        assertThat(output).hasSize(1);
+        assertThat(output.get(0).getConversionId()).isEqualTo("conv-1");
+        assertThat(output.get(0).getClickId()).isEqualTo("click-1");
+        assertThat(testHarness.getSideOutput(AttributionProcessFunction.UNATTRIBUTED_CONVERSIONS)).isNull();
+    }
+
+    @Test
+    void testUnmatchedConversionExpiresToSideOutput() throws Exception {
+        // Given: A conversion without any click
+        testHarness.processElement(createConversionEvent("conv-1", "user-1", "campaign-1",
+            5000L, "purchase", new BigDecimal("99.99")), 5000L);
+
+        // When: The watermark passes the grace period
+        testHarness.processWatermark(5000L + Duration.ofMinutes(17).toMillis());
+
+        // Then: The conversion is released to the side output and only its id is still held
+        assertThat(testHarness.getSideOutput(AttributionProcessFunction.UNATTRIBUTED_CONVERSIONS))
+            .extracting(record -> record.getValue().getEventId())
+            .containsExactly("conv-1");
+        assertThat(numKeyedStateEntries()).isEqualTo(1);
+    }
+
+    @Test
+    void testReplayedUnattributedConversionIgnored() throws Exception {
+        // Given: A conversion that expired to the side output
+        testHarness.processElement(createConversionEvent("conv-1", "user-1", "campaign-1",
+            5000L, "purchase", new BigDecimal("99.99")), 5000L);
+        testHarness.processWatermark(5000L + Duration.ofMinutes(17).toMillis());
+
+        // When: The same conversion is replayed and its click shows up afterwards
+        testHarness.processElement(createConversionEvent("conv-1", "user-1", "campaign-1",
+            5000L, "purchase", new BigDecimal("99.99")), 5000L);
+        testHarness.processElement(createClickEvent("click-1", "user-1", "campaign-1", "ad-1", 1000L), 1000L);
+        testHarness.processWatermark(5000L + Duration.ofMinutes(34).toMillis());
+
+        // Then: It is neither attributed nor released a second time
+        assertThat(testHarness.extractOutputValues()).isEmpty();
+        assertThat(testHarness.getSideOutput(AttributionProcessFunction.UNATTRIBUTED_CONVERSIONS))
+            .extracting(record -> record.getValue().getEventId())
+            .containsExactly("conv-1");
+    }
+
+    @Test
+    void testPendingBufferIsBoundedPerUser() throws Exception {
+        // Given: A function buffering at most two conversions per user
+        testHarness.close();
+        createHarness(AttributionConfig.builder().maxPendingConversions(2).build());
+        testHarness.open();
+
+        // When: Three unmatched conversions arrive
+        for (int i = 1; i <= 3; i++) {
+            testHarness.processElement(createConversionEvent("conv-" + i, "user-1", "campaign-" + i,
+                5000L, "purchase", new BigDecimal("1.00")), 5000L);
+        }
+
+        // Then: The third one bypasses the buffer
+        assertThat(testHarness.getSideOutput(AttributionProcessFunction.UNATTRIBUTED_CONVERSIONS))
+            .extracting(record -> record.getValue().getEventId())
+            .containsExactly("conv-3");
+    }
+
+    @Test
+    void testLegacyClickStateMigratedOnNextEvent() throws Exception {
+        // Given: A savepoint holding a click in the old whole-ClickEvent state
+        OperatorSubtaskState legacySnapshot;
+        try (KeyedOneInputStreamOperatorTestHarness<String, Event, AttributedEvent> legacyHarness =
+                 new KeyedOneInputStreamOperatorTestHarness<>(
+                     new KeyedProcessOperator<>(new LegacyClickWriter()),
+                     Event::getUserId,
+                     TypeInformation.of(String.class))) {
+            legacyHarness.open();
+            legacyHarness.processElement(createClickEvent("click-1", "user-1", "campaign-1", "ad-1", 1000L), 1000L);
+            legacySnapshot = legacyHarness.snapshot(0L, 0L);
+        }
+
+        // When: The current function restores it with migration enabled and a conversion arrives
+        testHarness.close();
+        createHarness(AttributionConfig.builder().migrateLegacyClickState(true).build());
+        testHarness.initializeState(legacySnapshot);
+        testHarness.open();
+        testHarness.processElement(createConversionEvent("conv-1", "user-1", "campaign-1",
+            5000L, "purchase", new BigDecimal("99.99")), 5000L);
+
+        // Then: The legacy click is attributed and its state moved into the click history
+        List<AttributedEvent> output = testHarness.extractOutputValues();
+        assertThat(output).hasSize(1);
+        assertThat(output.get(0).getClickId()).isEqualTo("click-1");
+        assertThat(output.get(0).getAdId()).isEqualTo("ad-1");
+
+        testHarness.processWatermark(1000L + ATTRIBUTION_WINDOW_MS + Duration.ofMinutes(2).toMillis());
+        assertThat(numKeyedStateEntries()).isEqualTo(1);
+    }
+
+    @Test
+    void testLegacyClickStateOfIdleUserExpiredBySweepMarker() throws Exception {
+        // Given: A savepoint holding a click of a user who never comes back
+        OperatorSubtaskState legacySnapshot;
+        try (KeyedOneInputStreamOperatorTestHarness<String, Event, AttributedEvent> legacyHarness =
+                 new KeyedOneInputStreamOperatorTestHarness<>(
+                     new KeyedProcessOperator<>(new LegacyClickWriter()),
+                     Event::getUserId,
+                     TypeInformation.of(String.class))) {
+            legacyHarness.open();
+            legacyHarness.processElement(createClickEvent("click-1", "user-1", "campaign-1", "ad-1", 1000L), 1000L);
+            legacySnapshot = legacyHarness.snapshot(0L, 0L);
+        }
+        testHarness.close();
+        createHarness(AttributionConfig.builder().migrateLegacyClickState(true).build());
+        testHarness.initializeState(legacySnapshot);
+        testHarness.open();
+
+        // When: The sweep marker arrives before the click's window has passed
+        testHarness.processBroadcastElement(AttributionProcessFunction.legacyClickSweep(), 0L);
+
+        // Then: The click is kept
+        assertThat(numKeyedStateEntries()).isEqualTo(1);
+
+        // When: The watermark passes the window and a rule record arrives
+        testHarness.processWatermark(1000L + ATTRIBUTION_WINDOW_MS + Duration.ofMinutes(2).toMillis());
+        testHarness.processBroadcastElement(new CampaignRule("campaign-9", null, null, null), 0L);
+
+        // Then: Rule records leave the legacy state alone
+        assertThat(numKeyedStateEntries()).isEqualTo(1);
+
+        // When: The next sweep marker arrives
+        testHarness.processBroadcastElement(AttributionProcessFunction.legacyClickSweep(), 0L);
+
+        // Then: The legacy state is empty without the user sending anything
+        assertThat(numKeyedStateEntries()).isZero();
+    }
+
+    @Test
+    void testLegacyConversionIdsMigratedOnNextEvent() throws Exception {
+        // Given: A savepoint holding a conversion id valued by its conversion time
+        OperatorSubtaskState legacySnapshot = legacySnapshotOf(createConversionEvent("conv-1", "user-1",
+            "campaign-1", 5000L, "purchase", new BigDecimal("99.99")));
+        testHarness.close();
+        createHarness(AttributionConfig.builder()
+            .dedupRetention(Duration.ofHours(2))
+            .migrateLegacyClickState(true)
+            .build());
+        testHarness.initializeState(legacySnapshot);
+        testHarness.open();
+
+        // When: The conversion is replayed together with a click for it
+        testHarness.processElement(createClickEvent("click-1", "user-1", "campaign-1", "ad-1", 1000L), 1000L);
+        testHarness.processElement(createConversionEvent("conv-1", "user-1", "campaign-1",
+            5000L, "purchase", new BigDecimal("99.99")), 5000L);
+
+        // Then: The restored id still catches the duplicate
+        assertThat(testHarness.extractOutputValues()).isEmpty();
+        assertThat(numKeyedStateEntries()).isEqualTo(2);
+
+        // When: The watermark passes the retention counted from the conversion time
+        testHarness.processWatermark(5000L + Duration.ofHours(3).toMillis());
+
+        // Then: The migrated id has expired by its timer and only the click is held
+        assertThat(numKeyedStateEntries()).isEqualTo(1);
+    }
+
+    @Test
+    void testLegacyConversionIdsOfIdleUserExpiredBySweepMarker() throws Exception {
+        // Given: A savepoint holding a conversion id of a user who never comes back
+        OperatorSubtaskState legacySnapshot = legacySnapshotOf(createConversionEvent("conv-1", "user-1",
+            "campaign-1", 5000L, "purchase", new BigDecimal("99.99")));
+        testHarness.close();
+        createHarness(AttributionConfig.builder()
+            .dedupRetention(Duration.ofHours(2))
+            .migrateLegacyClickState(true)
+            .build());
+        testHarness.initializeState(legacySnapshot);
+        testHarness.open();
+
+        // When: The sweep marker arrives before the retention has passed
+        testHarness.processBroadcastElement(AttributionProcessFunction.legacyClickSweep(), 0L);
+
+        // Then: The id is kept
+        assertThat(numKeyedStateEntries()).isEqualTo(1);
+
+        // When: The watermark passes the retention and the next sweep marker arrives
+        testHarness.processWatermark(5000L + Duration.ofHours(3).toMillis());
+        testHarness.processBroadcastElement(AttributionProcessFunction.legacyClickSweep(), 0L);
+
+        // Then: The legacy state is empty without the user sending anything
+        assertThat(numKeyedStateEntries()).isZero();
+    }
+
+    @Test
+    void testCampaignRuleOverridesWindowAndModel() throws Exception {
+        // Given: campaign-1 attributed linearly over 48 hours; campaign-2 keeps the defaults
+        testHarness.processBroadcastElement(
+            new CampaignRule("campaign-1", Duration.ofHours(48).toMillis(), "linear", null), 0L);
+        long conversionTime = 1000L + Duration.ofHours(30).toMillis();
+
+        // When: Both campaigns convert 30 hours after two clicks each
+        for (String campaign : List.of("campaign-1", "campaign-2")) {
+            testHarness.processElement(createClickEvent(campaign + "-click-1", "user-1", campaign, "ad-1", 1000L), 1000L);
+            testHarness.processElement(createClickEvent(campaign + "-click-2", "user-1", campaign, "ad-2", 2000L), 2000L);
+            testHarness.processElement(createConversionEvent(campaign + "-conv", "user-1", campaign,
+                conversionTime, "purchase", new BigDecimal("10.00")), conversionTime);
+        }
+
+        // Then: Only campaign-1 is attributed, under its own window and model
+        List<AttributedEvent> output = testHarness.extractOutputValues();
+        assertThat(output).extracting(AttributedEvent::getClickId)
+            .containsExactly("campaign-1-click-1", "campaign-1-click-2");
+        assertThat(output).allSatisfy(e -> {
+            assertThat(e.getAttributionModel()).isEqualTo("linear");
+            assertThat(e.getAttributionWindowHours()).isEqualTo(48);
+            assertThat(e.getAttributionWindowMs()).isEqualTo(Duration.ofHours(48).toMillis());
+            assertThat(e.getCredit()).isEqualTo(0.5);
+        });
+    }
+
+    @Test
+    void testRuleChangeAppliesToNextConversion() throws Exception {
+        // Given: A click, and a rule shrinking its campaign's window to one hour
+        testHarness.processElement(createClickEvent("click-1", "user-1", "campaign-1", "ad-1", 1000L), 1000L);
+        testHarness.processBroadcastElement(
+            new CampaignRule("campaign-1", Duration.ofHours(1).toMillis(), null, null), 0L);
+        long conversionTime = 1000L + Duration.ofHours(2).toMillis();
+
+        // When: A conversion arrives two hours after the click
+        testHarness.processElement(createConversionEvent("conv-1", "user-1", "campaign-1",
+            conversionTime, "purchase", new BigDecimal("1.00")), conversionTime);
+
+        // Then: It is out of the new window
+        assertThat(testHarness.extractOutputValues()).isEmpty();
+
+        // When: The rule is removed and another conversion arrives
+        testHarness.processBroadcastElement(new CampaignRule("campaign-1", null, null, null), 0L);
+        testHarness.processElement(createConversionEvent("conv-2", "user-1", "campaign-1",
+            conversionTime, "purchase", new BigDecimal("1.00")), conversionTime);
+
+        // Then: The default 24 hour window applies again
+        assertThat(testHarness.extractOutputValues()).extracting(AttributedEvent::getConversionId)
+            .containsExactly("conv-2");
+    }
+
+    @Test
+    void testClickKeptWhileGrownCampaignWindowIsOpen() throws Exception {
+        // Given: A click stored under the default window, whose campaign then gets 48 hours
+        testHarness.processElement(createClickEvent("click-1", "user-1", "campaign-1", "ad-1", 1000L), 1000L);
+        testHarness.processBroadcastElement(
+            new CampaignRule("campaign-1", Duration.ofHours(48).toMillis(), null, null), 0L);
+
+        // When: The watermark passes the original window
+        testHarness.processWatermark(1000L + ATTRIBUTION_WINDOW_MS + Duration.ofMinutes(2).toMillis());
+
+        // Then: The click is kept and a timer for the new window replaces the fired one
+        assertThat(numKeyedStateEntries()).isEqualTo(1);
+        assertThat(testHarness.numEventTimeTimers()).isEqualTo(1);
+
+        // When: The watermark passes the new window
+        testHarness.processWatermark(1000L + Duration.ofHours(48).toMillis() + Duration.ofMinutes(2).toMillis());
+
+        // Then: The click and its timer are gone
+        assertThat(numKeyedStateEntries()).isZero();
+        assertThat(testHarness.numEventTimeTimers()).isZero();
+    }
+
+    @Test
+    void testSubHourWindowIsReportedExactly() throws Exception {
+        testHarness.processBroadcastElement(
+            new CampaignRule("campaign-1", Duration.ofMinutes(30).toMillis(), null, null), 0L);
+        testHarness.processElement(createClickEvent("click-1", "user-1", "campaign-1", "ad-1", 1000L), 1000L);
+        testHarness.processElement(createConversionEvent("conv-1", "user-1", "campaign-1",
+            5000L, "purchase", new BigDecimal("99.99")), 5000L);
+
+        AttributedEvent attributed = testHarness.extractOutputValues().get(0);
+        assertThat(attributed.getAttributionWindowMs()).isEqualTo(Duration.ofMinutes(30).toMillis());
+        assertThat(attributed.getAttributionWindowHours()).isEqualTo(1);
+    }
+
+    @Test
+    void testCampaignDedupRetentionOverride() throws Exception {
+        // Given: campaign-1 attributes over one hour and remembers conversion ids for two hours
+        // instead of seven days
+        testHarness.processBroadcastElement(new CampaignRule("campaign-1",
+            Duration.ofHours(1).toMillis(), null, Duration.ofHours(2).toMillis()), 0L);
+        testHarness.processElement(createClickEvent("click-1", "user-1", "campaign-1", "ad-1", 1000L), 1000L);
+        testHarness.processElement(createConversionEvent("conv-1", "user-1", "campaign-1",
+            5000L, "purchase", new BigDecimal("99.99")), 5000L);
+        assertThat(numKeyedStateEntries()).isEqualTo(2);
+
+        // When: The watermark is between the conversion's own expiry and the default retention
+        testHarness.processWatermark(5000L + Duration.ofHours(1).toMillis() + Duration.ofMinutes(2).toMillis());
+
+        // Then: The conversion id is still held until its two hours are up
+        assertThat(numKeyedStateEntries()).isEqualTo(1);
+
+        // When: The watermark passes the two hours
+        testHarness.processWatermark(5000L + Duration.ofHours(4).toMillis());
+
+        // Then: Nothing is held, although the default retention has not passed
+        assertThat(numKeyedStateEntries()).isZero();
+    }
+
+    private OperatorSubtaskState legacySnapshotOf(Event event) throws Exception {
+        try (KeyedOneInputStreamOperatorTestHarness<String, Event, AttributedEvent> legacyHarness =
+                 new KeyedOneInputStreamOperatorTestHarness<>(
+                     new KeyedProcessOperator<>(new LegacyClickWriter()),
+                     Event::getUserId,
+                     TypeInformation.of(String.class))) {
+            legacyHarness.open();
+            legacyHarness.processElement(event, event.getTimestamp());
+            return legacyHarness.snapshot(0L, 0L);
+        }
+    }
+
+    // Writes clicks the way the job did before click state was projected into ClickHistory: with
+    // the descriptor it declared, whose ClickEvent type the type extractor analysed as a POJO.
+    // Conversion ids go in valued by conversion time, as they were before they carried an expiry
+    private static class LegacyClickWriter extends KeyedProcessFunction<String, Event, AttributedEvent> {
+        private transient MapState<String, ClickEvent> clicks;
+        private transient MapState<String, Long> processedConversions;
+
+        @Override
+        public void open(Configuration parameters) {
+            clicks = getRuntimeContext().getMapState(
+                new MapStateDescriptor<>("clicks-per-campaign", Types.STRING, baselineClickEventType()));
+            processedConversions = getRuntimeContext().getMapState(
+                new MapStateDescriptor<>("processed-conversions", String.class, Long.class));
+        }
+
+        @Override
+        public void processElement(Event event, Context ctx, Collector<AttributedEvent> out) throws Exception {
+            if (event instanceof ClickEvent click) {
+                clicks.put(click.getCampaignId(), click);
+            } else {
+                processedConversions.put(event.getEventId(), event.getTimestamp());
+            }
+        }
+    }
+
+    // The POJO type the extractor derived for ClickEvent before it carried a type factory
+    private static TypeInformation<ClickEvent> baselineClickEventType() {
+        List<PojoField> fields = new ArrayList<>();
+        for (Class<?> type = ClickEvent.class; type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                fields.add(new PojoField(field, TypeExtractor.createTypeInfo(field.getGenericType())));
+            }
+        }
+        return new PojoTypeInfo<>(ClickEvent.class, fields);
+    }
+
     // Helper methods to create test events
     private ClickEvent createClickEvent(String eventId, String userId, String campaignId, 
                                        String adId, long timestamp) {
@@ -0,0 +1,284 @@
+package com.example.adaggregator.flink;
+
+import com.example.adaggregator.flink.aggregation.ClickAggregation;
+import com.example.adaggregator.flink.attribution.CampaignRule;
+import com.example.adaggregator.flink.fraud.FraudThresholds;
+import com.example.adaggregator.flink.model.AttributedEvent;
+import com.example.adaggregator.flink.model.ClickAggregate;
+import com.example.adaggregator.flink.model.ClickEvent;
+import com.example.adaggregator.flink.model.ConversionEvent;
+import com.example.adaggregator.flink.model.DeadLetter;
+import com.example.adaggregator.flink.model.Event;
+import com.example.adaggregator.flink.serialization.EventSerializationSchema;
+import org.apache.flink.api.common.RuntimeExecutionMode;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeinfo.Types;
+import org.apache.flink.api.java.utils.ParameterTool;
+import org.apache.flink.runtime.testutils.MiniClusterResourceConfiguration;
+import org.apache.flink.streaming.api.datastream.BroadcastStream;
+import org.apache.flink.streaming.api.datastream.DataStreamUtils;
+import org.apache.flink.streaming.api.datastream.SingleOutputStreamOperator;
+import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
+import org.apache.flink.test.junit5.MiniClusterExtension;
+import org.apache.flink.util.CloseableIterator;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BackfillTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BackfillTest.class);
+
+    private static final int PARALLELISM = 2;
+    private static final long START_TIME = 1_700_000_000_000L;
+    private static final int CAMPAIGNS = 20;
+    private static final String[] SOURCES = {"google", "facebook", "tiktok"};
+
+    @RegisterExtension
+    static final MiniClusterExtension MINI_CLUSTER = new MiniClusterExtension(
+        new MiniClusterResourceConfiguration.Builder()
+            .setNumberTaskManagers(1)
+            .setNumberSlotsPerTaskManager(4)
+            .build());
+
+    @Test
+    void testBatchOutputMatchesStreamingOutput(@TempDir Path dir) throws Exception {
+        // Given: Archived events in one compressed file, with delayed clicks, duplicate and
+        // unmatched conversions, a clicking bot and an undecodable line. A single file keeps the
+        // watermark of STREAMING mode from jumping ahead when one reader moves on to a later file
+        writeDataset(dir, 3_000, 1, true);
+        JobConfig config = backfillConfig(dir);
+
+        // When: The same files are processed in both execution modes
+        Output streaming = run(RuntimeExecutionMode.STREAMING, config);
+        Output batch = run(RuntimeExecutionMode.BATCH, config);
+
+        // Then: Every output is the same, and the data exercised each of them
+        assertThat(streaming.attributed()).isNotEmpty();
+        assertThat(streaming.unattributed()).isNotEmpty();
+        assertThat(streaming.quarantined()).isNotEmpty();
+        assertThat(streaming.deadLetters()).hasSize(1);
+        assertThat(batch.attributed()).containsExactlyInAnyOrderElementsOf(streaming.attributed());
+        assertThat(batch.unattributed()).containsExactlyInAnyOrderElementsOf(streaming.unattributed());
+        assertThat(batch.quarantined()).containsExactlyInAnyOrderElementsOf(streaming.quarantined());
+        assertThat(batch.clickAggregates()).containsExactlyInAnyOrderElementsOf(streaming.clickAggregates());
+        assertThat(batch.deadLetters()).hasSameSizeAs(streaming.deadLetters());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmarkThroughput(@TempDir Path dir) throws Exception {
+        int events = Integer.getInteger("benchmark.events", 1_000_000);
+        int iterations = Integer.getInteger("benchmark.iterations", 3);
+        int written = writeDataset(dir, events, PARALLELISM, false);
+        JobConfig config = backfillConfig(dir);
+
+        // The first iteration includes JIT warm-up; the best one is reported
+        for (RuntimeExecutionMode mode : List.of(RuntimeExecutionMode.STREAMING, RuntimeExecutionMode.BATCH)) {
+            long best = Long.MAX_VALUE;
+            Output output = null;
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                output = run(mode, config);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            LOG.info("{}: {} events in {} ms, {} events/s, {} attributed events", mode, written,
+                Duration.ofNanos(best).toMillis(), Math.round(written / (best / 1e9)), output.attributed().size());
+            assertThat(output.attributed()).isNotEmpty();
+        }
+    }
+
+    private static JobConfig backfillConfig(Path dir) {
+        return JobConfig.fromParameters(ParameterTool.fromMap(Map.of(
+            "backfill.enabled", "true",
+            "backfill.path", dir.toString(),
+            "attribution.model", "linear")));
+    }
+
+    // The job's keyed part between the raw events and the sinks, with each control topic replaced
+    // by a single update that changes nothing: STREAMING mode delivers control records at no fixed
+    // point relative to the events
+    private static Output run(RuntimeExecutionMode mode, JobConfig config) throws Exception {
+        StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
+        env.setRuntimeMode(mode);
+        env.setParallelism(PARALLELISM);
+        env.getConfig().disableGenericTypes();
+
+        SingleOutputStreamOperator<Event> events = AttributionJob.rawEvents(env, config)
+            .process(new DeadLetterRouter());
+
+        BroadcastStream<FraudThresholds> thresholds = env
+            .fromCollection(List.of(new FraudThresholds()), TypeInformation.of(FraudThresholds.class))
+            .broadcast(ClickFraudFilter.THRESHOLDS_DESCRIPTOR);
+        SingleOutputStreamOperator<Event> filteredEvents = events
+            .keyBy(Event::getUserId)
+            .connect(thresholds)
+            .process(new ClickFraudFilter(config.getFraud()));
+
+        BroadcastStream<CampaignRule> rules = env
+            .fromCollection(List.of(new CampaignRule("campaign-0", null, null, null)),
+                TypeInformation.of(CampaignRule.class))
+            .broadcast(AttributionProcessFunction.RULES_DESCRIPTOR);
+        SingleOutputStreamOperator<AttributedEvent> attributedEvents = DataStreamUtils
+            .reinterpretAsKeyedStream(filteredEvents, Event::getUserId, Types.STRING)
+            .connect(rules)
+            .process(new AttributionProcessFunction(config.getAttribution()));
+
+        CloseableIterator<AttributedEvent> attributed = attributedEvents.collectAsync();
+        CloseableIterator<ConversionEvent> unattributed = attributedEvents
+            .getSideOutput(AttributionProcessFunction.UNATTRIBUTED_CONVERSIONS).collectAsync();
+        CloseableIterator<Event> quarantined = filteredEvents
+            .getSideOutput(ClickFraudFilter.QUARANTINED_CLICKS).collectAsync();
+        CloseableIterator<DeadLetter> deadLetters = events
+            .getSideOutput(DeadLetterRouter.DEAD_LETTERS).collectAsync();
+        CloseableIterator<ClickAggregate> clickAggregates = ClickAggregation
+            .aggregate(filteredEvents, config.getClickAggregationWindow(), config.getClickAggregationAllowedLateness())
+            .collectAsync();
+
+        env.execute("Backfill " + mode);
+        return new Output(drain(attributed), drain(unattributed), drain(quarantined), drain(clickAggregates),
+            drain(deadLetters));
+    }
+
+    private static <T> List<T> drain(CloseableIterator<T> iterator) throws Exception {
+        List<T> records = new ArrayList<>();
+        try (iterator) {
+            iterator.forEachRemaining(records::add);
+        }
+        return records;
+    }
+
+    /**
+     * Writes about {@code targetEvents} raw events over several days into JSON Lines files, each
+     * in arrival order. Clicks of a user arrive up to four minutes late, in click order. A
+     * conversion can overtake the click only while it is the campaign's sole click: streaming
+     * attributes a conversion as soon as one of its clicks has arrived, so overtaking a later
+     * click of several would change which clicks share the credit.
+     */
+    private static int writeDataset(Path dir, int targetEvents, int fileCount, boolean compress) throws IOException {
+        Random random = new Random(42);
+        EventSerializationSchema serializer = new EventSerializationSchema();
+        List<List<Arrival>> files = new ArrayList<>();
+        for (int i = 0; i < fileCount; i++) {
+            files.add(new ArrayList<>());
+        }
+
+        int written = 0;
+        for (int user = 0; written < targetEvents; user++) {
+            List<Arrival> file = files.get(user % fileCount);
+            String userId = "user-" + user;
+            long clickDelay = random.nextInt((int) Duration.ofMinutes(4).toMillis());
+            String[] favourites = {campaign(random), campaign(random)};
+            Map<String, List<Long>> clickArrivals = new HashMap<>();
+            long time = START_TIME + (long) (random.nextDouble() * Duration.ofDays(2).toMillis());
+
+            int userEvents = 2 + random.nextInt(12);
+            for (int i = 0; i < userEvents; i++) {
+                // Events of a user are further apart than the click delay, so no two share a timestamp
+                time += Duration.ofMinutes(5).toMillis() + (random.nextInt(10) == 0
+                    ? Duration.ofHours(30).toMillis()
+                    : (long) (random.nextDouble() * Duration.ofHours(6).toMillis()));
+                String eventId = userId + "-" + i;
+                if (random.nextInt(5) < 3) {
+                    String campaignId = favourites[random.nextInt(2)];
+                    long arrival = time + clickDelay;
+                    clickArrivals.computeIfAbsent(campaignId, id -> new ArrayList<>()).add(arrival);
+                    file.add(new Arrival(arrival, serializer.serialize(click(eventId, userId, campaignId, time))));
+                } else {
+                    String campaignId = random.nextInt(10) == 0 ? campaign(random) : favourites[random.nextInt(2)];
+                    List<Long> clicks = clickArrivals.getOrDefault(campaignId, List.of());
+                    long arrival = clicks.size() > 1 ? Math.max(time, clicks.get(clicks.size() - 1) + 1) : time;
+                    byte[] conversion = serializer.serialize(conversion(eventId, userId, campaignId, time, random));
+                    file.add(new Arrival(arrival, conversion));
+                    if (random.nextInt(20) == 0) {
+                        // Replayed by the producer a minute later
+                        file.add(new Arrival(arrival + Duration.ofMinutes(1).toMillis(), conversion));
+                        written++;
+                    }
+                }
+                written++;
+            }
+        }
+
+        // A bot clicking ten times a second for a minute and a half, over the fraud limits
+        int botClicks = 900;
+        for (int i = 0; i < botClicks; i++) {
+            long time = START_TIME + Duration.ofHours(12).toMillis() + i * 100L;
+            files.get(0).add(new Arrival(time, serializer.serialize(click("bot-" + i, "bot", "campaign-1", time))));
+        }
+        files.get(0).add(new Arrival(START_TIME, "not json".getBytes(StandardCharsets.UTF_8)));
+
+        for (int i = 0; i < fileCount; i++) {
+            Path path = dir.resolve("events-" + i + (compress ? ".jsonl.gz" : ".jsonl"));
+            List<Arrival> arrivals = files.get(i);
+            arrivals.sort(Comparator.comparingLong(Arrival::time));
+            try (OutputStream out = compress
+                    ? new GZIPOutputStream(Files.newOutputStream(path))
+                    : Files.newOutputStream(path)) {
+                for (Arrival arrival : arrivals) {
+                    out.write(arrival.line());
+                    out.write('\n');
+                }
+            }
+        }
+        return written + botClicks + 1;
+    }
+
+    private static String campaign(Random random) {
+        return "campaign-" + (1 + random.nextInt(CAMPAIGNS));
+    }
+
+    private static ClickEvent click(String eventId, String userId, String campaignId, long timestamp) {
+        ClickEvent click = new ClickEvent();
+        click.setEventType("click");
+        click.setEventId(eventId);
+        click.setUserId(userId);
+        click.setCampaignId(campaignId);
+        click.setTimestamp(timestamp);
+        click.setAdId(campaignId + "-ad-" + (eventId.hashCode() & 3));
+        click.setSource(SOURCES[Math.floorMod(eventId.hashCode(), SOURCES.length)]);
+        return click;
+    }
+
+    private static ConversionEvent conversion(String eventId, String userId, String campaignId, long timestamp,
+                                              Random random) {
+        ConversionEvent conversion = new ConversionEvent();
+        conversion.setEventType("conversion");
+        conversion.setEventId(eventId);
+        conversion.setUserId(userId);
+        conversion.setCampaignId(campaignId);
+        conversion.setTimestamp(timestamp);
+        conversion.setType("purchase");
+        conversion.setValue(BigDecimal.valueOf(100 + random.nextInt(10_000), 2));
+        conversion.setSource("web");
+        return conversion;
+    }
+
+    private record Arrival(long time, byte[] line) {
+    }
+
+    private record Output(List<AttributedEvent> attributed, List<ConversionEvent> unattributed,
+                          List<Event> quarantined, List<ClickAggregate> clickAggregates,
+                          List<DeadLetter> deadLetters) {
+    }
+}
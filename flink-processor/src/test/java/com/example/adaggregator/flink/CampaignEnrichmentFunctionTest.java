@@ -0,0 +1,148 @@
+package com.example.adaggregator.flink;
+
+import com.example.adaggregator.flink.enrichment.CampaignMetadata;
+import com.example.adaggregator.flink.enrichment.CampaignMetadataClient;
+import com.example.adaggregator.flink.enrichment.EnrichmentConfig;
+import com.example.adaggregator.flink.enrichment.FileCampaignMetadataClient;
+import com.example.adaggregator.flink.enrichment.InMemoryCampaignMetadataClient;
+import com.example.adaggregator.flink.model.AttributedEvent;
+import org.apache.flink.runtime.testutils.MiniClusterResourceConfiguration;
+import org.apache.flink.streaming.api.datastream.AsyncDataStream;
+import org.apache.flink.streaming.api.datastream.DataStream;
+import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
+import org.apache.flink.test.junit5.MiniClusterExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CampaignEnrichmentFunctionTest {
+
+    @RegisterExtension
+    static final MiniClusterExtension MINI_CLUSTER = new MiniClusterExtension(
+        new MiniClusterResourceConfiguration.Builder()
+            .setNumberTaskManagers(1)
+            .setNumberSlotsPerTaskManager(1)
+            .build());
+
+    private static final EnrichmentConfig CONFIG = EnrichmentConfig.builder()
+        .batchSize(10)
+        .batchDelay(Duration.ofMillis(5))
+        .timeout(Duration.ofMillis(500))
+        .build();
+
+    @Test
+    void testKnownCampaignsEnrichedAndUnknownPassedThrough() throws Exception {
+        // Given: Metadata for one of two campaigns
+        CampaignMetadataClient client = new InMemoryCampaignMetadataClient(Map.of(
+            "campaign-1", new CampaignMetadata("campaign-1", "Spring Sale", "advertiser-1")));
+
+        // When: Attributed events of both campaigns are enriched
+        List<AttributedEvent> output = enrich(client, List.of(
+            attributed("conv-1", "campaign-1"),
+            attributed("conv-2", "campaign-2"),
+            attributed("conv-3", "campaign-1")));
+
+        // Then: Every event is emitted, with metadata where the campaign is known
+        assertThat(output).extracting(AttributedEvent::getConversionId).containsExactly("conv-1", "conv-2", "conv-3");
+        assertThat(output).extracting(AttributedEvent::getCampaignName).containsExactly("Spring Sale", null, "Spring Sale");
+        assertThat(output).extracting(AttributedEvent::getAdvertiserId).containsExactly("advertiser-1", null, "advertiser-1");
+    }
+
+    @Test
+    void testMetadataReadFromJsonLinesFile(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("campaigns.jsonl");
+        Files.writeString(file, """
+            {"campaign_id": "campaign-1", "campaign_name": "Spring Sale", "advertiser_id": "advertiser-1"}
+            {"campaign_id": "campaign-2", "campaign_name": "Summer Sale", "advertiser_id": "advertiser-2", "budget": 100}
+            """);
+
+        List<AttributedEvent> output = enrich(new FileCampaignMetadataClient(file.toString()),
+            IntStream.range(0, 50).mapToObj(i -> attributed("conv-" + i, "campaign-" + (i % 2 + 1))).toList());
+
+        assertThat(output).hasSize(50);
+        assertThat(output).allSatisfy(event -> assertThat(event.getCampaignName())
+            .isEqualTo(event.getCampaignId().equals("campaign-1") ? "Spring Sale" : "Summer Sale"));
+    }
+
+    @Test
+    void testFailedLookupsEmitEventsWithoutMetadata() throws Exception {
+        List<AttributedEvent> output = enrich(new UnavailableClient(), List.of(
+            attributed("conv-1", "campaign-1"),
+            attributed("conv-2", "campaign-2")));
+
+        assertThat(output).extracting(AttributedEvent::getConversionId).containsExactly("conv-1", "conv-2");
+        assertThat(output).extracting(AttributedEvent::getCampaignName).containsOnlyNulls();
+    }
+
+    @Test
+    void testTimedOutLookupsEmitEventsWithoutMetadata() throws Exception {
+        List<AttributedEvent> output = enrich(new UnresponsiveClient(), List.of(attributed("conv-1", "campaign-1")));
+
+        assertThat(output).extracting(AttributedEvent::getConversionId).containsExactly("conv-1");
+        assertThat(output.get(0).getCampaignName()).isNull();
+    }
+
+    private static List<AttributedEvent> enrich(CampaignMetadataClient client, List<AttributedEvent> events) throws Exception {
+        StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
+        env.setParallelism(1);
+        env.getConfig().disableGenericTypes();
+
+        DataStream<AttributedEvent> enriched = AsyncDataStream.unorderedWait(
+            env.fromCollection(events),
+            new CampaignEnrichmentFunction(CONFIG, client),
+            CONFIG.getTimeout().toMillis(),
+            TimeUnit.MILLISECONDS,
+            CONFIG.getCapacity());
+
+        // Unordered output; conversion ids sort in input order here
+        return enriched.executeAndCollect(events.size()).stream()
+            .sorted(Comparator.comparing(AttributedEvent::getConversionId, Comparator.comparingInt(
+                id -> Integer.parseInt(id.substring("conv-".length())))))
+            .toList();
+    }
+
+    private static AttributedEvent attributed(String conversionId, String campaignId) {
+        return AttributedEvent.builder()
+            .conversionId(conversionId)
+            .clickId("click-" + conversionId)
+            .userId("user-1")
+            .adId("ad-1")
+            .campaignId(campaignId)
+            .source("google")
+            .conversionType("purchase")
+            .value(new BigDecimal("10.00"))
+            .clickTime(1_000L)
+            .conversionTime(2_000L)
+            .attributionWindowHours(24)
+            .build();
+    }
+
+    private static class UnavailableClient implements CampaignMetadataClient {
+        @Override
+        public CompletableFuture<Map<String, CampaignMetadata>> lookup(Set<String> campaignIds) {
+            return CompletableFuture.failedFuture(new IOException("metadata service down"));
+        }
+    }
+
+    private static class UnresponsiveClient implements CampaignMetadataClient {
+        @Override
+        public CompletableFuture<Map<String, CampaignMetadata>> lookup(Set<String> campaignIds) {
+            return new CompletableFuture<>();
+        }
+    }
+}
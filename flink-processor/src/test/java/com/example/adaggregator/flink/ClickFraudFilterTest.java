@@ -0,0 +1,166 @@
+package com.example.adaggregator.flink;
+
+import com.example.adaggregator.flink.fraud.FraudConfig;
+import com.example.adaggregator.flink.fraud.FraudThresholds;
+import com.example.adaggregator.flink.model.ClickEvent;
+import com.example.adaggregator.flink.model.ConversionEvent;
+import com.example.adaggregator.flink.model.Event;
+import org.apache.flink.api.common.typeinfo.Types;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.util.KeyedBroadcastOperatorTestHarness;
+import org.apache.flink.streaming.util.ProcessFunctionTestHarnesses;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClickFraudFilterTest {
+
+    private KeyedBroadcastOperatorTestHarness<String, Event, FraudThresholds, Event> testHarness;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        FraudConfig config = FraudConfig.builder()
+            .window(Duration.ofMinutes(1))
+            .buckets(6)
+            .maxClicksPerUser(6)
+            .maxClicksPerUserCampaign(3)
+            .build();
+        testHarness = ProcessFunctionTestHarnesses.forKeyedBroadcastProcessFunction(
+            new ClickFraudFilter(config),
+            Event::getUserId,
+            Types.STRING,
+            ClickFraudFilter.THRESHOLDS_DESCRIPTOR
+        );
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        testHarness.close();
+    }
+
+    @Test
+    void testClicksOverCampaignLimitAreQuarantined() throws Exception {
+        // Given: Four clicks on one campaign within a minute, with a limit of three
+        for (int i = 0; i < 4; i++) {
+            testHarness.processElement(click("click-" + i, "user-1", "campaign-1", 1_000L + i), 1_000L + i);
+        }
+
+        // Then: The fourth is quarantined
+        assertThat(testHarness.extractOutputValues()).extracting(Event::getEventId)
+            .containsExactly("click-0", "click-1", "click-2");
+        assertThat(quarantined()).extracting(Event::getEventId).containsExactly("click-3");
+    }
+
+    @Test
+    void testClicksOverUserLimitAreQuarantinedAcrossCampaigns() throws Exception {
+        // Given: Eight clicks spread over four campaigns, with a per-user limit of six
+        for (int i = 0; i < 8; i++) {
+            long timestamp = 1_000L + i;
+            testHarness.processElement(click("click-" + i, "user-1", "campaign-" + (i % 4), timestamp), timestamp);
+        }
+
+        // Then: No campaign reached its limit, but the user did
+        assertThat(testHarness.extractOutputValues()).hasSize(6);
+        assertThat(quarantined()).extracting(Event::getEventId).containsExactly("click-6", "click-7");
+    }
+
+    @Test
+    void testUsersAreLimitedIndependently() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            testHarness.processElement(click("a-" + i, "user-a", "campaign-1", 1_000L + i), 1_000L + i);
+            testHarness.processElement(click("b-" + i, "user-b", "campaign-1", 1_000L + i), 1_000L + i);
+        }
+
+        assertThat(testHarness.extractOutputValues()).hasSize(6);
+        assertThat(quarantined()).isEmpty();
+    }
+
+    @Test
+    void testClicksSpreadBeyondWindowPass() throws Exception {
+        // Given: One click every 30 seconds, so at most two fall in any one-minute window
+        for (int i = 0; i < 10; i++) {
+            long timestamp = i * 30_000L;
+            testHarness.processElement(click("click-" + i, "user-1", "campaign-1", timestamp), timestamp);
+        }
+
+        assertThat(testHarness.extractOutputValues()).hasSize(10);
+        assertThat(quarantined()).isEmpty();
+    }
+
+    @Test
+    void testBroadcastUpdateChangesLimitWithoutRestart() throws Exception {
+        // Given: The campaign limit lowered to one through the control stream
+        testHarness.processBroadcastElement(new FraudThresholds(null, 1), 0L);
+
+        // When: Two clicks on one campaign arrive
+        testHarness.processElement(click("click-1", "user-1", "campaign-1", 1_000L), 1_000L);
+        testHarness.processElement(click("click-2", "user-1", "campaign-1", 2_000L), 2_000L);
+
+        // Then: The second is quarantined; the user limit kept its configured value
+        assertThat(testHarness.extractOutputValues()).extracting(Event::getEventId).containsExactly("click-1");
+        assertThat(quarantined()).extracting(Event::getEventId).containsExactly("click-2");
+    }
+
+    @Test
+    void testConversionsAlwaysPass() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            testHarness.processElement(click("click-" + i, "user-1", "campaign-1", 1_000L + i), 1_000L + i);
+        }
+        testHarness.processElement(conversion("conv-1", "user-1", "campaign-1", 2_000L), 2_000L);
+
+        List<Event> output = testHarness.extractOutputValues();
+        assertThat(output.get(output.size() - 1)).isInstanceOf(ConversionEvent.class);
+    }
+
+    @Test
+    void testRateStateClearedOnceUserGoesQuiet() throws Exception {
+        // Given: A user at the campaign limit
+        for (int i = 0; i < 3; i++) {
+            testHarness.processElement(click("click-" + i, "user-1", "campaign-1", 1_000L + i), 1_000L + i);
+        }
+        assertThat(testHarness.numEventTimeTimers()).isEqualTo(1);
+
+        // When: The watermark passes the end of their window
+        testHarness.processWatermark(60_000L);
+
+        // Then: The cleanup timer fired and a new click starts from zero
+        assertThat(testHarness.numEventTimeTimers()).isZero();
+        testHarness.processElement(click("click-3", "user-1", "campaign-1", 61_000L), 61_000L);
+        assertThat(quarantined()).isEmpty();
+    }
+
+    private List<Event> quarantined() {
+        var records = testHarness.getSideOutput(ClickFraudFilter.QUARANTINED_CLICKS);
+        return records == null ? List.of() : records.stream().map(StreamRecord::getValue).toList();
+    }
+
+    private static ClickEvent click(String eventId, String userId, String campaignId, long timestamp) {
+        ClickEvent click = new ClickEvent();
+        click.setEventType("click");
+        click.setEventId(eventId);
+        click.setUserId(userId);
+        click.setCampaignId(campaignId);
+        click.setTimestamp(timestamp);
+        click.setAdId("ad-1");
+        click.setSource("google");
+        return click;
+    }
+
+    private static ConversionEvent conversion(String eventId, String userId, String campaignId, long timestamp) {
+        ConversionEvent conversion = new ConversionEvent();
+        conversion.setEventType("conversion");
+        conversion.setEventId(eventId);
+        conversion.setUserId(userId);
+        conversion.setCampaignId(campaignId);
+        conversion.setTimestamp(timestamp);
+        conversion.setType("purchase");
+        conversion.setValue(BigDecimal.TEN);
+        return conversion;
+    }
+}
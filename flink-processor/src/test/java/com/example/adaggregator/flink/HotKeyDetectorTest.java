@@ -0,0 +1,196 @@
+package com.example.adaggregator.flink;
+
+import com.example.adaggregator.flink.hotkeys.HotKeyConfig;
+import com.example.adaggregator.flink.hotkeys.HotKeyPolicy;
+import com.example.adaggregator.flink.model.ClickEvent;
+import com.example.adaggregator.flink.model.ConversionEvent;
+import com.example.adaggregator.flink.model.Event;
+import org.apache.flink.streaming.api.operators.ProcessOperator;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HotKeyDetectorTest {
+
+    private static final long INTERVAL_MS = 10_000L;
+    private static final String BOT = "bot-1";
+
+    private OneInputStreamOperatorTestHarness<Event, Event> testHarness;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (testHarness != null) {
+            testHarness.close();
+        }
+    }
+
+    @Test
+    void testMonitorPassesEverything() throws Exception {
+        open(HotKeyPolicy.MONITOR);
+
+        // Given: Two intervals of skewed traffic
+        processSkewedInterval(0L, 2_000);
+        processSkewedInterval(INTERVAL_MS, 2_000);
+
+        // Then: Nothing is held back
+        assertThat(testHarness.extractOutputValues()).hasSize(4_000);
+        assertThat(sideOutput()).isEmpty();
+    }
+
+    @Test
+    void testDivertSendsHotKeyToSideOutputFromNextInterval() throws Exception {
+        open(HotKeyPolicy.DIVERT);
+
+        // Given: A first interval where one user sends half of the traffic
+        int firstBotEvents = processSkewedInterval(0L, 2_000);
+        assertThat(sideOutput()).isEmpty();
+
+        // When: The next interval starts with the same skew
+        int secondBotEvents = processSkewedInterval(INTERVAL_MS, 2_000);
+
+        // Then: The hot user's events bypass the keyed operators; everyone else is untouched
+        assertThat(firstBotEvents).isGreaterThan(0);
+        assertThat(sideOutput()).hasSize(secondBotEvents)
+            .allMatch(event -> event.getUserId().equals(BOT));
+        assertThat(countByUser(testHarness.extractOutputValues()).get(BOT)).isEqualTo((long) firstBotEvents);
+        assertThat(testHarness.extractOutputValues()).hasSize(4_000 - secondBotEvents);
+    }
+
+    @Test
+    void testThrottleBoundsHotKeyLoadDownstream() throws Exception {
+        open(HotKeyPolicy.THROTTLE);
+
+        // Given: Two intervals of skewed traffic
+        int firstBotEvents = processSkewedInterval(0L, 2_000);
+        int secondBotEvents = processSkewedInterval(INTERVAL_MS, 2_000);
+
+        // Then: In the second interval the hot user reaches attribution at the throttle rate
+        // only (10 events per second for 10 seconds), and the excess is kept for replay
+        long budget = 100;
+        Map<String, Long> downstream = countByUser(testHarness.extractOutputValues());
+        assertThat(downstream.get(BOT)).isEqualTo(firstBotEvents + budget);
+        assertThat(sideOutput()).hasSize((int) (secondBotEvents - budget))
+            .allMatch(event -> event.getUserId().equals(BOT));
+        assertThat(testHarness.extractOutputValues()).hasSize((int) (4_000 - secondBotEvents + budget));
+    }
+
+    @Test
+    void testFilterDropsHotKeyClicksButKeepsConversions() throws Exception {
+        open(HotKeyPolicy.FILTER);
+
+        processSkewedInterval(0L, 2_000);
+        testHarness.setProcessingTime(INTERVAL_MS);
+        testHarness.processElement(click(BOT, 1), INTERVAL_MS);
+        testHarness.processElement(conversion(BOT), INTERVAL_MS);
+
+        List<Event> output = testHarness.extractOutputValues();
+        assertThat(output.get(output.size() - 1)).isInstanceOf(ConversionEvent.class);
+        assertThat(output).hasSize(2_001);
+        assertThat(sideOutput()).isEmpty();
+    }
+
+    @Test
+    void testDivertKeepsHotKeyConversions() throws Exception {
+        open(HotKeyPolicy.DIVERT);
+
+        processSkewedInterval(0L, 2_000);
+        testHarness.setProcessingTime(INTERVAL_MS);
+        testHarness.processElement(click(BOT, 1), INTERVAL_MS);
+        testHarness.processElement(conversion(BOT), INTERVAL_MS);
+
+        List<Event> output = testHarness.extractOutputValues();
+        assertThat(output.get(output.size() - 1)).isInstanceOf(ConversionEvent.class);
+        assertThat(output).hasSize(2_001);
+        assertThat(sideOutput()).singleElement().isInstanceOf(ClickEvent.class);
+    }
+
+    @Test
+    void testUniformTrafficHasNoHotKeys() throws Exception {
+        open(HotKeyPolicy.DIVERT);
+
+        // Given: 2,000 users with a few events each
+        for (long interval = 0; interval < 2; interval++) {
+            testHarness.setProcessingTime(interval * INTERVAL_MS);
+            for (int i = 0; i < 4_000; i++) {
+                testHarness.processElement(click("user-" + (i % 2_000), i), i);
+            }
+        }
+
+        // Then: Nothing is diverted
+        assertThat(sideOutput()).isEmpty();
+        assertThat(testHarness.extractOutputValues()).hasSize(8_000);
+    }
+
+    private void open(HotKeyPolicy policy) throws Exception {
+        HotKeyConfig config = HotKeyConfig.builder()
+            .policy(policy)
+            .interval(Duration.ofMillis(INTERVAL_MS))
+            .hotShare(0.1)
+            .minEvents(100)
+            .throttleRate(10)
+            .build();
+        testHarness = new OneInputStreamOperatorTestHarness<>(new ProcessOperator<>(new HotKeyDetector(config)));
+        testHarness.open();
+    }
+
+    // Synthetic skewed workload: half the events come from one user, the rest from 5,000 users
+    private int processSkewedInterval(long start, int events) throws Exception {
+        testHarness.setProcessingTime(start);
+        Random random = new Random(start);
+        int botEvents = 0;
+        for (int i = 0; i < events; i++) {
+            String user;
+            if (random.nextBoolean()) {
+                user = BOT;
+                botEvents++;
+            } else {
+                user = "user-" + random.nextInt(5_000);
+            }
+            testHarness.processElement(click(user, start + i), start + i);
+        }
+        return botEvents;
+    }
+
+    private List<Event> sideOutput() {
+        var records = testHarness.getSideOutput(HotKeyDetector.HOT_KEY_EVENTS);
+        return records == null ? List.of() : records.stream().map(StreamRecord::getValue).toList();
+    }
+
+    private static Map<String, Long> countByUser(List<Event> events) {
+        return events.stream().collect(Collectors.groupingBy(Event::getUserId, Collectors.counting()));
+    }
+
+    private static ClickEvent click(String userId, long timestamp) {
+        ClickEvent click = new ClickEvent();
+        click.setEventType("click");
+        click.setEventId(userId + "-" + timestamp);
+        click.setUserId(userId);
+        click.setCampaignId("campaign-1");
+        click.setTimestamp(timestamp);
+        click.setAdId("ad-1");
+        click.setSource("google");
+        return click;
+    }
+
+    private static ConversionEvent conversion(String userId) {
+        ConversionEvent conversion = new ConversionEvent();
+        conversion.setEventType("conversion");
+        conversion.setEventId(userId + "-conv");
+        conversion.setUserId(userId);
+        conversion.setCampaignId("campaign-1");
+        conversion.setTimestamp(1L);
+        conversion.setType("purchase");
+        conversion.setValue(BigDecimal.TEN);
+        return conversion;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.adaggregator.flink;
+
+import com.example.adaggregator.flink.hotkeys.HotKeyPolicy;
+import org.apache.flink.api.java.utils.ParameterTool;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.connector.base.DeliveryGuarantee;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JobConfigTest {
+
+    @Test
+    void testDefaultsMatchPreviousHardcodedTopology() {
+        JobConfig config = JobConfig.fromParameters(ParameterTool.fromArgs(new String[0]));
+
+        assertThat(config.getInputTopic()).isEqualTo("raw-events");
+        assertThat(config.getOutputTopic()).isEqualTo("attributed-events");
+        assertThat(config.getDeadLetterTopic()).isEqualTo("raw-events-dlq");
+        assertThat(config.getClickAggregatesTopic()).isEqualTo("click-aggregates");
+        assertThat(config.isClickAggregationEnabled()).isFalse();
+        assertThat(config.getClickAggregationWindow()).isEqualTo(Duration.ofMinutes(1));
+        assertThat(config.getHotKeys().getPolicy()).isEqualTo(HotKeyPolicy.MONITOR);
+        assertThat(config.isFraudFilterEnabled()).isFalse();
+        assertThat(config.getFraud().getWindow()).isEqualTo(Duration.ofMinutes(1));
+        assertThat(config.getFraudThresholdsTopic()).isEqualTo("fraud-thresholds");
+        assertThat(config.getAttributionRulesTopic()).isEqualTo("attribution-rules");
+        assertThat(config.isEnrichmentEnabled()).isFalse();
+        assertThat(config.getEnrichment().getCacheTtl()).isEqualTo(Duration.ofMinutes(10));
+        assertThat(config.getEnrichment().getTimeout()).isEqualTo(Duration.ofSeconds(2));
+        assertThat(config.getGroupId()).isEqualTo("flink-attribution-group");
+        assertThat(config.getStartingOffsets()).isEqualTo("earliest");
+        assertThat(config.getParallelism()).isNull();
+        assertThat(config.getMaxParallelism()).isEqualTo(JobConfig.DEFAULT_MAX_PARALLELISM);
+        assertThat(config.getAttribution().getAttributionWindow()).isEqualTo(Duration.ofHours(24));
+        assertThat(config.getAttribution().getDedupRetention()).isEqualTo(Duration.ofDays(7));
+        assertThat(config.getAttribution().getModel().name()).isEqualTo("last_click");
+        assertThat(config.getDeliveryGuarantee()).isEqualTo(DeliveryGuarantee.EXACTLY_ONCE);
+        assertThat(config.getTransactionTimeout()).isEqualTo(Duration.ofMinutes(15));
+        assertThat(config.getTransactionalIdPrefix()).isEqualTo("attribution-job");
+        assertThat(config.getBackfill()).isNull();
+
+        Configuration flink = config.getFlinkConfiguration();
+        assertThat(flink.toMap())
+            .containsEntry("state.backend.type", "rocksdb")
+            .containsEntry("state.backend.incremental", "true");
+    }
+
+    @Test
+    void testArgumentsOverrideTopologyAndPassFlinkOptionsThrough() {
+        JobConfig config = JobConfig.fromParameters(ParameterTool.fromArgs(new String[] {
+            "--parallelism", "8",
+            "--sink.parallelism", "2",
+            "--kafka.input-topic", "raw-events-replay",
+            "--attribution.window", "48 h",
+            "--attribution.model", "linear",
+            "--execution.checkpointing.interval", "30 s",
+            "--execution.checkpointing.unaligned.enabled", "true",
+            "--taskmanager.network.memory.buffer-debloat.enabled", "true",
+            "--kafka.delivery-guarantee", "at-least-once",
+            "--unrelated.option", "ignored"
+        }));
+
+        assertThat(config.getParallelism()).isEqualTo(8);
+        assertThat(config.getSinkParallelism()).isEqualTo(2);
+        assertThat(config.getInputTopic()).isEqualTo("raw-events-replay");
+        assertThat(config.getDeliveryGuarantee()).isEqualTo(DeliveryGuarantee.AT_LEAST_ONCE);
+        assertThat(config.getAttribution().getAttributionWindow()).isEqualTo(Duration.ofHours(48));
+        assertThat(config.getAttribution().getModel().name()).isEqualTo("linear");
+        assertThat(config.getFlinkConfiguration().toMap())
+            .containsEntry("execution.checkpointing.interval", "30 s")
+            .containsEntry("execution.checkpointing.unaligned.enabled", "true")
+            .containsEntry("taskmanager.network.memory.buffer-debloat.enabled", "true")
+            .doesNotContainKey("unrelated.option");
+    }
+
+    @Test
+    void testRejectsUnknownStartingOffsets() {
+        JobConfig config = JobConfig.fromParameters(
+            ParameterTool.fromArgs(new String[] {"--kafka.starting-offsets", "yesterday"}));
+
+        assertThatThrownBy(config::startingOffsetsInitializer)
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("yesterday");
+    }
+
+    @Test
+    void testBackfillReadsBoundedRangeWithoutActingOnHotKeys() {
+        JobConfig config = JobConfig.fromParameters(ParameterTool.fromArgs(new String[] {
+            "--backfill.enabled", "true",
+            "--backfill.start-offsets", "timestamp:1700000000000",
+            "--backfill.end-offsets", "0:1200, 1:1350",
+            "--hot-keys.policy", "throttle"
+        }));
+
+        assertThat(config.getBackfill().getStartOffsets()).isEqualTo("timestamp:1700000000000");
+        assertThat(config.getBackfill().getEndOffsets()).isEqualTo("0:1200, 1:1350");
+        assertThat(config.getBackfill().getPath()).isNull();
+        assertThat(config.getBackfill().startingOffsetsInitializer(config.getInputTopic())).isNotNull();
+        assertThat(config.getBackfill().stoppingOffsetsInitializer(config.getInputTopic())).isNotNull();
+        assertThat(config.getHotKeys().getPolicy()).isEqualTo(HotKeyPolicy.MONITOR);
+        assertThat(config.getTransactionalIdPrefix()).isEqualTo("attribution-backfill");
+        assertThat(config.getDeliveryGuarantee()).isEqualTo(DeliveryGuarantee.AT_LEAST_ONCE);
+    }
+
+    @Test
+    void testBackfillRejectsExactlyOnceDelivery() {
+        ParameterTool params = ParameterTool.fromArgs(new String[] {
+            "--backfill.enabled", "true",
+            "--kafka.delivery-guarantee", "exactly-once"
+        });
+
+        assertThatThrownBy(() -> JobConfig.fromParameters(params))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("backfill.enabled");
+    }
+
+    @Test
+    void testRejectsUnknownBackfillOffsets() {
+        JobConfig config = JobConfig.fromParameters(ParameterTool.fromArgs(new String[] {
+            "--backfill.enabled", "true",
+            "--backfill.end-offsets", "yesterday"
+        }));
+
+        assertThatThrownBy(() -> config.getBackfill().stoppingOffsetsInitializer(config.getInputTopic()))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("yesterday");
+    }
+}
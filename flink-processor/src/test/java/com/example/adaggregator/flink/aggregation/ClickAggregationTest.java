@@ -0,0 +1,154 @@
+package com.example.adaggregator.flink.aggregation;
+
+import com.example.adaggregator.flink.model.ClickAggregate;
+import com.example.adaggregator.flink.model.ClickEvent;
+import com.example.adaggregator.flink.model.ConversionEvent;
+import com.example.adaggregator.flink.model.Event;
+import com.example.adaggregator.flink.typeutils.ModelTypes;
+import org.apache.flink.api.common.eventtime.Watermark;
+import org.apache.flink.api.common.eventtime.WatermarkGenerator;
+import org.apache.flink.api.common.eventtime.WatermarkOutput;
+import org.apache.flink.api.common.eventtime.WatermarkStrategy;
+import org.apache.flink.runtime.testutils.MiniClusterResourceConfiguration;
+import org.apache.flink.streaming.api.datastream.DataStream;
+import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
+import org.apache.flink.test.junit5.MiniClusterExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClickAggregationTest {
+
+    @RegisterExtension
+    static final MiniClusterExtension MINI_CLUSTER = new MiniClusterExtension(
+        new MiniClusterResourceConfiguration.Builder()
+            .setNumberTaskManagers(1)
+            .setNumberSlotsPerTaskManager(1)
+            .build());
+
+    @Test
+    void testClicksCountedPerCampaignSourceAdAndMinute() throws Exception {
+        // Given: Clicks across two minutes, two sources and two ads, plus a conversion
+        StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
+        env.setParallelism(1);
+        env.getConfig().disableGenericTypes();
+
+        DataStream<Event> events = env.fromCollection(List.of(
+                click("click-1", "google", "ad-1", 1_000L),
+                click("click-2", "facebook", "ad-1", 2_000L),
+                click("click-3", "google", "ad-2", 3_000L),
+                conversion("conv-1", 4_000L),
+                click("click-4", "google", "ad-1", 59_999L),
+                click("click-5", "google", "ad-1", 60_000L),
+                click("click-6", null, "ad-1", 61_000L)
+            ), ModelTypes.EVENT)
+            .assignTimestampsAndWatermarks(WatermarkStrategy.<Event>forMonotonousTimestamps()
+                .withTimestampAssigner((event, recordTimestamp) -> event.getTimestamp()));
+
+        // When: Aggregating in one-minute windows
+        List<ClickAggregate> aggregates = ClickAggregation
+            .aggregate(events, Duration.ofMinutes(1), Duration.ZERO)
+            .executeAndCollect(10);
+
+        // Then: One total per key and window; conversions are ignored and a missing source is empty
+        assertThat(aggregates).containsExactlyInAnyOrder(
+            aggregate("google", "ad-1", 0L, 2L),
+            aggregate("facebook", "ad-1", 0L, 1L),
+            aggregate("google", "ad-2", 0L, 1L),
+            aggregate("google", "ad-1", 60_000L, 1L),
+            aggregate("", "ad-1", 60_000L, 1L)
+        );
+    }
+
+    @Test
+    void testLateFiringEmitsOnlyNewClicks() throws Exception {
+        // Given: A click that closes the first window, followed by a late click for it
+        StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
+        env.setParallelism(1);
+        env.getConfig().disableGenericTypes();
+
+        DataStream<Event> events = env.fromCollection(List.of(
+                click("click-1", "google", "ad-1", 1_000L),
+                click("click-2", "google", "ad-1", 61_000L),
+                click("click-3", "google", "ad-1", 2_000L)
+            ), ModelTypes.EVENT)
+            .assignTimestampsAndWatermarks(WatermarkStrategy.<Event>forGenerator(context -> new PerEventWatermarks())
+                .withTimestampAssigner((event, recordTimestamp) -> event.getTimestamp()));
+
+        // When: Aggregating with a minute of allowed lateness
+        List<ClickAggregate> aggregates = ClickAggregation
+            .aggregate(events, Duration.ofMinutes(1), Duration.ofMinutes(1))
+            .executeAndCollect(10);
+
+        // Then: The late firing carries the one new click, so the records of a window sum to its total
+        assertThat(aggregates).containsExactlyInAnyOrder(
+            aggregate("google", "ad-1", 0L, 1L),
+            aggregate("google", "ad-1", 0L, 1L),
+            aggregate("google", "ad-1", 60_000L, 1L)
+        );
+    }
+
+    @Test
+    void testCountClicksMergesPartialCounts() {
+        ClickAggregation.CountClicks count = new ClickAggregation.CountClicks();
+
+        Long a = count.add(new ClickEvent(), count.add(new ClickEvent(), count.createAccumulator()));
+        Long b = count.add(new ClickEvent(), count.createAccumulator());
+
+        assertThat(count.getResult(count.merge(a, b))).isEqualTo(3L);
+    }
+
+    private static Event click(String eventId, String source, String adId, long timestamp) {
+        ClickEvent click = new ClickEvent();
+        click.setEventType("click");
+        click.setEventId(eventId);
+        click.setUserId("user-1");
+        click.setCampaignId("campaign-1");
+        click.setTimestamp(timestamp);
+        click.setSource(source);
+        click.setAdId(adId);
+        return click;
+    }
+
+    private static Event conversion(String eventId, long timestamp) {
+        ConversionEvent conversion = new ConversionEvent();
+        conversion.setEventType("conversion");
+        conversion.setEventId(eventId);
+        conversion.setUserId("user-1");
+        conversion.setCampaignId("campaign-1");
+        conversion.setTimestamp(timestamp);
+        conversion.setType("purchase");
+        conversion.setValue(new BigDecimal("10.00"));
+        return conversion;
+    }
+
+    private static ClickAggregate aggregate(String source, String adId, long windowStart, long clicks) {
+        return ClickAggregate.builder()
+            .campaignId("campaign-1")
+            .source(source)
+            .adId(adId)
+            .windowStart(windowStart)
+            .clicks(clicks)
+            .build();
+    }
+
+    // Advances the watermark with every event, so windows fire between records
+    private static class PerEventWatermarks implements WatermarkGenerator<Event> {
+        private long maxTimestamp = Long.MIN_VALUE;
+
+        @Override
+        public void onEvent(Event event, long eventTimestamp, WatermarkOutput output) {
+            maxTimestamp = Math.max(maxTimestamp, eventTimestamp);
+            output.emitWatermark(new Watermark(maxTimestamp - 1));
+        }
+
+        @Override
+        public void onPeriodicEmit(WatermarkOutput output) {
+        }
+    }
+}
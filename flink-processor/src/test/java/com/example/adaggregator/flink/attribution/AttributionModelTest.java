@@ -0,0 +1,52 @@
+package com.example.adaggregator.flink.attribution;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class AttributionModelTest {
+
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+    private static final long[] CLICK_TIMES = {0L, 6 * HOUR, 12 * HOUR};
+    private static final long CONVERSION_TIME = 12 * HOUR;
+
+    @Test
+    void testLastClickCreditsNewestClick() {
+        assertThat(new LastClickModel().assignCredit(CLICK_TIMES, CONVERSION_TIME))
+            .containsExactly(0.0, 0.0, 1.0);
+    }
+
+    @Test
+    void testFirstClickCreditsOldestClick() {
+        assertThat(new FirstClickModel().assignCredit(CLICK_TIMES, CONVERSION_TIME))
+            .containsExactly(1.0, 0.0, 0.0);
+    }
+
+    @Test
+    void testLinearSplitsEvenly() {
+        assertThat(new LinearModel().assignCredit(CLICK_TIMES, CONVERSION_TIME))
+            .containsExactly(new double[]{1.0 / 3, 1.0 / 3, 1.0 / 3}, within(1e-12));
+    }
+
+    @Test
+    void testTimeDecayHalvesWeightPerHalfLife() {
+        // Ages 12h, 6h and 0h with a 6h half-life give weights 1/4, 1/2 and 1
+        double[] credit = new TimeDecayModel(Duration.ofHours(6)).assignCredit(CLICK_TIMES, CONVERSION_TIME);
+
+        assertThat(credit).containsExactly(new double[]{0.25 / 1.75, 0.5 / 1.75, 1.0 / 1.75}, within(1e-12));
+    }
+
+    @Test
+    void testFromNameResolvesAllModels() {
+        assertThat(AttributionModel.fromName("last_click")).isInstanceOf(LastClickModel.class);
+        assertThat(AttributionModel.fromName("FIRST_CLICK")).isInstanceOf(FirstClickModel.class);
+        assertThat(AttributionModel.fromName("linear")).isInstanceOf(LinearModel.class);
+        assertThat(AttributionModel.fromName("time_decay")).isInstanceOf(TimeDecayModel.class);
+        assertThatThrownBy(() -> AttributionModel.fromName("u_shaped"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
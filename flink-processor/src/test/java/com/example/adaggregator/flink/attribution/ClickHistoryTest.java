@@ -0,0 +1,64 @@
+package com.example.adaggregator.flink.attribution;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClickHistoryTest {
+
+    @Test
+    void testKeepsClicksOrderedByTimestamp() {
+        ClickHistory history = new ClickHistory(4);
+
+        history.add("click-2", "ad-2", "google", 2000L);
+        history.add("click-1", "ad-1", "google", 1000L);
+        history.add("click-3", "ad-3", "facebook", 3000L);
+
+        assertThat(history.size()).isEqualTo(3);
+        assertThat(history.clickIdAt(0)).isEqualTo("click-1");
+        assertThat(history.clickIdAt(1)).isEqualTo("click-2");
+        assertThat(history.clickIdAt(2)).isEqualTo("click-3");
+        assertThat(history.sourceAt(2)).isEqualTo("facebook");
+    }
+
+    @Test
+    void testOverwritesOldestWhenFull() {
+        ClickHistory history = new ClickHistory(2);
+
+        history.add("click-1", "ad-1", "google", 1000L);
+        history.add("click-2", "ad-2", "google", 2000L);
+        history.add("click-3", "ad-3", "google", 3000L);
+        history.add("click-0", "ad-0", "google", 500L);
+
+        assertThat(history.size()).isEqualTo(2);
+        assertThat(history.clickIdAt(0)).isEqualTo("click-2");
+        assertThat(history.clickIdAt(1)).isEqualTo("click-3");
+    }
+
+    @Test
+    void testIgnoresReplayedClick() {
+        ClickHistory history = new ClickHistory(4);
+
+        history.add("click-1", "ad-1", "google", 1000L);
+        history.add("click-1", "ad-1", "google", 1000L);
+
+        assertThat(history.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testEvictOlderThan() {
+        ClickHistory history = new ClickHistory(4);
+        history.add("click-1", "ad-1", "google", 1000L);
+        history.add("click-2", "ad-2", "google", 2000L);
+        history.add("click-3", "ad-3", "google", 3000L);
+
+        history.evictOlderThan(2500L);
+
+        assertThat(history.size()).isEqualTo(1);
+        assertThat(history.clickIdAt(0)).isEqualTo("click-3");
+        assertThat(history.timestampAt(0)).isEqualTo(3000L);
+
+        history.evictOlderThan(5000L);
+        assertThat(history.isEmpty()).isTrue();
+    }
+}
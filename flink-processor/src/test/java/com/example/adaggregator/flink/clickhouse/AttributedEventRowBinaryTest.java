@@ -0,0 +1,67 @@
+package com.example.adaggregator.flink.clickhouse;
+
+import com.example.adaggregator.flink.model.AttributedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AttributedEventRowBinaryTest {
+
+    @Test
+    void testEncodesColumnsInTableOrder() {
+        AttributedEvent event = AttributedEvent.builder()
+            .conversionId("conv-1")
+            .clickId("click-1")
+            .userId("user-1")
+            .adId("ad-1")
+            .campaignId("campaign-1")
+            .source("google")
+            .conversionType("purchase")
+            .value(new BigDecimal("99.9"))
+            .clickTime(1_700_000_000_123L)
+            .conversionTime(1_700_000_100_999L)
+            .attributionModel("linear")
+            .credit(0.5)
+            .build();
+
+        RowBinaryBuffer buffer = new RowBinaryBuffer(4);
+        AttributedEventRowBinary.write(event, buffer);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (String value : new String[] {"conv-1", "click-1", "user-1", "ad-1", "campaign-1", "google", "purchase"}) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            expected.write(utf8.length);
+            expected.writeBytes(utf8);
+        }
+        expected.writeBytes(ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN)
+            .putLong(9990L)
+            .putInt((int) 1_700_000_000L)
+            .putInt((int) 1_700_000_100L)
+            .array());
+        expected.write(6);
+        expected.writeBytes("linear".getBytes(StandardCharsets.UTF_8));
+        expected.writeBytes(ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN)
+            .putDouble(0.5)
+            .array());
+
+        assertThat(buffer.toByteArray()).isEqualTo(expected.toByteArray());
+    }
+
+    @Test
+    void testStringLengthUsesVarInt() {
+        RowBinaryBuffer buffer = new RowBinaryBuffer(4);
+
+        buffer.writeString("x".repeat(300));
+
+        byte[] bytes = buffer.toByteArray();
+        assertThat(bytes).hasSize(302);
+        assertThat(bytes[0]).isEqualTo((byte) 0xAC);
+        assertThat(bytes[1]).isEqualTo((byte) 0x02);
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.adaggregator.flink.clickhouse;
+
+import com.example.adaggregator.flink.model.AttributedEvent;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.flink.streaming.runtime.tasks.TestProcessingTimeService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ClickHouseSinkWriterTest {
+
+    // Stands in for the ClickHouse HTTP interface, answering with queued status codes (200 once empty)
+    private HttpServer server;
+    private final List<RecordedInsert> inserts = new CopyOnWriteArrayList<>();
+    private final Deque<Integer> statuses = new ArrayDeque<>();
+    private final TestProcessingTimeService timeService = new TestProcessingTimeService();
+
+    private record RecordedInsert(String query, byte[] body) {
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            inserts.add(new RecordedInsert(
+                URLDecoder.decode(exchange.getRequestURI().getRawQuery(), StandardCharsets.UTF_8), body));
+            Integer status = statuses.poll();
+            exchange.sendResponseHeaders(status == null ? 200 : status, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void testSendsBatchWhenFull() throws Exception {
+        ClickHouseSinkWriter writer = writer(2);
+
+        writer.write(event("conv-1"), null);
+        assertThat(inserts).isEmpty();
+        writer.write(event("conv-2"), null);
+
+        assertThat(inserts).hasSize(1);
+        assertThat(inserts.get(0).query())
+            .contains("INSERT INTO default.attributed_events (conversion_id, click_id")
+            .contains("FORMAT RowBinary")
+            .contains("insert_deduplication_token=")
+            .contains("deduplicate_blocks_in_dependent_materialized_views=1");
+        assertThat(inserts.get(0).body()).isEqualTo(encode(event("conv-1"), event("conv-2")));
+    }
+
+    @Test
+    void testSendsBatchAfterMaxDelay() throws Exception {
+        ClickHouseSinkWriter writer = writer(100);
+
+        writer.write(event("conv-1"), null);
+        timeService.setCurrentTime(999L);
+        assertThat(inserts).isEmpty();
+
+        timeService.setCurrentTime(1000L);
+        assertThat(inserts).hasSize(1);
+    }
+
+    @Test
+    void testFlushBeforeCheckpointSendsOpenBatchOnce() throws Exception {
+        ClickHouseSinkWriter writer = writer(100);
+
+        writer.write(event("conv-1"), null);
+        writer.flush(false);
+        // The delay timer of the already sent batch must not send anything
+        timeService.setCurrentTime(5000L);
+        writer.flush(false);
+
+        assertThat(inserts).hasSize(1);
+    }
+
+    @Test
+    void testRetriesServerErrorsWithSameDedupToken() throws Exception {
+        statuses.add(503);
+        statuses.add(500);
+        ClickHouseSinkWriter writer = writer(1);
+
+        writer.write(event("conv-1"), null);
+
+        assertThat(inserts).hasSize(3);
+        assertThat(inserts).extracting(RecordedInsert::query).containsOnly(inserts.get(0).query());
+    }
+
+    @Test
+    void testFailsWithoutRetryOnClientError() {
+        statuses.add(400);
+        ClickHouseSinkWriter writer = writer(1);
+
+        assertThatThrownBy(() -> writer.write(event("conv-1"), null))
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("HTTP 400");
+        assertThat(inserts).hasSize(1);
+    }
+
+    private ClickHouseSinkWriter writer(int maxBatchRows) {
+        ClickHouseSinkConfig config = ClickHouseSinkConfig.builder()
+            .endpoint("http://localhost:" + server.getAddress().getPort())
+            .maxBatchRows(maxBatchRows)
+            .maxBatchDelay(Duration.ofSeconds(1))
+            .retryBackoff(Duration.ofMillis(1))
+            .build();
+        return new ClickHouseSinkWriter(config, timeService);
+    }
+
+    private static byte[] encode(AttributedEvent... events) {
+        RowBinaryBuffer buffer = new RowBinaryBuffer(16);
+        for (AttributedEvent event : events) {
+            AttributedEventRowBinary.write(event, buffer);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static AttributedEvent event(String conversionId) {
+        return AttributedEvent.builder()
+            .conversionId(conversionId)
+            .clickId("click-1")
+            .userId("user-1")
+            .adId("ad-1")
+            .campaignId("campaign-1")
+            .source("google")
+            .conversionType("purchase")
+            .value(new BigDecimal("99.99"))
+            .clickTime(1000L)
+            .conversionTime(5000L)
+            .attributionWindowHours(24)
+            .build();
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.adaggregator.flink.enrichment;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BatchingMetadataLookupTest {
+
+    private final RecordingClient client = new RecordingClient();
+    private BatchingMetadataLookup lookup;
+
+    @AfterEach
+    void tearDown() {
+        lookup.close();
+    }
+
+    @Test
+    void testFullBatchIsSentAsOneRequest() throws Exception {
+        // Given: Batches of three with a delay far beyond the test
+        lookup = new BatchingMetadataLookup(client, 3, Duration.ofHours(1));
+
+        // When: Three campaigns are looked up
+        List<CompletableFuture<CampaignMetadata>> results = new ArrayList<>();
+        for (String campaignId : List.of("campaign-1", "campaign-2", "unknown")) {
+            results.add(lookup.lookup(campaignId));
+        }
+
+        // Then: One request carried all of them, and each lookup got its own answer
+        assertThat(client.requests).containsExactly(Set.of("campaign-1", "campaign-2", "unknown"));
+        client.respond(0);
+        assertThat(results.get(0).get().getCampaignName()).isEqualTo("Campaign campaign-1");
+        assertThat(results.get(1).get().getCampaignName()).isEqualTo("Campaign campaign-2");
+        assertThat(results.get(2).get()).isNull();
+    }
+
+    @Test
+    void testPartialBatchIsSentAfterDelay() throws Exception {
+        lookup = new BatchingMetadataLookup(client, 100, Duration.ofMillis(10));
+
+        CompletableFuture<CampaignMetadata> result = lookup.lookup("campaign-1");
+        assertThat(client.requests).isEmpty();
+
+        // The delay passes on the batcher's own thread
+        for (int i = 0; i < 500 && client.requests.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        assertThat(client.requests).containsExactly(Set.of("campaign-1"));
+        client.respond(0);
+        assertThat(result.get(1, TimeUnit.SECONDS).getCampaignName()).isEqualTo("Campaign campaign-1");
+    }
+
+    @Test
+    void testLookupsOfWaitingOrInFlightCampaignShareRequest() throws Exception {
+        lookup = new BatchingMetadataLookup(client, 2, Duration.ofHours(1));
+
+        // Given: A campaign looked up twice while waiting, and again while in flight
+        CompletableFuture<CampaignMetadata> first = lookup.lookup("campaign-1");
+        CompletableFuture<CampaignMetadata> second = lookup.lookup("campaign-1");
+        lookup.lookup("campaign-2");
+        CompletableFuture<CampaignMetadata> third = lookup.lookup("campaign-1");
+
+        // Then: Only one request was made
+        assertThat(first).isSameAs(second).isSameAs(third);
+        assertThat(client.requests).hasSize(1);
+
+        // When: It has been answered, a new lookup starts a new request
+        client.respond(0);
+        lookup.lookup("campaign-1");
+        lookup.lookup("campaign-3");
+        assertThat(client.requests).hasSize(2);
+    }
+
+    @Test
+    void testFailedRequestFailsEveryLookupInIt() {
+        lookup = new BatchingMetadataLookup(client, 2, Duration.ofHours(1));
+
+        CompletableFuture<CampaignMetadata> first = lookup.lookup("campaign-1");
+        CompletableFuture<CampaignMetadata> second = lookup.lookup("campaign-2");
+        client.responses.get(0).completeExceptionally(new IOException("metadata service down"));
+
+        assertThatThrownBy(first::get).isInstanceOf(ExecutionException.class).hasRootCauseMessage("metadata service down");
+        assertThatThrownBy(second::get).isInstanceOf(ExecutionException.class);
+    }
+
+    // Records each request and leaves it open until the test answers it
+    private static class RecordingClient implements CampaignMetadataClient {
+        final List<Set<String>> requests = new CopyOnWriteArrayList<>();
+        final List<CompletableFuture<Map<String, CampaignMetadata>>> responses = new CopyOnWriteArrayList<>();
+
+        @Override
+        public CompletableFuture<Map<String, CampaignMetadata>> lookup(Set<String> campaignIds) {
+            CompletableFuture<Map<String, CampaignMetadata>> response = new CompletableFuture<>();
+            requests.add(Set.copyOf(campaignIds));
+            responses.add(response);
+            return response;
+        }
+
+        void respond(int request) {
+            Map<String, CampaignMetadata> found = new HashMap<>();
+            for (String campaignId : requests.get(request)) {
+                if (campaignId.startsWith("campaign-")) {
+                    found.put(campaignId, new CampaignMetadata(campaignId, "Campaign " + campaignId, "advertiser-1"));
+                }
+            }
+            responses.get(request).complete(found);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.adaggregator.flink.enrichment;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CampaignMetadataCacheTest {
+
+    private final CampaignMetadataCache cache =
+        new CampaignMetadataCache(2, Duration.ofMinutes(10), Duration.ofMinutes(1));
+
+    @Test
+    void testCachedMetadataExpiresAfterTtl() {
+        cache.put("campaign-1", metadata("campaign-1"), 0L);
+
+        assertThat(cache.get("campaign-1", Duration.ofMinutes(9).toMillis()).metadata().getCampaignName())
+            .isEqualTo("Campaign campaign-1");
+        assertThat(cache.get("campaign-1", Duration.ofMinutes(10).toMillis())).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void testUnknownCampaignIsCachedForShorterTtl() {
+        cache.put("campaign-1", null, 0L);
+
+        CampaignMetadataCache.Entry entry = cache.get("campaign-1", Duration.ofSeconds(30).toMillis());
+        assertThat(entry).isNotNull();
+        assertThat(entry.metadata()).isNull();
+        assertThat(cache.get("campaign-1", Duration.ofMinutes(1).toMillis())).isNull();
+    }
+
+    @Test
+    void testLeastRecentlyUsedCampaignIsEvicted() {
+        // Given: A full cache whose first entry was read after the second was written
+        cache.put("campaign-1", metadata("campaign-1"), 0L);
+        cache.put("campaign-2", metadata("campaign-2"), 0L);
+        cache.get("campaign-1", 1L);
+
+        // When: A third campaign is added
+        cache.put("campaign-3", metadata("campaign-3"), 2L);
+
+        // Then: The campaign not read since it was written is dropped
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("campaign-2", 3L)).isNull();
+        assertThat(cache.get("campaign-1", 3L)).isNotNull();
+        assertThat(cache.get("campaign-3", 3L)).isNotNull();
+    }
+
+    private static CampaignMetadata metadata(String campaignId) {
+        return new CampaignMetadata(campaignId, "Campaign " + campaignId, "advertiser-1");
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.adaggregator.flink.fraud;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClickRateTest {
+
+    // 6 buckets of 10 seconds: a one-minute window
+    private static final long BUCKET_MS = 10_000L;
+
+    @Test
+    void testCountsClicksWithinWindow() {
+        ClickRate rate = new ClickRate(6);
+
+        assertThat(rate.add(1_000L, BUCKET_MS)).isEqualTo(1);
+        assertThat(rate.add(15_000L, BUCKET_MS)).isEqualTo(2);
+        assertThat(rate.add(59_999L, BUCKET_MS)).isEqualTo(3);
+    }
+
+    @Test
+    void testOldBucketsSlideOut() {
+        ClickRate rate = new ClickRate(6);
+        rate.add(1_000L, BUCKET_MS);
+        rate.add(15_000L, BUCKET_MS);
+
+        // The window now covers [10s, 70s): the first click has left it
+        assertThat(rate.add(65_000L, BUCKET_MS)).isEqualTo(2);
+        // And [60s, 120s) after a gap: only the new click remains
+        assertThat(rate.add(119_000L, BUCKET_MS)).isEqualTo(2);
+        assertThat(rate.add(500_000L, BUCKET_MS)).isEqualTo(1);
+    }
+
+    @Test
+    void testOutOfOrderClicksCountInTheirBucket() {
+        ClickRate rate = new ClickRate(6);
+        rate.add(50_000L, BUCKET_MS);
+
+        assertThat(rate.add(20_000L, BUCKET_MS)).isEqualTo(2);
+        // Older than the window that ends with the latest click: not counted
+        assertThat(rate.add(-5_000L, BUCKET_MS)).isEqualTo(2);
+        assertThat(rate.windowEnd(BUCKET_MS)).isEqualTo(110_000L);
+    }
+}
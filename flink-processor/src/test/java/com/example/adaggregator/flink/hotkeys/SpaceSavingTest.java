@@ -0,0 +1,115 @@
+package com.example.adaggregator.flink.hotkeys;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SpaceSavingTest {
+
+    @Test
+    void testHeavyHittersTrackedAmongManyDistinctKeys() {
+        // Given: Two heavy keys hidden in 100,000 events over 20,000 distinct keys
+        SpaceSaving sketch = new SpaceSaving(32);
+        Random random = new Random(42);
+        long heavyA = 0;
+        long heavyB = 0;
+        for (int i = 0; i < 100_000; i++) {
+            int roll = random.nextInt(100);
+            if (roll < 20) {
+                sketch.offer("bot-a");
+                heavyA++;
+            } else if (roll < 30) {
+                sketch.offer("bot-b");
+                heavyB++;
+            } else {
+                sketch.offer("user-" + random.nextInt(20_000));
+            }
+        }
+
+        // Then: Both are the heaviest entries and their bounds enclose the true counts
+        List<SpaceSaving.Entry> entries = sketch.entries();
+        assertThat(entries).hasSize(32);
+        assertThat(entries.get(0).key()).isEqualTo("bot-a");
+        assertThat(entries.get(1).key()).isEqualTo("bot-b");
+        assertThat(entries.get(0).guaranteedCount()).isLessThanOrEqualTo(heavyA);
+        assertThat(entries.get(0).count()).isGreaterThanOrEqualTo(heavyA);
+        assertThat(entries.get(1).guaranteedCount()).isLessThanOrEqualTo(heavyB);
+        assertThat(entries.get(1).count()).isGreaterThanOrEqualTo(heavyB);
+        assertThat(sketch.total()).isEqualTo(100_000);
+    }
+
+    @Test
+    void testBoundsHoldForEveryTrackedKeyUnderChurn() {
+        // Given: A small sketch over a skewed stream that keeps evicting entries
+        SpaceSaving sketch = new SpaceSaving(16);
+        Map<String, Long> trueCounts = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            String key = "user-" + (int) Math.pow(random.nextInt(1_000), 2) / 1_000;
+            sketch.offer(key);
+            trueCounts.merge(key, 1L, Long::sum);
+        }
+
+        // Then: Entries come heaviest first, the counts add up to the stream and each
+        // key's bounds enclose its true count
+        List<SpaceSaving.Entry> entries = sketch.entries();
+        assertThat(entries).hasSize(16);
+        assertThat(entries).extracting(SpaceSaving.Entry::count)
+            .isSortedAccordingTo((a, b) -> Long.compare(b, a));
+        assertThat(entries.stream().mapToLong(SpaceSaving.Entry::count).sum()).isEqualTo(sketch.total());
+        for (SpaceSaving.Entry entry : entries) {
+            assertThat(entry.guaranteedCount()).isLessThanOrEqualTo(trueCounts.get(entry.key()));
+            assertThat(entry.count()).isGreaterThanOrEqualTo(trueCounts.get(entry.key()));
+        }
+    }
+
+    @Test
+    void testCountsAreExactBelowCapacity() {
+        SpaceSaving sketch = new SpaceSaving(4);
+        sketch.offer("a");
+        sketch.offer("b");
+        sketch.offer("a");
+
+        List<SpaceSaving.Entry> entries = sketch.entries();
+        assertThat(entries.get(0).key()).isEqualTo("a");
+        assertThat(entries.get(0).count()).isEqualTo(2);
+        assertThat(entries.get(0).guaranteedCount()).isEqualTo(2);
+        assertThat(entries.get(1).guaranteedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testReplacedKeyInheritsMinimumAsError() {
+        SpaceSaving sketch = new SpaceSaving(2);
+        sketch.offer("a");
+        sketch.offer("a");
+        sketch.offer("b");
+        sketch.offer("c");
+
+        List<SpaceSaving.Entry> entries = sketch.entries();
+        assertThat(entries).extracting(SpaceSaving.Entry::key).containsExactlyInAnyOrder("a", "c");
+        SpaceSaving.Entry c = entries.stream().filter(e -> e.key().equals("c")).findFirst().orElseThrow();
+        assertThat(c.count()).isEqualTo(2);
+        assertThat(c.guaranteedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testClearResetsCounts() {
+        SpaceSaving sketch = new SpaceSaving(2);
+        sketch.offer("a");
+        sketch.clear();
+
+        assertThat(sketch.entries()).isEmpty();
+        assertThat(sketch.total()).isZero();
+    }
+
+    @Test
+    void testCapacityMustBePositive() {
+        assertThatThrownBy(() -> new SpaceSaving(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
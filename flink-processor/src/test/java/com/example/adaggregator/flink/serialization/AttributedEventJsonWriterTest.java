@@ -0,0 +1,72 @@
+package com.example.adaggregator.flink.serialization;
+
+import com.example.adaggregator.flink.model.AttributedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigDecimal;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AttributedEventJsonWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AttributedEventJsonWriter writer = new AttributedEventJsonWriter();
+
+    static Stream<AttributedEvent> events() {
+        return Stream.of(
+            base().build(),
+            base().value(BigDecimal.ZERO).build(),
+            base().value(new BigDecimal("0.05")).build(),
+            base().value(new BigDecimal("0.00")).build(),
+            base().value(new BigDecimal("-12.30")).build(),
+            base().value(new BigDecimal("9999999.99")).build(),
+            base().value(new BigDecimal("1E+3")).build(),
+            base().value(new BigDecimal("0.0000001")).build(),
+            base().value(new BigDecimal("123456789012345678901234567890.12")).build(),
+            base().value(null).clickTime(null).attributionWindowHours(null).attributionWindowMs(null).credit(null).build(),
+            base().clickTime(Long.MIN_VALUE).conversionTime(Long.MAX_VALUE).build(),
+            base().credit(1.0 / 3).attributionModel("linear").build(),
+            base().credit(1.0E-7).build(),
+            base().source("quote\" backslash\\ tab\t newline\n ctrl\u0001 del\u007F").build(),
+            base().campaignId("café – 広告 😀").build(),
+            base().campaignName("Spring \"Sale\" – 春").advertiserId("advertiser-1").build(),
+            base().userId(null).eventType(null).build()
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("events")
+    void testMatchesJacksonByteForByte(AttributedEvent event) throws Exception {
+        assertThat(writer.write(event)).isEqualTo(objectMapper.writeValueAsBytes(event));
+    }
+
+    @Test
+    void testReusedBufferDoesNotLeakPreviousRecord() throws Exception {
+        AttributedEvent large = base().source("x".repeat(2000)).build();
+        AttributedEvent small = base().build();
+
+        writer.write(large);
+
+        assertThat(writer.write(small)).isEqualTo(objectMapper.writeValueAsBytes(small));
+    }
+
+    private static AttributedEvent.AttributedEventBuilder base() {
+        return AttributedEvent.builder()
+            .conversionId("conv-123")
+            .clickId("click-456")
+            .userId("user-789")
+            .adId("ad-001")
+            .campaignId("campaign-002")
+            .source("google")
+            .conversionType("purchase")
+            .value(new BigDecimal("99.99"))
+            .clickTime(1000000L)
+            .conversionTime(2000000L)
+            .attributionWindowHours(24)
+            .attributionWindowMs(86_400_000L);
+    }
+}
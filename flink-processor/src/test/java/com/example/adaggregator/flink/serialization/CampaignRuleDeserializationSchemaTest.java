@@ -0,0 +1,57 @@
+package com.example.adaggregator.flink.serialization;
+
+import com.example.adaggregator.flink.attribution.CampaignRule;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CampaignRuleDeserializationSchemaTest {
+
+    private final CampaignRuleDeserializationSchema schema = new CampaignRuleDeserializationSchema();
+
+    @Test
+    void testRuleWithDurationsAndModel() {
+        byte[] json = """
+            {"campaign_id": "campaign-1", "attribution_window": "7 d", "model": "Linear",
+             "dedup_retention": "30 d"}
+            """.getBytes();
+
+        CampaignRule rule = schema.deserialize(json);
+
+        assertThat(rule.getCampaignId()).isEqualTo("campaign-1");
+        assertThat(rule.getAttributionWindowMs()).isEqualTo(Duration.ofDays(7).toMillis());
+        assertThat(rule.getModel()).isEqualTo("linear");
+        assertThat(rule.getDedupRetentionMs()).isEqualTo(Duration.ofDays(30).toMillis());
+    }
+
+    @Test
+    void testRuleWithoutOverridesRevertsCampaign() {
+        CampaignRule rule = schema.deserialize("{\"campaign_id\": \"campaign-1\"}".getBytes());
+
+        assertThat(rule.getCampaignId()).isEqualTo("campaign-1");
+        assertThat(rule.hasOverrides()).isFalse();
+    }
+
+    @Test
+    void testInvalidRulesAreSkipped() {
+        assertThat(schema.deserialize("{ invalid json }".getBytes())).isNull();
+        assertThat(schema.deserialize("{\"attribution_window\": \"1 h\"}".getBytes())).isNull();
+        assertThat(schema.deserialize("{\"campaign_id\": \"c\", \"model\": \"u_shaped\"}".getBytes())).isNull();
+        assertThat(schema.deserialize("{\"campaign_id\": \"c\", \"attribution_window\": \"0 h\"}".getBytes())).isNull();
+    }
+
+    @Test
+    void testDedupRetentionShorterThanWindowIsSkipped() {
+        // Against the rule's own window and against the job's 24 hour default
+        assertThat(schema.deserialize(
+            "{\"campaign_id\": \"c\", \"attribution_window\": \"2 d\", \"dedup_retention\": \"1 d\"}".getBytes())).isNull();
+        assertThat(schema.deserialize("{\"campaign_id\": \"c\", \"dedup_retention\": \"2 h\"}".getBytes())).isNull();
+        assertThat(schema.deserialize("{\"campaign_id\": \"c\", \"attribution_window\": \"10 d\"}".getBytes())).isNull();
+
+        CampaignRule rule = schema.deserialize(
+            "{\"campaign_id\": \"c\", \"attribution_window\": \"1 h\", \"dedup_retention\": \"2 h\"}".getBytes());
+        assertThat(rule.getDedupRetentionMs()).isEqualTo(Duration.ofHours(2).toMillis());
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.adaggregator.flink.serialization;
+
+import com.example.adaggregator.flink.model.ConversionEvent;
+import com.example.adaggregator.flink.model.Event;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConversionEventSerializationSchemaTest {
+
+    private final ConversionEventSerializationSchema schema = new ConversionEventSerializationSchema();
+
+    @Test
+    void testWritesEventTypeOnce() {
+        // Given: A conversion event
+        ConversionEvent conversion = createConversion();
+
+        // When: Serializing it
+        String json = new String(schema.serialize(conversion), StandardCharsets.UTF_8);
+
+        // Then: event_type is not duplicated by the polymorphic type id
+        assertThat(json.split("\"event_type\"", -1)).hasSize(2);
+        assertThat(json).contains("\"event_id\":\"conv-123\"");
+        assertThat(json).contains("\"value\":99.99");
+    }
+
+    @Test
+    void testOutputReadsBackAsRawEvent() throws IOException {
+        // Given: A serialized conversion
+        ConversionEvent conversion = createConversion();
+        byte[] serialized = schema.serialize(conversion);
+
+        // When: Reading it with the job's input schema
+        Event event = new EventDeserializationSchema().deserialize(serialized);
+
+        // Then: The unattributed topic can be replayed into raw-events
+        assertThat(event).isEqualTo(conversion);
+    }
+
+    private ConversionEvent createConversion() {
+        ConversionEvent conversion = new ConversionEvent();
+        conversion.setEventType("conversion");
+        conversion.setEventId("conv-123");
+        conversion.setUserId("user-456");
+        conversion.setCampaignId("campaign-789");
+        conversion.setTimestamp(1234567890L);
+        conversion.setType("purchase");
+        conversion.setValue(new BigDecimal("99.99"));
+        conversion.setSource("app");
+        return conversion;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.adaggregator.flink.serialization;
+
+import com.example.adaggregator.flink.model.ClickEvent;
+import com.example.adaggregator.flink.model.DeadLetter;
+import com.example.adaggregator.flink.model.Event;
+import org.apache.flink.types.Either;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeadLetteringDeserializationSchemaTest {
+
+    private DeadLetteringDeserializationSchema schema;
+
+    @BeforeEach
+    void setUp() {
+        schema = new DeadLetteringDeserializationSchema(new EventDeserializationSchema(false));
+    }
+
+    @Test
+    void testValidEventIsLeft() {
+        // Given: A valid click
+        byte[] json = """
+            {"event_type": "click", "event_id": "click-1", "user_id": "user-1",
+             "campaign_id": "campaign-1", "timestamp": 1000, "ad_id": "ad-1", "source": "google"}
+            """.getBytes();
+
+        // When: Deserializing it
+        Either<Event, DeadLetter> record = schema.deserialize(json);
+
+        // Then: The event is emitted
+        assertThat(record.isLeft()).isTrue();
+        assertThat(record.left()).isInstanceOf(ClickEvent.class);
+        assertThat(record.left().getEventId()).isEqualTo("click-1");
+    }
+
+    @Test
+    void testUndecodableRecordIsDeadLettered() {
+        // Given: A record that is not valid JSON
+        byte[] payload = "{ invalid json }".getBytes();
+
+        // When: Deserializing it
+        Either<Event, DeadLetter> record = schema.deserialize(payload);
+
+        // Then: The original bytes are kept with the error instead of failing the source
+        assertThat(record.isRight()).isTrue();
+        assertThat(record.right().getPayload()).isEqualTo(payload);
+        assertThat(record.right().getError()).isNotBlank();
+    }
+
+    @Test
+    void testUnknownEventTypeIsDeadLettered() {
+        byte[] payload = """
+            {"event_type": "impression", "event_id": "evt-1", "user_id": "user-1",
+             "campaign_id": "campaign-1", "timestamp": 1000}
+            """.getBytes();
+
+        Either<Event, DeadLetter> record = schema.deserialize(payload);
+
+        assertThat(record.isRight()).isTrue();
+        assertThat(record.right().getError()).contains("impression");
+    }
+
+    @Test
+    void testGetProducedType() {
+        assertThat(schema.getProducedType().getTypeClass()).isEqualTo(Either.class);
+    }
+}
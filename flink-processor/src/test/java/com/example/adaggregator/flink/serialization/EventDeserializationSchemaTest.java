@@ -161,6 +161,70 @@ class EventDeserializationSchemaTest {
             .isInstanceOf(IOException.class);
     }
 
+    @Test
+    void testDeserializeMissingUserId() {
+        // Given: A click without user_id, which the job keys by
+        String json = """
+            {
+                "event_type": "click",
+                "event_id": "click-123",
+                "campaign_id": "campaign-789",
+                "timestamp": 1234567890
+            }
+            """;
+
+        // When/Then: Deserialization throws an exception
+        assertThatThrownBy(() -> schema.deserialize(json.getBytes()))
+            .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void testDeserializeNonNumericTimestamp() {
+        // Given: A timestamp that is not a number
+        String json = """
+            {
+                "event_type": "click",
+                "event_id": "click-123",
+                "user_id": "user-456",
+                "campaign_id": "campaign-789",
+                "timestamp": "yesterday"
+            }
+            """;
+
+        // When/Then: Deserialization throws an IOException rather than a runtime exception
+        assertThatThrownBy(() -> schema.deserialize(json.getBytes()))
+            .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void testDeserializeSkipsUnknownFieldsAndMetadata() throws IOException {
+        // Given: A schema that does not capture metadata, and a click with extra nested fields
+        EventDeserializationSchema skipping = new EventDeserializationSchema(false);
+        String clickJson = """
+            {
+                "event_type": "click",
+                "sdk": {"name": "web", "versions": [1, 2, {"patch": 3}]},
+                "event_id": "click-123",
+                "metadata": {"device": "mobile", "nested": {"a": [1, 2]}},
+                "user_id": "user-456",
+                "campaign_id": "campaign-789",
+                "timestamp": "1234567890",
+                "ad_id": "ad-001",
+                "source": "google"
+            }
+            """;
+
+        // When: Deserializing the JSON
+        ClickEvent click = (ClickEvent) skipping.deserialize(clickJson.getBytes());
+
+        // Then: Known fields are read regardless of order, and metadata is dropped
+        assertThat(click.getEventId()).isEqualTo("click-123");
+        assertThat(click.getUserId()).isEqualTo("user-456");
+        assertThat(click.getTimestamp()).isEqualTo(1234567890L);
+        assertThat(click.getSource()).isEqualTo("google");
+        assertThat(click.getMetadata()).isNull();
+    }
+
     @Test
     void testIsEndOfStream() throws IOException {
         // Given: Any event
@@ -0,0 +1,26 @@
+package com.example.adaggregator.flink.serialization;
+
+import com.example.adaggregator.flink.fraud.FraudThresholds;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FraudThresholdsDeserializationSchemaTest {
+
+    private final FraudThresholdsDeserializationSchema schema = new FraudThresholdsDeserializationSchema();
+
+    @Test
+    void testPartialUpdate() {
+        FraudThresholds thresholds = schema.deserialize("{\"max_clicks_per_user\": 500}".getBytes());
+
+        assertThat(thresholds.getMaxClicksPerUser()).isEqualTo(500);
+        assertThat(thresholds.getMaxClicksPerUserCampaign()).isNull();
+    }
+
+    @Test
+    void testInvalidUpdatesAreSkipped() {
+        assertThat(schema.deserialize("{ invalid json }".getBytes())).isNull();
+        assertThat(schema.deserialize("{\"max_clicks_per_user\": 0}".getBytes())).isNull();
+        assertThat(schema.deserialize("{\"max_clicks_per_user_campaign\": -5}".getBytes())).isNull();
+    }
+}
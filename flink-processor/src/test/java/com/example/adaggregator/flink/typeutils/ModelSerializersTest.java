@@ -0,0 +1,204 @@
+package com.example.adaggregator.flink.typeutils;
+
+import com.example.adaggregator.flink.attribution.ClickHistory;
+import com.example.adaggregator.flink.fraud.ClickRate;
+import com.example.adaggregator.flink.model.AttributedEvent;
+import com.example.adaggregator.flink.model.ClickAggregate;
+import com.example.adaggregator.flink.model.ClickEvent;
+import com.example.adaggregator.flink.model.ConversionEvent;
+import com.example.adaggregator.flink.model.Event;
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.base.BigDecSerializer;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ModelSerializersTest {
+
+    @Test
+    void testClickEventRoundTripThroughEventSerializer() throws IOException {
+        ClickEvent click = new ClickEvent();
+        click.setEventType("click");
+        click.setEventId("click-123");
+        click.setUserId("user-456");
+        click.setCampaignId("campaign-789");
+        click.setTimestamp(1234567890L);
+        click.setAdId("ad-001");
+        click.setSource("google");
+        click.setMetadata(Map.of("device", "mobile", "slot", 3));
+
+        Event restored = roundTrip(EventSerializer.INSTANCE, click);
+
+        assertThat(restored).isInstanceOf(ClickEvent.class).isEqualTo(click);
+    }
+
+    @Test
+    void testConversionEventRoundTripThroughEventSerializer() throws IOException {
+        ConversionEvent conversion = new ConversionEvent();
+        conversion.setEventType("conversion");
+        conversion.setEventId("conv-123");
+        conversion.setUserId("user-456");
+        conversion.setCampaignId("campaign-789");
+        conversion.setTimestamp(1234567890L);
+        conversion.setType("purchase");
+        conversion.setValue(new BigDecimal("99.99"));
+
+        Event restored = roundTrip(EventSerializer.INSTANCE, conversion);
+
+        assertThat(restored).isInstanceOf(ConversionEvent.class).isEqualTo(conversion);
+        assertThat(((ConversionEvent) restored).getSource()).isNull();
+    }
+
+    @Test
+    void testAttributedEventRoundTrip() throws IOException {
+        AttributedEvent attributed = AttributedEvent.builder()
+            .conversionId("conv-123")
+            .clickId("click-456")
+            .userId("user-789")
+            .adId("ad-001")
+            .campaignId("campaign-002")
+            .source("google")
+            .conversionType("purchase")
+            .value(new BigDecimal("33.33"))
+            .clickTime(1000000L)
+            .conversionTime(2000000L)
+            .attributionWindowHours(24)
+            .attributionWindowMs(86_400_000L)
+            .attributionModel("linear")
+            .credit(1.0 / 3)
+            .campaignName("Spring Sale")
+            .advertiserId("advertiser-1")
+            .build();
+
+        assertThat(roundTrip(AttributedEventSerializer.INSTANCE, attributed)).isEqualTo(attributed);
+        assertThat(AttributedEventSerializer.INSTANCE.copy(attributed))
+            .isEqualTo(attributed)
+            .isNotSameAs(attributed);
+    }
+
+    @Test
+    void testAttributedEventSnapshotReadsFormatBeforeCampaignMetadata() throws IOException {
+        // A checkpoint taken before the format carried campaign metadata: the snapshot was
+        // written by SimpleTypeSerializerSnapshot (version 3, no payload)
+        DataOutputSerializer snapshotOut = new DataOutputSerializer(128);
+        snapshotOut.writeUTF(AttributedEventSerializer.AttributedEventSerializerSnapshot.class.getName());
+        snapshotOut.writeInt(3);
+        TypeSerializerSnapshot<AttributedEvent> restored = TypeSerializerSnapshot.readVersionedSnapshot(
+            new DataInputDeserializer(snapshotOut.getCopyOfBuffer()), getClass().getClassLoader());
+
+        DataOutputSerializer record = new DataOutputSerializer(128);
+        SerializerSupport.writeString("attributed_conversion", record);
+        SerializerSupport.writeString("conv-123", record);
+        SerializerSupport.writeString("click-456", record);
+        SerializerSupport.writeString("user-789", record);
+        SerializerSupport.writeString("ad-001", record);
+        SerializerSupport.writeString("campaign-002", record);
+        SerializerSupport.writeString("google", record);
+        SerializerSupport.writeString("purchase", record);
+        BigDecSerializer.writeBigDecimal(new BigDecimal("10.00"), record);
+        SerializerSupport.writeLong(1000000L, record);
+        SerializerSupport.writeLong(2000000L, record);
+        SerializerSupport.writeInt(24, record);
+        SerializerSupport.writeString("last_click", record);
+        SerializerSupport.writeDouble(1.0, record);
+        record.writeInt(0xCAFE);
+
+        DataInputDeserializer in = new DataInputDeserializer(record.getCopyOfBuffer());
+        AttributedEvent event = restored.restoreSerializer().deserialize(in);
+
+        assertThat(event.getConversionId()).isEqualTo("conv-123");
+        assertThat(event.getCredit()).isEqualTo(1.0);
+        assertThat(event.getCampaignName()).isNull();
+        assertThat(in.readInt()).isEqualTo(0xCAFE);
+        assertThat(AttributedEventSerializer.INSTANCE.snapshotConfiguration().resolveSchemaCompatibility(restored)
+            .isCompatibleAfterMigration()).isTrue();
+    }
+
+    @Test
+    void testClickHistoryRoundTripKeepsOrderAndCapacity() throws IOException {
+        ClickHistory history = new ClickHistory(3);
+        history.add("click-1", "ad-1", "google", 1000L);
+        history.add("click-2", "ad-2", "google", 2000L);
+        history.add("click-3", "ad-3", "facebook", 3000L);
+        history.add("click-4", "ad-4", "facebook", 4000L);
+
+        ClickHistory restored = roundTrip(ClickHistorySerializer.INSTANCE, history);
+
+        assertThat(restored.capacity()).isEqualTo(3);
+        assertThat(restored.size()).isEqualTo(3);
+        assertThat(restored.clickIdAt(0)).isEqualTo("click-2");
+        assertThat(restored.timestampAt(2)).isEqualTo(4000L);
+        assertThat(restored.sourceAt(2)).isEqualTo("facebook");
+
+        restored.add("click-5", "ad-5", "google", 5000L);
+        assertThat(restored.clickIdAt(0)).isEqualTo("click-3");
+    }
+
+    @Test
+    void testClickAggregateRoundTrip() throws IOException {
+        ClickAggregate aggregate = ClickAggregate.builder()
+            .campaignId("campaign-789")
+            .source("google")
+            .adId("ad-001")
+            .windowStart(1_700_000_040_000L)
+            .clicks(42L)
+            .build();
+
+        assertThat(roundTrip(ClickAggregateSerializer.INSTANCE, aggregate)).isEqualTo(aggregate);
+        assertThat(ClickAggregateSerializer.INSTANCE.copy(aggregate)).isEqualTo(aggregate).isNotSameAs(aggregate);
+    }
+
+    @Test
+    void testClickRateRoundTrip() throws IOException {
+        ClickRate rate = new ClickRate(6);
+        rate.add(1_000L, 10_000L);
+        rate.add(25_000L, 10_000L);
+
+        ClickRate restored = roundTrip(ClickRateSerializer.INSTANCE, rate);
+
+        assertThat(restored.lastBucket()).isEqualTo(2L);
+        assertThat(restored.counts()).containsExactly(1, 0, 1, 0, 0, 0);
+        assertThat(ClickRateSerializer.INSTANCE.copy(rate).counts()).isNotSameAs(rate.counts());
+    }
+
+    @Test
+    void testSnapshotRestoresSameSerializer() throws IOException {
+        DataOutputSerializer out = new DataOutputSerializer(64);
+        TypeSerializerSnapshot.writeVersionedSnapshot(out, ClickHistorySerializer.INSTANCE.snapshotConfiguration());
+
+        TypeSerializerSnapshot<ClickHistory> snapshot = TypeSerializerSnapshot.readVersionedSnapshot(
+            new DataInputDeserializer(out.getCopyOfBuffer()), getClass().getClassLoader());
+
+        assertThat(snapshot.restoreSerializer()).isSameAs(ClickHistorySerializer.INSTANCE);
+    }
+
+    @Test
+    void testModelTypesResolveWithoutKryo() {
+        ExecutionConfig config = new ExecutionConfig();
+        config.disableGenericTypes();
+
+        assertThat(TypeInformation.of(Event.class)).isSameAs(ModelTypes.EVENT);
+        assertThat(TypeInformation.of(ConversionEvent.class)).isSameAs(ModelTypes.CONVERSION_EVENT);
+        assertThat(TypeInformation.of(AttributedEvent.class).createSerializer(config))
+            .isSameAs(AttributedEventSerializer.INSTANCE);
+        assertThat(TypeInformation.of(ClickHistory.class).createSerializer(config))
+            .isSameAs(ClickHistorySerializer.INSTANCE);
+        assertThat(TypeInformation.of(ClickAggregate.class)).isSameAs(ModelTypes.CLICK_AGGREGATE);
+        assertThat(TypeInformation.of(ClickRate.class)).isSameAs(ModelTypes.CLICK_RATE);
+    }
+
+    private static <T> T roundTrip(TypeSerializer<T> serializer, T value) throws IOException {
+        DataOutputSerializer out = new DataOutputSerializer(128);
+        serializer.serialize(value, out);
+        return serializer.deserialize(new DataInputDeserializer(out.getCopyOfBuffer()));
+    }
+}